@@ -0,0 +1,16 @@
+/** An animation that is run on its own thread, such as a move, a tween
+ *  or a transition. Besides being run frame by frame, an animation can
+ *  be finished at once: it's then put straight into its final state,
+ *  without any of the frames in between. This is used to skip ahead
+ *  through a scene.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public interface Animation extends Runnable
+{
+  /** Puts the animation straight into its final state, on the calling
+   *  thread, instead of running it. */
+  void finish();
+}
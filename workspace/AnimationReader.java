@@ -1,6 +1,9 @@
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.*;
 
 /** A file reader specifically designed for the handling of this project's
@@ -26,6 +29,28 @@ import java.util.regex.*;
  *  The handling/response of this return value must be specified in the
  *  project's main class, e.g. the Game class.
  *
+ *  The player can ask to skip ahead with skip(). The reader then runs
+ *  the rest of the scene, up to the next button list or return, without
+ *  waiting: waits end at once, and animations are put straight into
+ *  their final states instead of being run, so only the end of the skip
+ *  is shown on the screen.
+ *
+ *  While a scene runs, the reader keeps checkpoints of it every few
+ *  seconds of script time. seek(long) jumps to any time in the script
+ *  by restoring the last checkpoint before that time and skipping ahead
+ *  from there, so a seek never has to run more than a few seconds of
+ *  the script, however long the scene is.
+ *
+ *  requestSnapshot() asks the reader to save the game. The reader takes
+ *  the snapshot itself, between commands, once no animations are running
+ *  and it isn't in a parallel block, so the scene isn't saved halfway
+ *  through being changed. While the player is choosing a button, the
+ *  last checkpoint is saved instead; one is kept at every button list.
+ *
+ *  A reader can also run unattended, with no player and no window, as
+ *  when many games are run at once for testing. It then skips through
+ *  every scene from start to end, and chooses buttons itself.
+ *
  *  Animation files are NOT case-sensitive, except for the print message
  *  and the button labels.
  *
@@ -36,16 +61,120 @@ import java.util.regex.*;
 public class AnimationReader
 {
   /** The current animation file being processed (via animate(Scene)). */
-  private String currentFile;
+  private volatile String currentFile;
+  
+  /** The text of the current animation file, as it was when the scene
+   *  started, so that the scene keeps running the same script even if
+   *  the file is changed and reloaded while it runs. */
+  private String currentScript;
   
   /** The current scene being animated (via animate(Scene)). */
-  private Scene currentScene;
+  private volatile Scene currentScene;
   
   /** A counter variable to be used for simple looping. */
-  private int counter;
+  private volatile int counter;
+  
+  /** The line number of the command being run, or last run. */
+  private volatile int currentLine;
   
   /** The main reader processing the file. */
-  private BufferedReader mainReader;
+  private LineNumberReader mainReader;
+  
+  /** The execution counts and latencies of every command run. */
+  private final CommandStats stats = new CommandStats();
+  
+  /** How long each scene took to open and set up before its first
+   *  command, in nanoseconds. */
+  private final LatencyHistogram sceneLoads = new LatencyHistogram(3);
+  
+  /** How long each button list waited for the player, in nanoseconds. */
+  private final LatencyHistogram buttonWaits = new LatencyHistogram(3);
+  
+  /** The time at which the current scene's script says the last wait
+   *  ends, in nanoseconds. Each wait moves this deadline forward by its
+   *  own duration, so time spent running commands is made up for by
+   *  sleeping less in the following wait. */
+  private long timeline;
+  
+  /** The total time of every wait in the current scene, in nanoseconds. */
+  private volatile long scripted;
+  
+  /** When the wait being slept through ends, in nanoseconds; -1 if the
+   *  reader isn't sleeping through a wait. scripted already counts the
+   *  whole wait while it's being slept through. */
+  private volatile long waitEnd = -1;
+  
+  /** The animations started in the current parallel block, or null if
+   *  the reader isn't in a parallel block. */
+  private ArrayList<CompletableFuture<Void>> block;
+  
+  /** Set when the current scene is asked to stop. */
+  private volatile boolean stopRequest;
+  
+  /** Completed when the player asks to skip ahead or seek; replaced once
+   *  the skip is over, or dropped if it's asked for while buttons are
+   *  shown. */
+  private volatile CompletableFuture<Void> skipRequest
+  = new CompletableFuture<Void>();
+  
+  /** Whether the reader is skipping ahead through the scene. */
+  private boolean skipping;
+  
+  /** The number of commands run in the current skip, and when it began. */
+  private int skipped;
+  private long skipStart;
+  
+  /** How much script time may pass between checkpoints, in nanoseconds,
+   *  and how many commands may be run between them. */
+  private static final long CHECKPOINT_TIME = 5000000000L;
+  private static final int CHECKPOINT_COMMANDS = 500;
+  
+  /** The checkpoints of the current scene, in order of script time. */
+  private final ArrayList<Checkpoint> checkpoints
+  = new ArrayList<Checkpoint>();
+  
+  /** The number of commands run since the last checkpoint. */
+  private int sinceCheckpoint;
+  
+  /** The script time asked for by seek(long), in nanoseconds; -1 if no
+   *  seek has been asked for. */
+  private volatile long seekRequest = -1;
+  
+  /** The snapshot in the last checkpoint kept or gone back to; null if
+   *  none has been kept in the current scene. */
+  private volatile Snapshot lastCheckpoint;
+  
+  /** Completed with a snapshot once the reader can take one, when the
+   *  game is to be saved; done if no save has been asked for. */
+  private volatile CompletableFuture<Snapshot> saveRequest
+  = CompletableFuture.completedFuture(null);
+  
+  /** The script time the reader is skipping ahead to, in nanoseconds; -1
+   *  if the reader isn't seeking. */
+  private long seekTarget = -1;
+  
+  /** Chooses buttons when no player is there to; null if a player
+   *  chooses them. */
+  private volatile Random chooser;
+  
+  /** Whether the reader runs unattended, skipping through every scene. */
+  private volatile boolean unattended;
+  
+  /** Whether the reader is waiting for the player to press a button. */
+  private volatile boolean waiting;
+  
+  /** The clock the reader's waits are timed by. */
+  private volatile Clock clock = Clock.REAL_TIME;
+  
+  /** How far past its deadline each wait ended, in nanoseconds. */
+  private final LatencyHistogram waitLateness = new LatencyHistogram(3);
+  
+  /** How far behind its script each scene ended, in nanoseconds. */
+  private final LatencyHistogram sceneDrifts = new LatencyHistogram(3);
+  
+  /** How long after each button press the next command started, in
+   *  nanoseconds. */
+  private final LatencyHistogram buttonLatencies = new LatencyHistogram(3);
   
   /* Pre-compiled regex patterns for positive numbers/characters. */
   private Pattern positive_int = Pattern.compile("[0-9]+");
@@ -54,38 +183,101 @@ public class AnimationReader
   
   /** Performs animations based on each scene's respective animation file.
    *  Assumes that the scene has stored in it a valid animation file so
-   *  that any initial background image can be set.
+   *  that any initial background image can be set. Each command is timed
+   *  and recorded in the command statistics, and the statistics of the
+   *  scene are printed once the scene is finished.
+   *
+   *  The scene's waits are timed from the moment the scene finishes
+   *  loading, so a wait that ends "5s" after the start of the script
+   *  ends 5 seconds after the scene starts, however long the commands in
+   *  between took. Time spent waiting on buttons doesn't count towards
+   *  the script. How far the scene ends up behind its script is recorded
+   *  once the scene is finished.
    *  @param scene    The scene to animate on the screen.
    *  @return The next scene to animate, or -1 if error or finished. */
   public int animate (Scene scene)
+  {
+    return animate(scene, 0, counter);
+  }
+  
+  /** Performs the animations of a scene from a given line onwards, as
+   *  when a saved game is resumed. The lines before it are read past
+   *  without being run, and the scene's background is left as it is, so
+   *  the scene should have been restored beforehand. See animate(Scene).
+   *  @param scene      The scene to animate on the screen.
+   *  @param startLine  The line to start from; 0 or 1 for the start.
+   *  @param count      The value to set the counter to.
+   *  @return The next scene to animate, or -1 if error or finished. */
+  public int animate (Scene scene, int startLine, int count)
   {
     /* The next scene to animate. */
     int nextScene = -1;
     
+    /* The statistics of each line in this scene. */
+    CommandStats.Lines lineStats = stats.forScene(scene.getSceneID());
+    
+    /* When the scene started loading. */
+    long loadStart = System.nanoTime();
+    
+    /* When the last button was pressed, until the next command starts. */
+    long pressed = 0;
+    
     try {
       /* Saves the current animation file being processed. */
       currentFile = scene.getAnimationFile();
+      currentScript = ScriptCache.read(currentFile);
+      stopRequest = false;
       
       /* Saves the current scene being animated. */
       currentScene = scene;
       
-      /* Reads the lines of the animation file. */
-      mainReader
-      = new BufferedReader
-      ( new FileReader
-      ( currentFile ) );
-      
       /* Stores the line of text extracted from the file. */
       String line = "";
       
       /* Set the background image first if it's in the header. */
-      String bg = extractSceneBG(scene.getAnimationFile());
-      if (!bg.equals("")) scene.setBackgroundImage(bg);
+      if (startLine <= 1) {
+        String bg = extractSceneBG(scene.getAnimationFile());
+        if (!bg.equals("")) scene.setBackgroundImage(bg);
+      }
+      
+      /* Reads the lines of the animation file, from the start line. */
+      mainReader = openAt(startLine);
+      counter = count;
+      sceneLoads.record(System.nanoTime() - loadStart);
+      currentLine = 0;
+      
+      /* Start the scene's timeline. */
+      timeline = clock.now();
+      scripted = 0;
+      block = null;
+      skipping = false;
+      seekTarget = -1;
+      checkpoints.clear();
+      lastCheckpoint = null;
+      sinceCheckpoint = CHECKPOINT_COMMANDS;
+      
+      /* Without a player, skip through the whole scene. */
+      if (unattended) startSkipping();
       
       /* Read each line in the animation text file. */
       while ( mainReader != null
       && (line = mainReader.readLine() ) != null)
       {
+        /* End the scene here if it's been asked to stop. */
+        if (stopRequest) {
+          Log.info("Stopped scene {} at line {}", scene.getSceneID(),
+          mainReader.getLineNumber());
+          skipRequest = new CompletableFuture<Void>();
+          break;
+        }
+        
+        /* End the scene if the thread is being shut down. */
+        if (Thread.currentThread().isInterrupted()) {
+          Log.warn("Interrupted scene {} at line {}", scene.getSceneID(),
+          mainReader.getLineNumber());
+          break;
+        }
+        
         /* The line is empty. */
         if (line.equals("")) {
           continue;
@@ -94,93 +286,560 @@ public class AnimationReader
         /* Separate the line into individual words. */
         String[] tokens = line.split(" ");
         
-        /* Stores the first token (or the command) of the line. */
-        String command = tokens[0].toLowerCase();
-        
-        /* Add a character into the scene. */
-        if (command.equals("add")) {
-          handleAdd(tokens);
-        } // add [global|local] [name] [id] [[x]] [[y]] [[size]] [[type]]
+        /* Determine the command of the line. */
+        Opcode op = Opcode.of(tokens);
+        if (op == Opcode.NONE || op == Opcode.ID) {
+          continue;
+        }
         
-        /* Remove a character from the scene. */
-        else if (command.equals("remove")) {
-          handleRemove(tokens);
-        } // remove [all|id]
+        /* Jump to the time asked for, if it's been asked for. */
+        int lineNumber = mainReader.getLineNumber();
+        if (seekRequest >= 0 && seek(scene, lineNumber)) continue;
         
-        /* Move a character to another position. */
-        else if (command.equals("move")) {
-          handleMove(tokens);
-        } // move [id] [x] [y] [speed]
+        /* Stop seeking once the time asked for is reached. */
+        if (seekTarget >= 0 && scripted >= seekTarget) stopSkipping();
         
-        /* Set a character's appearance, background, or opacity. */
-        else if (command.equals("set")) {
-          handleSet(tokens);
-        } // set character [id] [appearance]
-          // set background [background-name]
-          // set opacity [0-100]
-          // set size [id] [size] [relative|absolute]
+        /* Keep a checkpoint every so often, and at each button list. */
+        if (++sinceCheckpoint > CHECKPOINT_COMMANDS || op == Opcode.BUTTONS
+        || (!checkpoints.isEmpty() && scripted
+        - checkpoints.get(checkpoints.size() - 1).time >= CHECKPOINT_TIME)) {
+          checkpoint(scene, lineNumber);
+        }
         
-        /* Display a text box on the bottom of the screen. */
-        else if (command.equals("print")) {
-          handlePrint(tokens);
-        } // print [text]
+        /* Save the game here if it's been asked for. */
+        if (!saveRequest.isDone()) save(scene, lineNumber);
         
-        /* Clear the text box on the bottom of the screen. */
-        else if (command.equals("clear-text")) {
-          scene.addText("");
+        /* Skip ahead if the player asked to, up to the next choice. */
+        if (skipping) {
+          if ((op == Opcode.BUTTONS || op == Opcode.RETURN)
+          && !unattended) stopSkipping();
+          else skipped++;
+        } else if (skipRequest.isDone()) {
+          if (op == Opcode.BUTTONS || op == Opcode.RETURN) {
+            skipRequest = new CompletableFuture<Void>();
+          } else {
+            startSkipping();
+            skipped++;
+          }
         }
         
-        /* Wait a certain number of milliseconds. */
-        else if (command.equals("wait")) {
-          handleWait(tokens);
-        } // wait [milliseconds]
+        /* Remember where the command is, since it may move the reader. */
+        currentLine = lineNumber;
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        if (pressed != 0) {
+          buttonLatencies.record(start - pressed);
+          pressed = 0;
+        }
         
-        /* Move within the file to the marked id location. */
-        else if (command.equals("goto")) {
-          mainReader = handleGoto(tokens);
-        } // goto [id]
+        switch (op)
+        {
+          /* Add a character into the scene. */
+          case ADD:
+            handleAdd(tokens);
+            break;
+          // add [global|local] [name] [id] [[x]] [[y]] [[size]] [[type]]
+          
+          /* Remove a character from the scene. */
+          case REMOVE:
+            handleRemove(tokens);
+            break;
+          // remove [all|id]
+          
+          /* Move a character to another position. */
+          case MOVE:
+            started(handleMove(tokens));
+            break;
+          // move [id] [x] [y] [speed]
+          
+          /* Move a character through waypoints or along curves. */
+          case PATH:
+          case CURVE:
+            started(handlePath(tokens, op == Opcode.CURVE));
+            break;
+          // path [id] [speed] [x1] [y1] [x2] [y2] ...
+          // curve [id] [speed] [cx1] [cy1] [x1] [y1] ...
+          
+          /* Tween a character's size, position or opacity. */
+          case SCALE:
+            started(handleScale(tokens));
+            break;
+          // scale [id] [size] [time] [[absolute|relative]] [[easing]]
+          
+          case GLIDE:
+            started(handleGlide(tokens));
+            break;
+          // glide [id] [x] [y] [time] [[easing]]
+          
+          case FADE:
+            started(handleFade(tokens));
+            break;
+          // fade [id] [opacity] [time] [[easing]]
+          
+          /* Set a character's appearance, background, opacity or size. */
+          case SET:
+          case SET_CHARACTER:
+          case SET_BACKGROUND:
+          case SET_OPACITY:
+          case SET_SIZE:
+            handleSet(tokens);
+            break;
+          // set character [id] [appearance]
+          // set background [background-name]
+          // set opacity [0-100]
+          // set size [id] [size] [relative|absolute]
+          
+          /* Display a text box on the bottom of the screen. */
+          case PRINT:
+            handlePrint(tokens);
+            break;
+          // print [text]
+          
+          /* Clear the text box on the bottom of the screen. */
+          case CLEAR_TEXT:
+            scene.addText("");
+            break;
+          
+          /* Wait a certain number of milliseconds. */
+          case WAIT:
+            handleWait(tokens);
+            break;
+          // wait [milliseconds]
+          
+          /* Move within the file to the marked id location. */
+          case GOTO:
+            mainReader = handleGoto(tokens);
+            break;
+          // goto [id]
           // goto [id] if counter [relational-operator] [comparison]
+          
+          /* Display and handle buttons. */
+          case BUTTONS: {
+            int choice = handleButtons(scene, mainReader);
+            if (stopRequest || Thread.currentThread().isInterrupted())
+              continue;
+            mainReader = findID(choice);
+            pressed = scene.getResultTime();
+            break;
+          }
+          // * \n [button-text] [id] \n [button-text] [id] \n ...
+          
+          /* Return and specify the next scene to animate. */
+          case RETURN:
+            nextScene = handleReturn(tokens);
+            recordCommand(lineStats, lineNumber, op, start, event);
+            return nextScene;
+          // return [scene]
+          
+          /* Transition in or out of the scene. */
+          case TRANSITION:
+            started(handleTransition(tokens));
+            break;
+          // transition [in|out] [ms]
+          
+          /* Start a block of animations that run together. */
+          case PARALLEL:
+            if (block != null) {
+              Log.warn("Parallel failed: Already in a parallel block.");
+            } else {
+              block = new ArrayList<CompletableFuture<Void>>();
+            }
+            break;
+          // parallel
+          
+          /* Wait for every animation in the block to finish. */
+          case JOIN:
+            if (block == null) {
+              Log.warn("Join failed: Not in a parallel block.");
+            } else {
+              awaitAnimations(CompletableFuture.allOf
+              (block.toArray(new CompletableFuture<?>[0])));
+              block = null;
+            }
+            break;
+          // join
+          
+          /* Wait for a character's move, the transition, or everything. */
+          case AWAIT:
+            handleAwait(tokens);
+            break;
+          // await [[char-id|transition]]
+          
+          /* Increments the counter used in simple loops. */
+          case INCREMENT:
+            counter++;
+            break;
+          // increment counter
+          
+          /* Decrements the counter used in simple loops. */
+          case DECREMENT:
+            counter--;
+            break;
+          // decrement counter
+          
+          /* Resets the counter to its ground state of 0. */
+          case RESET:
+            counter = 0;
+            break;
+          // reset counter
+          
+          default:
+            break;
+        }
         
-        /* Display and handle buttons. */
-        else if (command.equals("*")) {
-          mainReader = findID(handleButtons(scene, mainReader));
-        } // * \n [button-text] [id] \n [button-text] [id] \n ...
-        
-        /* Return and specify the next scene to animate. */
-        else if (command.equals("return")) {
-          return handleReturn(tokens);
-        } // return [scene]
-        
-        /* Transition in or out of the scene. */
-        else if (command.equals("transition")) {
-          handleTransition(tokens);
-        } // transition [in|out] [ms]
-        
-        /* Increments the counter used in simple loops. */
-        else if (command.equals("increment")) {
-          counter++;
-        } // increment counter
-        
-        /* Decrements the counter used in simple loops. */
-        else if (command.equals("decrement")) {
-          counter--;
-        } // decrement counter
-        
-        /* Resets the counter to its ground state of 0. */
-        else if (command.equals("reset")) {
-          counter = 0;
-        } // reset counter
+        /* Record how long the command took. */
+        recordCommand(lineStats, lineNumber, op, start, event);
       }
     } catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error: Could not animate " + scene.getSceneID() + ".");
+      Log.error("Error: Could not animate {}.", scene.getSceneID());
+    } finally {
+      /* Stop anything the scene left running. */
+      if (skipping) stopSkipping();
+      
+      /* Wait for the animations to stop even if being shut down. */
+      boolean interrupted = Thread.interrupted();
+      scene.cancelAnimations();
+      if (interrupted) Thread.currentThread().interrupt();
+      
+      /* Note how far the scene fell behind its script. */
+      long drift = Math.max(0, clock.now() - timeline);
+      sceneDrifts.record(drift);
+      
+      /* Show where the time in this scene went; the slowest lines are
+       * only listed when debugging, and otherwise with F9. */
+      if (Log.isEnabled(Log.INFO))
+        Log.info("Scene {}: {} s of waits, ended {} ms behind the script",
+        scene.getSceneID(), scripted / 1e9, drift / 1e6);
+      if (Log.isEnabled(Log.DEBUG)) {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        stats.dumpScene(scene.getSceneID(), new PrintStream(table, true));
+        Log.debug("{}", table.toString().trim());
+      }
     }
     
     /* If an error occurs or no return is specified, return -1 by default. */
     return -1;
   }
   
+  /** Asks the reader to skip ahead through the current scene, up to the
+   *  next button list or return. Waits and awaits in progress end at
+   *  once. Asking while buttons are being shown does nothing, since the
+   *  reader is already at a choice. */
+  public void skip()
+  {
+    skipRequest.complete(null);
+  }
+  
+  /** Asks the reader to stop the current scene, as though it had ended
+   *  without a return: animate() returns -1 before the next command is
+   *  run. Waits and awaits in progress end at once, and buttons being
+   *  shown are dropped.
+   *  @param scene    The scene to stop; nothing is done if another scene
+   *                  is being animated. */
+  public void stop(Scene scene)
+  {
+    if (scene == null || currentScene != scene) return;
+    stopRequest = true;
+    skipRequest.complete(null);
+    if (waiting) scene.setResult(-1);
+  }
+  
+  /** Returns whether the reader is skipping ahead.
+   *  @return true if the reader is skipping. */
+  public boolean isSkipping()
+  {
+    return skipping;
+  }
+  
+  /** Sets the reader to run unattended or not. An unattended reader
+   *  doesn't wait for anything: it skips through every scene, and when it
+   *  comes to a button list, it picks one of the buttons at random
+   *  instead of showing them.
+   *  @param choices  Picks the buttons; null to have a player choose. */
+  public void setUnattended(Random choices)
+  {
+    chooser = choices;
+    unattended = (choices != null);
+  }
+  
+  /** Sets the reader to pick buttons itself or not. Unlike an unattended
+   *  reader, it still plays every scene in full, waits and all, as when
+   *  a scene is recorded.
+   *  @param choices  Picks the buttons; null to have a player choose. */
+  public void setChooser(Random choices)
+  {
+    chooser = choices;
+    unattended = false;
+  }
+  
+  /** Sets the clock the reader's waits are timed by. The scenes it
+   *  animates should be given the same clock, with
+   *  Scene.setClock(Clock).
+   *  @param clock  The clock; Clock.REAL_TIME by default. */
+  public void setClock(Clock clock)
+  {
+    this.clock = clock;
+  }
+  
+  /** Returns whether the reader is waiting for the player to press one
+   *  of the buttons shown.
+   *  @return true if the reader is waiting on a button list. */
+  public boolean isWaitingForButtons()
+  {
+    return waiting;
+  }
+  
+  /** Returns the scene being animated.
+   *  @return The current scene, or null if no scene is animating. */
+  public Scene getCurrentScene()
+  {
+    return currentScene;
+  }
+  
+  /** Asks the reader to jump to a time in the current scene's script.
+   *  Script time is the time the scene's waits add up to, not counting
+   *  time spent waiting for buttons. The reader restores the last
+   *  checkpoint before that time, if it's behind or far ahead of the
+   *  current time, then skips ahead to it. A seek stops early at a
+   *  button list or return, since the player has to choose there.
+   *  @param millis   The script time to jump to, in milliseconds. */
+  public void seek(long millis)
+  {
+    seekRequest = Math.max(0, millis) * 1000000L;
+    skipRequest.complete(null);
+  }
+  
+  /** Returns how far into the current scene's script the reader is. In
+   *  the middle of a wait, this is how far into the wait it is, rather
+   *  than where the wait ends.
+   *  @return The script time in milliseconds. */
+  public long getScriptTime()
+  {
+    long time = scripted;
+    long end = waitEnd;
+    if (end >= 0) time -= Math.max(0, end - clock.now());
+    return time / 1000000L;
+  }
+  
+  /** Handles a seek that has been asked for, just before a command is
+   *  run. If the time asked for is behind the reader, or ahead of a
+   *  later checkpoint, the scene is restored to the last checkpoint
+   *  before that time. Either way, the reader then skips ahead until
+   *  the script reaches the time.
+   *  @param scene    The scene being animated.
+   *  @param line     The line of the command about to be run.
+   *  @return true if the reader was moved to a checkpoint, in which case
+   *          the command shouldn't be run.
+   *  @throws IOException if the file can't be read again. */
+  private boolean seek(Scene scene, int line) throws IOException
+  {
+    long target = seekRequest;
+    seekRequest = -1;
+    if (!skipping) startSkipping();
+    seekTarget = target;
+    
+    /* Find the last checkpoint before the time asked for. */
+    int found = -1;
+    for (int i = 0; i < checkpoints.size(); i++)
+    {
+      if (checkpoints.get(i).time <= target) found = i;
+    }
+    if (found < 0) return false;
+    Checkpoint cp = checkpoints.get(found);
+    
+    /* Carry on from here if it's no further back than the checkpoint. */
+    if (scripted <= target && scripted >= cp.time) return false;
+    
+    /* Otherwise, go back (or forward) to the checkpoint. */
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Seeking to {}s from the checkpoint at {}s (line {})",
+      target / 1e9, cp.time / 1e9, cp.snapshot.getLine());
+    scene.restore(cp.snapshot);
+    mainReader.close();
+    mainReader = openAt(cp.snapshot.getLine());
+    counter = cp.snapshot.getCounter();
+    scripted = cp.time;
+    block = null;
+    lastCheckpoint = cp.snapshot;
+    
+    /* Later checkpoints will be kept again as the script runs. */
+    checkpoints.subList(found + 1, checkpoints.size()).clear();
+    sinceCheckpoint = 0;
+    return true;
+  }
+  
+  /** Keeps a checkpoint of the scene just before a command is run. No
+   *  checkpoint is kept while animations are running or in a parallel
+   *  block, since those can't be restored.
+   *  @param scene    The scene being animated.
+   *  @param line     The line of the command about to be run. */
+  private void checkpoint(Scene scene, int line)
+  {
+    if (block != null || scene.getActiveAnimations() > 0) return;
+    if (unattended) return;
+    Snapshot snapshot = scene.snapshot(line, counter);
+    checkpoints.add(new Checkpoint(scripted, snapshot));
+    lastCheckpoint = snapshot;
+    sinceCheckpoint = 0;
+  }
+  
+  /** Takes the snapshot asked for by requestSnapshot(), just before a
+   *  command is run. The save is put off to a later command while
+   *  animations are running or in a parallel block, since the scene is
+   *  still being changed then.
+   *  @param scene    The scene being animated.
+   *  @param line     The line of the command about to be run. */
+  private void save(Scene scene, int line)
+  {
+    if (block != null || scene.getActiveAnimations() > 0) return;
+    saveRequest.complete(scene.snapshot(line, counter));
+  }
+  
+  /** Opens the current animation file, with the lines before the given
+   *  line read past.
+   *  @param line     The line to read next; 0 or 1 for the start.
+   *  @return A reader positioned before the line.
+   *  @throws IOException if the file can't be read. */
+  private LineNumberReader openAt(int line) throws IOException
+  {
+    LineNumberReader reader
+    = new LineNumberReader(new StringReader(currentScript));
+    while (reader.getLineNumber() < line - 1
+    && reader.readLine() != null) {}
+    return reader;
+  }
+  
+  /** Starts skipping ahead. Animations that are still running jump to
+   *  their final states, and later ones are finished at once. */
+  private void startSkipping()
+  {
+    skipping = true;
+    skipped = 0;
+    skipStart = System.nanoTime();
+    currentScene.setSkipping(true);
+    currentScene.cancelAnimations();
+  }
+  
+  /** Stops skipping ahead, and shows the scene as it ends up. The script
+   *  carries on from now, as though it had just started. */
+  private void stopSkipping()
+  {
+    skipping = false;
+    seekTarget = -1;
+    skipRequest = new CompletableFuture<Void>();
+    currentScene.setSkipping(false);
+    timeline = clock.now();
+    if (Log.isEnabled(Log.INFO))
+      Log.info("Skipped {} commands in {} ms", skipped,
+      (System.nanoTime() - skipStart) / 1e6);
+  }
+  
+  /** Records a command that has just finished in the command statistics,
+   *  and emits its flight recorder event if events are being recorded.
+   *  @param lineStats  The line statistics of the current scene.
+   *  @param line       The line number of the command.
+   *  @param op         The opcode of the command.
+   *  @param start      When the command started, from System.nanoTime().
+   *  @param event      The command's flight recorder event. */
+  private void recordCommand(CommandStats.Lines lineStats, int line,
+  Opcode op, long start, CommandEvent event)
+  {
+    stats.record(lineStats, line, op, System.nanoTime() - start);
+    
+    if (event.shouldCommit()) {
+      event.sceneID = currentScene.getSceneID();
+      event.line = line;
+      event.opcode = op.getKeyword();
+      event.commit();
+    }
+  }
+  
+  /** Returns the statistics of every command run by this reader.
+   *  @return The command statistics. */
+  public CommandStats getStats()
+  {
+    return stats;
+  }
+  
+  /** Returns how long each scene took to open and set up before its
+   *  first command was run.
+   *  @return The histogram of scene load times in nanoseconds. */
+  public LatencyHistogram getSceneLoads()
+  {
+    return sceneLoads;
+  }
+  
+  /** Returns how long each button list waited for the player to choose.
+   *  @return The histogram of button waits in nanoseconds. */
+  public LatencyHistogram getButtonWaits()
+  {
+    return buttonWaits;
+  }
+  
+  /** Returns how far past its deadline each wait ended. A wait whose
+   *  deadline had already passed when it started counts how late it was.
+   *  @return The histogram of wait lateness in nanoseconds. */
+  public LatencyHistogram getWaitLateness()
+  {
+    return waitLateness;
+  }
+  
+  /** Returns how far behind its script each scene ended, i.e. how much
+   *  longer than its waits the scene took, not counting button waits.
+   *  @return The histogram of scene drifts in nanoseconds. */
+  public LatencyHistogram getSceneDrifts()
+  {
+    return sceneDrifts;
+  }
+  
+  /** Returns how long after each button press the next command started,
+   *  which includes finding the button's id in the file.
+   *  @return The histogram of press-to-command latencies in nanoseconds. */
+  public LatencyHistogram getButtonLatencies()
+  {
+    return buttonLatencies;
+  }
+  
+  /** Describes where the reader currently is: the scene and file being
+   *  animated, the line of the current command, and the loop counter.
+   *  This may be called from any thread while a scene is animating.
+   *  @return A description of the reader's position. */
+  public String getPosition()
+  {
+    Scene scene = currentScene;
+    if (scene == null) return "Not animating";
+    return "Scene " + scene.getSceneID() + " (" + currentFile + "), line "
+    + currentLine + ", counter " + counter;
+  }
+  
+  /** Asks the reader for a snapshot of the game, which can be resumed
+   *  from the command it was taken at. The reader takes it before the
+   *  next command that is run with no animations running and outside
+   *  a parallel block. While the player is choosing a button, the last
+   *  checkpoint is given at once instead. Should be called from one
+   *  thread only, such as the event dispatch thread.
+   *  @return Completed with the snapshot, or with null if no scene is
+   *          animating. */
+  public CompletableFuture<Snapshot> requestSnapshot()
+  {
+    CompletableFuture<Snapshot> request = saveRequest;
+    if (currentScene == null) {
+      if (request.isDone()) return CompletableFuture.completedFuture(null);
+      return request;
+    }
+    if (request.isDone()) {
+      request = new CompletableFuture<Snapshot>();
+      saveRequest = request;
+    }
+    
+    /* The reader won't reach another command until a button is pressed. */
+    Snapshot last = lastCheckpoint;
+    if (waiting && last != null) request.complete(last);
+    return request;
+  }
+  
   /** Function to check whether a given file located at the specified file
    *  path is an animation file. An animation file is denoted with the term
    *  ANIMATION appearing on the first line of the file with a number to
@@ -192,10 +851,7 @@ public class AnimationReader
   {
     try {
       /* Load the file. */
-      BufferedReader reader
-      = new BufferedReader
-      ( new FileReader
-      ( file ) );
+      BufferedReader reader = ScriptCache.open(file);
       
       /* Read the top line from the file. */
       String line = reader.readLine();
@@ -214,8 +870,7 @@ public class AnimationReader
       }
     } catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error while reading " + file + " in isAnimationFile()");
+      Log.error("Error while reading {} in isAnimationFile()", file);
     }
     
     /* If any test fails, return false. */
@@ -232,10 +887,7 @@ public class AnimationReader
   {
     try {
       /* Load the file. */
-      BufferedReader reader
-      = new BufferedReader
-      ( new FileReader
-      ( file ) );
+      BufferedReader reader = ScriptCache.open(file);
       
       /* Read the top line from the file. */
       String line = reader.readLine();
@@ -249,13 +901,11 @@ public class AnimationReader
     
     catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error while reading " + file + " in extractSceneID()");
+      Log.error("Error while reading {} in extractSceneID()", file);
     }
     
     catch (NumberFormatException e) {
-      System.out.println
-      ("Error: Animation file not validated before calling extract.");
+      Log.error("Error: Animation file not validated before calling extract.");
     }
     
     return Integer.MIN_VALUE;
@@ -273,10 +923,7 @@ public class AnimationReader
   {
     try {
       /* Load the file. */
-      BufferedReader reader
-      = new BufferedReader
-      ( new FileReader
-      ( file ) );
+      BufferedReader reader = ScriptCache.open(file);
       
       /* Read the top line from the file. */
       String line = reader.readLine();
@@ -290,8 +937,7 @@ public class AnimationReader
     
     catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error while reading " + file + " in extractSceneBG()");
+      Log.error("Error while reading {} in extractSceneBG()", file);
     }
     
     catch (IndexOutOfBoundsException e) {}
@@ -305,7 +951,7 @@ public class AnimationReader
    *  the function returns false.
    *  @param s      The String to check.
    *  @return whether or not the string is an integer. */
-  private boolean isInteger(String s)
+  boolean isInteger(String s)
   {
     Scanner sc = new Scanner(s);
     if ( !sc.hasNextInt() ) return false;
@@ -376,12 +1022,12 @@ public class AnimationReader
     
     /* Not enough arguments. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Add failed: Invalid argument count.");
+      Log.warn("Add failed: Invalid argument count.");
     }
     
     /* Illegal argument found. */
     catch (IllegalArgumentException e) {
-      System.out.println("Add failed: Illegal argument found.");
+      Log.warn("Add failed: Illegal argument found.");
     }
   }
   
@@ -410,7 +1056,7 @@ public class AnimationReader
     
     /* Invalid argument count. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Remove failed: Invalid argument count.");
+      Log.warn("Remove failed: Invalid argument count.");
     }
   }
   
@@ -420,8 +1066,9 @@ public class AnimationReader
    *  the character's unique ID, x is the new horizontal
    *  coordinate, y is the new vertical coordinate, and speed is the
    *  speed of movement in pixels per second.
-   *  @param tokens   The line with the move command and arguments. */
-  private void handleMove(String[] tokens)
+   *  @param tokens   The line with the move command and arguments.
+   *  @return A handle on the move, or null if it failed. */
+  private CompletableFuture<Void> handleMove(String[] tokens)
   {
     try {
       /* The character-to-move's identification number. */
@@ -440,18 +1087,206 @@ public class AnimationReader
       }
       
       /* Move the character within the scene with the given ID. */
-      currentScene.moveCharacter(id, x, y, speed);
+      return currentScene.moveCharacter(id, x, y, speed);
+    }
+    
+    /* Invalid argument count. */
+    catch (IndexOutOfBoundsException e) {
+      Log.warn("Move failed: Invalid argument count.");
+    }
+    
+    /* An argument is not an integer. */
+    catch (NumberFormatException e) {
+      Log.warn("Move failed: Invalid argument format.");
+    }
+    
+    return null;
+  }
+  
+  /** Handles the path and curve commands, which move a character in the
+   *  scene along a path. The proper syntaxes are:
+   *  path [id] [speed] [x1] [y1] [x2] [y2] ..., where each x and y are the
+   *  coordinates of a waypoint to move through in turn, and
+   *  curve [id] [speed] [cx1] [cy1] [x1] [y1] ..., where each curve bends
+   *  towards the control point (cx, cy) and ends at (x, y). The list of
+   *  points ends at the first token that isn't an integer. Id is the
+   *  character's unique ID, and speed is the speed of movement in pixels
+   *  per second.
+   *  @param tokens   The line with the command and arguments.
+   *  @param curved   Whether the command is a curve command.
+   *  @return A handle on the move, or null if it failed. */
+  private CompletableFuture<Void> handlePath(String[] tokens, boolean curved)
+  {
+    String command = curved ? "Curve" : "Path";
+    try {
+      /* The character-to-move's identification number. */
+      String id = tokens[1].toLowerCase();
+      
+      /* The speed at which to move. */
+      int speed = Integer.parseInt(tokens[2]);
+      
+      /* Collect the coordinates up to the first non-integer token. */
+      int count = 0;
+      while (3 + count < tokens.length && isInteger(tokens[3 + count]))
+      {
+        count++;
+      }
+      count -= count % 2;
+      if (count == 0) throw new IndexOutOfBoundsException();
+      
+      int[] points = new int[count];
+      for (int i = 0; i < count; i++)
+      {
+        points[i] = Integer.parseInt(tokens[3 + i]);
+      }
+      
+      /* Move the character within the scene with the given ID. */
+      return currentScene.moveCharacterAlong(id, points, curved, speed);
     }
     
     /* Invalid argument count. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Move failed: Invalid argument count.");
+      Log.warn("{} failed: Invalid argument count.", command);
     }
     
     /* An argument is not an integer. */
     catch (NumberFormatException e) {
-      System.out.println("Move failed: Invalid argument format.");
+      Log.warn("{} failed: Invalid argument format.", command);
+    }
+    
+    return null;
+  }
+  
+  /** Handles the scale command, which smoothly grows or shrinks a
+   *  character over some time. The proper syntax is:
+   *  scale [id] [size] [time] [[absolute|relative]] [[easing]], where id
+   *  is the character's unique ID, size is its final size, time is the
+   *  duration of the change, and easing is the name of an easing curve.
+   *  @param tokens   The line with the scale command and arguments.
+   *  @return A handle on the tween, or null if it failed. */
+  private CompletableFuture<Void> handleScale(String[] tokens)
+  {
+    try {
+      /* The ID of the character. */
+      String id = tokens[1].toLowerCase();
+      
+      /* The size to scale to, and how long it takes. */
+      double size = evaluatePercent(tokens[2]) / 100.0;
+      int duration = evaluateTime(tokens[3]);
+      
+      /* Whether the size value is relative or absolute. */
+      String type = "absolute";
+      if (tokens.length > 4
+      && tokens[4].toLowerCase().equals("relative")) {
+        type = "relative";
+      }
+      
+      /* Scale the character. */
+      return currentScene.scaleCharacter
+      (id, size, type, duration, evaluateEasing(tokens, 5));
+    }
+    
+    /* Invalid argument count. */
+    catch (IndexOutOfBoundsException e) {
+      Log.warn("Scale failed: Invalid argument count.");
+    }
+    
+    /* An argument is invalid. */
+    catch (IllegalArgumentException e) {
+      Log.warn("Scale failed: Invalid argument.");
+    }
+    
+    return null;
+  }
+  
+  /** Handles the glide command, which slides a character to another
+   *  location in a set time. The proper syntax is:
+   *  glide [id] [x] [y] [time] [[easing]], where id is the character's
+   *  unique ID, x and y are the new coordinates, time is the duration of
+   *  the slide, and easing is the name of an easing curve.
+   *  @param tokens   The line with the glide command and arguments.
+   *  @return A handle on the tween, or null if it failed. */
+  private CompletableFuture<Void> handleGlide(String[] tokens)
+  {
+    try {
+      /* The ID of the character. */
+      String id = tokens[1].toLowerCase();
+      
+      /* The location to slide to, and how long it takes. */
+      int x = Integer.parseInt(tokens[2]);
+      int y = Integer.parseInt(tokens[3]);
+      int duration = evaluateTime(tokens[4]);
+      
+      /* Slide the character. */
+      return currentScene.glideCharacter
+      (id, x, y, duration, evaluateEasing(tokens, 5));
+    }
+    
+    /* Invalid argument count. */
+    catch (IndexOutOfBoundsException e) {
+      Log.warn("Glide failed: Invalid argument count.");
+    }
+    
+    /* An argument is invalid; this includes non-integer coordinates. */
+    catch (IllegalArgumentException e) {
+      Log.warn("Glide failed: Invalid argument.");
     }
+    
+    return null;
+  }
+  
+  /** Handles the fade command, which smoothly changes the opacity of a
+   *  character over some time. The proper syntax is:
+   *  fade [id] [opacity] [time] [[easing]], where id is the character's
+   *  unique ID, opacity is the final opacity, time is the duration of the
+   *  fade, and easing is the name of an easing curve.
+   *  @param tokens   The line with the fade command and arguments.
+   *  @return A handle on the tween, or null if it failed. */
+  private CompletableFuture<Void> handleFade(String[] tokens)
+  {
+    try {
+      /* The ID of the character. */
+      String id = tokens[1].toLowerCase();
+      
+      /* The opacity to fade to, from 0 to 1. */
+      double opacity;
+      String opacityStr = tokens[2].toLowerCase();
+      if (opacityStr.equals("none")) opacity = 0.0;
+      else if (opacityStr.equals("full")) opacity = 1.0;
+      else opacity = Math.min(1.0, evaluatePercent(tokens[2]) / 100.0);
+      
+      /* How long the fade takes. */
+      int duration = evaluateTime(tokens[3]);
+      
+      /* Fade the character. */
+      return currentScene.fadeCharacter
+      (id, opacity, duration, evaluateEasing(tokens, 4));
+    }
+    
+    /* Invalid argument count. */
+    catch (IndexOutOfBoundsException e) {
+      Log.warn("Fade failed: Invalid argument count.");
+    }
+    
+    /* An argument is invalid. */
+    catch (IllegalArgumentException e) {
+      Log.warn("Fade failed: Invalid argument.");
+    }
+    
+    return null;
+  }
+  
+  /** Finds the easing curve named by an optional argument. A missing or
+   *  unknown name gives a linear curve, so that comments after the
+   *  required arguments are not mistaken for errors.
+   *  @param tokens   The line with the command and arguments.
+   *  @param index    Where the easing curve's name would be in the line.
+   *  @return The easing curve to use. */
+  private Easing evaluateEasing(String[] tokens, int index)
+  {
+    if (tokens.length <= index) return Easing.LINEAR;
+    Easing easing = Easing.of(tokens[index]);
+    return (easing == null) ? Easing.LINEAR : easing;
   }
   
   /** Handles the set command, which sets the appearance of a character,
@@ -535,23 +1370,23 @@ public class AnimationReader
       
       /* An invalid second argument. */
       else {
-        System.out.println("Set failed: Second token was invalid.");
+        Log.warn("Set failed: Second token was invalid.");
       }
     }
     
     /* Invalid argument count. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Set failed: Invalid argument count.");
+      Log.warn("Set failed: Invalid argument count.");
     }
     
     /* An argument is not an integer. */
     catch (NumberFormatException e) {
-      System.out.println("Set failed: Invalid argument format.");
+      Log.warn("Set failed: Invalid argument format.");
     }
     
     /* An argument is invalid. */
     catch (IllegalArgumentException e) {
-      System.out.println("Set failed: Invalid argument.");
+      Log.warn("Set failed: Invalid argument.");
     }
   }
   
@@ -561,7 +1396,7 @@ public class AnimationReader
    *  @param token    The percentage/decimal value to interpret.
    *  @return The equivalent value in percentage.
    *  @throws IllegalArgumentException if the format is invalid. */
-  private double evaluatePercent (String token)
+  double evaluatePercent (String token)
   throws IllegalArgumentException
   {
     Matcher m
@@ -651,12 +1486,12 @@ public class AnimationReader
     
     /* Invalid argument count. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Return failed: Invalid argument count.");
+      Log.warn("Return failed: Invalid argument count.");
     }
     
     /* An argument is not an integer. */
     catch (NumberFormatException e) {
-      System.out.println("Return failed: Invalid argument format.");
+      Log.warn("Return failed: Invalid argument format.");
     }
     
     /* If an error occurs, return -1 by default. */
@@ -668,8 +1503,9 @@ public class AnimationReader
    *  transition [in|out] [time], where the keyword "in" invokes an inward
    *  transition while the keyword "out" invokes an outward transition,
    *  and time is the duration of the event.
-   *  @param tokens   The line with the transition command and arguments. */
-  private void handleTransition(String[] tokens)
+   *  @param tokens   The line with the transition command and arguments.
+   *  @return A handle on the transition, or null if it failed. */
+  private CompletableFuture<Void> handleTransition(String[] tokens)
   {
     try {
       int duration = evaluateTime(tokens[2]); // duration of transition
@@ -677,23 +1513,25 @@ public class AnimationReader
       
       /* Two types of transitions: in or out. */
       if (type.equals("in")) {
-        currentScene.transitionIn(duration);
+        return currentScene.transitionIn(duration);
       } else if (type.equals("out")) {
-        currentScene.transitionOut(duration);
+        return currentScene.transitionOut(duration);
       } else {
-        System.out.println("Transition failed: Invalid transition type.");
+        Log.warn("Transition failed: Invalid transition type.");
       }
     }
     
     /* Invalid argument count. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Transition failed: Invalid argument count.");
+      Log.warn("Transition failed: Invalid argument count.");
     }
     
     /* An argument is not an integer. */
     catch (IllegalArgumentException e) {
-      System.out.println("Transition failed: Invalid argument.");
+      Log.warn("Transition failed: Invalid argument.");
     }
+    
+    return null;
   }
   
   /** Determines whether a number is specified in seconds or milliseconds,
@@ -704,7 +1542,7 @@ public class AnimationReader
    *  @param token    The time-value token to check.
    *  @return the equivalent value of token in milliseconds.
    *  @throws IllegalArgumentException if the format of time is invalid. */
-  private int evaluateTime (String token)
+  int evaluateTime (String token)
   throws IllegalArgumentException
   {
     Matcher m
@@ -784,6 +1622,10 @@ public class AnimationReader
     /* The resultant ID of the button that is selected; default is min. */
     int result = Integer.MIN_VALUE;
     
+    /* The number of buttons in the list, and where each one leads. */
+    int buttons = 0;
+    ArrayList<Integer> links = new ArrayList<Integer>();
+    
     try {
       while (!endOfList && (line = reader.readLine()) != null)
       {
@@ -806,16 +1648,49 @@ public class AnimationReader
           /* The location to jump to when the button is pressed. */
           int id = Integer.parseInt(tokens[1]);
           
-          /* Allow the scene to create a button on the screen. */
-          scene.addButton(title, id);
+          /* Allow the scene to create a button on the screen, unless
+           * no one is there to see it. */
+          if (chooser == null) scene.addButton(title, id);
+          links.add(id);
+          buttons++;
         }
       }
       
+      /* Without a player, pick a button at once. */
+      Random choices = chooser;
+      if (choices != null) {
+        if (links.isEmpty()) return result;
+        return links.get(choices.nextInt(links.size()));
+      }
+      
       /* Wait for the scene to indicate it's ready for more animations. */
+      ButtonWaitEvent event = new ButtonWaitEvent();
+      event.begin();
+      long waitStart = System.nanoTime();
+      waiting = true;
       try {
-        while ( (result = scene.getResult() ) == 0) Thread.sleep(100);
+        result = scene.waitForResult();
       } catch (InterruptedException e) {
-        System.out.println("Error while waiting for button press.");
+        Thread.currentThread().interrupt();
+        Log.error("Error while waiting for button press.");
+      } finally {
+        waiting = false;
+      }
+      long waited = System.nanoTime() - waitStart;
+      buttonWaits.record(waited);
+      
+      /* The player's time doesn't count towards the script. */
+      timeline += waited;
+      
+      /* A skip or seek asked for while the buttons were shown is
+       * dropped. */
+      skipRequest = new CompletableFuture<Void>();
+      seekRequest = -1;
+      if (event.shouldCommit()) {
+        event.sceneID = scene.getSceneID();
+        event.buttons = buttons;
+        event.result = result;
+        event.commit();
       }
       
       /* Destroy all buttons on the screen. */
@@ -824,8 +1699,7 @@ public class AnimationReader
     
     catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error while trying to read a line: handleButtons()");
+      Log.error("Error while trying to read a line: handleButtons()");
     }
     
     /* Return the result. */
@@ -834,50 +1708,126 @@ public class AnimationReader
   
   /** Halts the program from executing for a given amount of time.
    *  The proper syntax for the wait command is: wait [time],
-   *  where time is the pause duration.
+   *  where time is the pause duration. The wait ends at a deadline that
+   *  is the given time after the end of the previous wait, so any time
+   *  spent on the commands in between is taken off the wait. If the
+   *  deadline has already passed, the wait doesn't sleep at all. The
+   *  wait also ends early if the player asks to skip, and doesn't sleep
+   *  while skipping.
    *  @param tokens   The line with the wait command and args. */
   private void handleWait (String[] tokens)
   {
-    /* Stop the execution of the program for a given time. */
+    /* Stop the execution of the program until the deadline. */
     try {
-      long start = System.currentTimeMillis();
-      Thread.sleep(evaluateTime(tokens[1]));
-      long end = System.currentTimeMillis();
-      double elapsed = (end - start) / 1000.0;
-      System.out.printf("Wait time elapsed: %.2fs\n", elapsed);
+      long duration = evaluateTime(tokens[1]) * 1000000L;
+      if (duration < 0) throw new IllegalArgumentException();
+      
+      long start = clock.now();
+      timeline += duration;
+      scripted += duration;
+      if (skipping) {
+        if (seekTarget < 0 || scripted <= seekTarget) return;
+        
+        /* The time sought falls in this wait: wait out the rest. */
+        long rest = scripted - seekTarget;
+        stopSkipping();
+        timeline += rest;
+      }
+      waitEnd = timeline;
+      try {
+        if (clock.sleepUntil(timeline, skipRequest)) return;
+      } finally {
+        waitEnd = -1;
+      }
+      
+      long end = clock.now();
+      waitLateness.record(end - timeline);
+      if (Log.isEnabled(Log.DEBUG)) {
+        Log.debug("Wait time elapsed: {}s ({} ms behind)",
+        (end - start) / 1e9, (end - timeline) / 1e6);
+      }
     }
     
     /* No second argument exists. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Wait failed: Invalid argument count.");
+      Log.warn("Wait failed: Invalid argument count.");
     }
     
-    /* The thread is interrupted. */
+    /* The thread is interrupted; the script carries on from now. */
     catch (InterruptedException e) {
-      System.out.println("Wait cancelled: Sleep interrupted.");
+      Thread.currentThread().interrupt();
+      timeline = clock.now();
+      Log.warn("Wait cancelled: Sleep interrupted.");
     }
     
     /* The argument is negative. */
     catch (IllegalArgumentException e) {
-      System.out.println("Wait failed: Argument is invalid.");
+      Log.warn("Wait failed: Argument is invalid.");
+    }
+  }
+  
+  /** Handles the await command, which halts the program until a
+   *  character's moves and tweens, the last transition, or every animation in
+   *  the scene has finished. The proper syntax is: await [[target]],
+   *  where target is a character's unique ID or the keyword
+   *  "transition"; without a target, every running animation is waited
+   *  for.
+   *  @param tokens   The line with the await command and args. */
+  private void handleAwait(String[] tokens)
+  {
+    if (tokens.length < 2) {
+      awaitAnimations(currentScene.getAnimations());
+    } else if (tokens[1].equalsIgnoreCase("transition")) {
+      awaitAnimations(currentScene.getTransition());
+    } else {
+      awaitAnimations(currentScene.getMove(tokens[1].toLowerCase()));
     }
   }
   
+  /** Adds an animation that has just started to the current parallel
+   *  block, if the reader is in one.
+   *  @param animation  A handle on the animation; null if none started. */
+  private void started(CompletableFuture<Void> animation)
+  {
+    if (block != null && animation != null) block.add(animation);
+  }
+  
+  /** Halts the program until the given animations have finished, or the
+   *  player asks to skip. The time spent waiting counts towards the
+   *  scene's script, as a wait would.
+   *  @param animations   A handle on the animations to wait for. */
+  private void awaitAnimations(CompletableFuture<Void> animations)
+  {
+    long start = clock.now();
+    try {
+      clock.await(CompletableFuture.anyOf(animations, skipRequest));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Log.warn("Await cancelled: Interrupted.");
+    } catch (ExecutionException e) {
+      Log.warn("Await failed: {}", e.getCause());
+    }
+    
+    long waited = clock.now() - start;
+    timeline += waited;
+    scripted += waited;
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Await time elapsed: {}s", waited / 1e9);
+  }
+  
   /** Searches the file for the given ID and returns the location if it
-   *  exists. If the ID was marked in the file, then a BufferedReader
+   *  exists. If the ID was marked in the file, then a LineNumberReader
    *  that's pointing to the line after the id declaration is returned.
    *  If the ID was not marked, then nothing is returned.
    *  @param id     The ID to search for in the file.
-   *  @return If id is found, a BufferedReader pointing to the next line
+   *  @return If id is found, a LineNumberReader pointing to the next line
    *          is returned. Otherwise, null is returned. */
-  private BufferedReader findID (int id)
+  private LineNumberReader findID (int id)
   {
     try {
       /* Move the position within the reader back to the top. */
-      BufferedReader reader
-      = new BufferedReader
-      ( new FileReader
-      ( currentFile ) );
+      LineNumberReader reader
+      = new LineNumberReader(new StringReader(currentScript));
       
       /* Stores the line of text extracted from the file. */
       String line = "";
@@ -911,8 +1861,7 @@ public class AnimationReader
     
     catch (IOException e) {
       /* Print an error message. */
-      System.out.println
-      ("Error while trying to read a line: findID()");
+      Log.error("Error while trying to read a line: findID()");
     }
     
     /* If the ID has not been found, the reader could not be initialized,
@@ -920,14 +1869,50 @@ public class AnimationReader
     return null;
   }
   
+  /** Returns whether a goto command's condition holds for the counter.
+   *  The conditions are "<", "<=", ">=" and ">", or the same written as
+   *  "is-less-than", "is-less-than-or-equal-to",
+   *  "is-greater-than-or-equal-to" and "is-greater-than".
+   *  @param counter      The value of the counter.
+   *  @param condition    The relational operator.
+   *  @param comparison   The value to compare the counter with.
+   *  @return Whether the condition holds; false if it's unknown. */
+  static boolean compare(int counter, String condition, int comparison)
+  {
+    /* The condition is "less-than". */
+    if (condition.equals("is-less-than") || condition.equals("<")) {
+      return counter < comparison;
+    }
+    
+    /* The condition is "less-than-or-equal-to". */
+    else if (condition.equals("is-less-than-or-equal-to")
+    || condition.equals("<=")) {
+      return counter <= comparison;
+    }
+    
+    /* The condition is "greater-than-or-equal-to". */
+    else if (condition.equals("is-greater-than-or-equal-to")
+    || condition.equals(">=")) {
+      return counter >= comparison;
+    }
+    
+    /* The condition is "greater-than". */
+    else if (condition.equals("is-greater-than")
+    || condition.equals(">")) {
+      return counter > comparison;
+    }
+    
+    return false;
+  }
+  
   /** Handles the goto command and returns the location of the specified id.
    *  The proper syntax is: goto [id], where id is a natural number
    *  specifying the location within the file the reader will jump to.
-   *  The location is returned as either a BufferedReader or null as
+   *  The location is returned as either a LineNumberReader or null as
    *  described in the method findID(int), and null if the syntax was invalid.
    *  @param tokens   The line containing the goto command and arguments.
-   *  @return See BufferedReader findID(int). An error returns null. */
-  private BufferedReader handleGoto (String[] tokens)
+   *  @return See LineNumberReader findID(int). An error returns null. */
+  private LineNumberReader handleGoto (String[] tokens)
   {
     try {
       /* The ID to search for within the animation file. */
@@ -937,33 +1922,9 @@ public class AnimationReader
       if (tokens.length > 2 && tokens[2].equals("if")) {
         String condition = tokens[4]; // the condition
         int comparison = Integer.parseInt(tokens[5]); // the comparison value
-        boolean flag = false; // whether the condition holds
-        
-        /* The condition is "less-than". */
-        if (condition.equals("is-less-than") || condition.equals("<")) {
-          flag = counter < comparison;
-        }
-        
-        /* The condition is "less-than-or-equal-to". */
-        else if (condition.equals("is-less-than-or-equal-to")
-        || condition.equals("<=")) {
-          flag = counter <= comparison;
-        }
-        
-        /* The condition is "greater-than-or-equal-to". */
-        else if (condition.equals("is-greater-than-or-equal-to")
-        || condition.equals(">=")) {
-          flag = counter >= comparison;
-        }
-        
-        /* The condition is "greater-than". */
-        else if (condition.equals("is-greater-than")
-        || condition.equals(">")) {
-          flag = counter > comparison;
-        }
         
         /* Find the location of the ID only if the condition holds. */
-        if (flag) return findID(id);
+        if (compare(counter, condition, comparison)) return findID(id);
         
         /* If the condition does not hold, return at the next line. */
         else return mainReader;
@@ -975,15 +1936,37 @@ public class AnimationReader
     
     /* No second argument exists. */
     catch (IndexOutOfBoundsException e) {
-      System.out.println("Goto failed: Invalid argument count.");
+      Log.warn("Goto failed: Invalid argument count.");
     }
     
     /* An integer argument is not an integer. */
     catch (NumberFormatException e) {
-      System.out.println("Goto failed: Invalid argument format.");
+      Log.warn("Goto failed: Invalid argument format.");
     }
     
     /* A failed instance returns null. */
     return null;
   }
-}
\ No newline at end of file
+  
+  
+  
+  /** A checkpoint of a scene, kept so that the reader can jump back to
+   *  it: the scene as it was, and how far into the script it was. */
+  private static class Checkpoint
+  {
+    /** The script time of the checkpoint, in nanoseconds. */
+    final long time;
+    
+    /** The scene as it was, with the line to carry on from. */
+    final Snapshot snapshot;
+    
+    /** Constructor for the Checkpoint class.
+     *  @param time       The script time of the checkpoint.
+     *  @param snapshot   The scene as it was. */
+    Checkpoint(long time, Snapshot snapshot)
+    {
+      this.time = time;
+      this.snapshot = snapshot;
+    }
+  }
+}
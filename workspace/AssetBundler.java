@@ -0,0 +1,373 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/** The AssetBundler class works out which images the game can actually
+ *  show, and packs only those, along with the scenes that can be reached,
+ *  into a bundle to ship. Starting with the scene marked with the
+ *  scene-id 0, every scene that can be returned to is followed, and what
+ *  each one refers to is found with SceneAssets: its backgrounds, the
+ *  characters it adds, the appearances they're shown in, and the sizes
+ *  they're shown at.
+ *
+ *  A background's image is needed if any reachable scene shows it, or if
+ *  the game shows it without a script naming it: the title background,
+ *  which is shown before any scene starts and stands in for any
+ *  background name that isn't known. A character's images are found by
+ *  counting up from its still image, so its files are kept from the
+ *  still image up to the last appearance any reachable scene shows it
+ *  in; a character that only stands still only needs its first file.
+ *  Every other image is left out of the bundle, and since a missing
+ *  image is never decoded, the bundle also starts up with less to decode
+ *  and scale.
+ *
+ *  The following are printed to the console: the scenes that can't be
+ *  reached and the scene-ids returned to that don't exist, each
+ *  background and the scenes that show it, each character with its
+ *  appearances and sizes, the images that aren't used, and how much
+ *  smaller the bundle is than the game as a whole.
+ *
+ *  The bundler is run from the workspace directory, the same as the
+ *  game: "java AssetBundler [[output] [[folder] [[images]]]]", where
+ *  output is the folder to write the bundle to (with nothing written if
+ *  it isn't given), folder is the folder the animation files are kept
+ *  in, and images is the base images directory. The bundle has the same
+ *  layout as the game: an animation_files and an images folder.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class AssetBundler
+{
+  /** The base images directory the game loads its images from. */
+  public static final String IMAGE_FOLDER = "..\\images";
+  
+  /** The backgrounds the game shows whatever its scenes name. */
+  private static final BackgroundType[] ENGINE_BACKGROUNDS
+  = { BackgroundType.TITLE };
+  
+  /** Reads the headers of the animation files. */
+  private final AnimationReader parser = new AnimationReader();
+  
+  /** The game's animation files by scene-id. */
+  private final TreeMap<Integer, String> scenes
+  = new TreeMap<Integer, String>();
+  
+  /** The files in the folder that aren't animation files. */
+  private final ArrayList<String> others = new ArrayList<String>();
+  
+  /** What each reachable scene refers to, by scene-id. */
+  private final TreeMap<Integer, SceneAssets> reachable
+  = new TreeMap<Integer, SceneAssets>();
+  
+  /** Each missing scene-id, with the scenes that return to it. */
+  private final TreeMap<Integer, Set<Integer>> missing
+  = new TreeMap<Integer, Set<Integer>>();
+  
+  /** Each background shown, with the scenes that show it. */
+  private final EnumMap<BackgroundType, Set<Integer>> backgrounds
+  = new EnumMap<BackgroundType, Set<Integer>>(BackgroundType.class);
+  
+  /** Each character shown, with the appearances it's shown in. */
+  private final EnumMap<FigureType, Set<Integer>> states
+  = new EnumMap<FigureType, Set<Integer>>(FigureType.class);
+  
+  /** Each character shown, with the sizes it's shown at. */
+  private final EnumMap<FigureType, Set<Double>> scales
+  = new EnumMap<FigureType, Set<Double>>(FigureType.class);
+  
+  /** Constructor for the AssetBundler class. Finds every animation file
+   *  in the given folder.
+   *  @param folderPath   The folder the animation files are kept in. */
+  public AssetBundler(String folderPath)
+  {
+    File[] files = new File(folderPath).listFiles();
+    if (files == null) {
+      Log.error("Could not list animation files in {}", folderPath);
+      return;
+    }
+    Arrays.sort(files);
+  
+    for (int i = 0; i < files.length; i++)
+    {
+      if (!files[i].isFile()) continue;
+      String fName = folderPath + File.separator + files[i].getName();
+      if (!parser.isAnimationFile(fName)) {
+        others.add(fName);
+        continue;
+      }
+  
+      int id = parser.extractSceneID(fName);
+      if (scenes.containsKey(id)) {
+        Log.warn("Scene {} is defined twice; ignoring {}", id, fName);
+      } else {
+        scenes.put(id, fName);
+      }
+    }
+  }
+  
+  public static void main(String[] args) throws IOException
+  {
+    String folder = Session.ANIMATION_FOLDER;
+    if (args.length > 1) folder = args[1];
+    String images = IMAGE_FOLDER;
+    if (args.length > 2) images = args[2];
+  
+    AssetBundler bundler = new AssetBundler(folder);
+    bundler.analyse();
+    bundler.report(System.out, images);
+    if (args.length > 0) {
+      long bytes = bundler.bundle(images, args[0]);
+      System.out.printf("Wrote %,d bytes to %s\n", bytes, args[0]);
+    }
+    Log.flush();
+  }
+  
+  /** Follows every return from the scene marked with the scene-id 0, and
+   *  collects what each scene reached refers to.
+   *  @throws IOException if an animation file can't be read. */
+  public void analyse() throws IOException
+  {
+    ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+    enter(0, -1, queue);
+    while (!queue.isEmpty())
+    {
+      int id = queue.poll();
+      SceneAssets assets = SceneAssets.of(scenes.get(id));
+      reachable.put(id, assets);
+  
+      /* Note what the scene shows. */
+      List<BackgroundType> bgs = assets.getBackgrounds();
+      for (int i = 0; i < bgs.size(); i++)
+        add(backgrounds, bgs.get(i), Integer.valueOf(id));
+      List<SceneAssets.Sizing> sizings = assets.getSizings();
+      for (int i = 0; i < sizings.size(); i++)
+      {
+        SceneAssets.Sizing s = sizings.get(i);
+        add(scales, s.getType(), Double.valueOf(s.getScale()));
+      }
+      for (Map.Entry<FigureType, Set<Integer>> e
+      : assets.getStates().entrySet())
+      {
+        for (Integer state : e.getValue()) add(states, e.getKey(), state);
+      }
+  
+      /* Follow the scene's returns; negative scene-ids end the game. */
+      List<Integer> returns = assets.getReturns();
+      for (int i = 0; i < returns.size(); i++)
+        enter(returns.get(i), id, queue);
+    }
+  }
+  
+  /** Returns the images the reachable scenes need, as paths from the base
+   *  images directory. Precondition: analyse() has been called.
+   *  @param images   The base images directory.
+   *  @return The paths of the images needed, in order. */
+  public TreeSet<String> getUsedImages(String images)
+  {
+    TreeSet<String> used = new TreeSet<String>();
+    for (BackgroundType type : backgrounds.keySet())
+      used.add(local(type.getImageFile()));
+    for (int i = 0; i < ENGINE_BACKGROUNDS.length; i++)
+    {
+      String file = local(ENGINE_BACKGROUNDS[i].getImageFile());
+      if (new File(images, file).exists()) used.add(file);
+    }
+  
+    /* Each character's files, up to its last appearance shown. */
+    for (Map.Entry<FigureType, Set<Integer>> e : states.entrySet())
+    {
+      int last = Collections.max(e.getValue());
+      for (int state = Figure.STILL; state <= last; state++)
+      {
+        String file = local(e.getKey().getImageFile(state));
+        if (!new File(images, file).exists()) break;
+        used.add(file);
+      }
+    }
+    return used;
+  }
+  
+  /** Prints what was found by analyse().
+   *  @param out      Where to print it.
+   *  @param images   The base images directory.
+   *  @throws IOException if the images directory can't be listed. */
+  public void report(PrintStream out, String images) throws IOException
+  {
+    out.printf("%d of %d scenes reachable\n",
+    reachable.size(), scenes.size());
+  
+    /* Scenes no path reaches, and scene-ids that don't exist. */
+    out.println("Unreachable scenes:");
+    int unreachable = 0;
+    for (Map.Entry<Integer, String> e : scenes.entrySet())
+    {
+      if (!reachable.containsKey(e.getKey())) {
+        out.printf("  scene %d (%s)\n", e.getKey(), e.getValue());
+        unreachable++;
+      }
+    }
+    if (unreachable == 0) out.println("  none");
+    out.println("Missing scene-ids:");
+    for (Map.Entry<Integer, Set<Integer>> e : missing.entrySet())
+    {
+      out.printf("  %d, returned to from scenes %s\n",
+      e.getKey(), e.getValue());
+    }
+    if (missing.isEmpty()) out.println("  none");
+    out.println("Not animation files:");
+    for (int i = 0; i < others.size(); i++) out.println("  " + others.get(i));
+    if (others.isEmpty()) out.println("  none");
+  
+    /* What the reachable scenes show. */
+    out.println("Backgrounds:");
+    for (Map.Entry<BackgroundType, Set<Integer>> e : backgrounds.entrySet())
+    {
+      out.printf("  %-12s shown by scenes %s\n",
+      e.getKey().name().toLowerCase(), e.getValue());
+    }
+    for (int i = 0; i < ENGINE_BACKGROUNDS.length; i++)
+    {
+      if (!backgrounds.containsKey(ENGINE_BACKGROUNDS[i]))
+        out.printf("  %-12s shown by the game itself\n",
+        ENGINE_BACKGROUNDS[i].name().toLowerCase());
+    }
+    out.println("Characters:");
+    for (Map.Entry<FigureType, Set<Integer>> e : states.entrySet())
+    {
+      out.printf("  %-12s appearances %s, sizes %s\n",
+      e.getKey().name().toLowerCase(), e.getValue(),
+      scales.get(e.getKey()));
+    }
+  
+    /* Every image that isn't needed, and what's saved. */
+    TreeSet<String> used = getUsedImages(images);
+    TreeMap<String, Long> all = listImages(images);
+    long total = 0;
+    long kept = 0;
+    out.println("Unused images:");
+    for (Map.Entry<String, Long> e : all.entrySet())
+    {
+      total += e.getValue();
+      if (used.contains(e.getKey())) {
+        kept += e.getValue();
+      } else {
+        out.printf("  %-32s %,12d bytes\n", e.getKey(), e.getValue());
+      }
+    }
+    if (used.size() == all.size()) out.println("  none");
+    out.printf("Bundle keeps %d of %d images, %,d of %,d bytes "
+    + "(%.1f%% smaller)\n", used.size(), all.size(), kept, total,
+    (total == 0) ? 0.0 : 100.0 * (total - kept) / total);
+  }
+  
+  /** Writes the bundle: the reachable scenes' animation files, and the
+   *  images they need. Precondition: analyse() has been called.
+   *  @param images   The base images directory.
+   *  @param output   The folder to write the bundle to.
+   *  @return The number of bytes written.
+   *  @throws IOException if a file can't be copied. */
+  public long bundle(String images, String output) throws IOException
+  {
+    long bytes = 0;
+    Path animations = Paths.get(output, "animation_files");
+    Files.createDirectories(animations);
+    for (Integer id : reachable.keySet())
+    {
+      Path from = Paths.get(scenes.get(id));
+      bytes += copy(from, animations.resolve(from.getFileName()));
+    }
+  
+    Path imageOutput = Paths.get(output, "images");
+    for (String file : getUsedImages(images))
+      bytes += copy(Paths.get(images, file), imageOutput.resolve(file));
+    return bytes;
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Marks a scene as reached, queueing it if it hasn't been before.
+   *  @param id     The scene-id returned.
+   *  @param from   The scene-id of the scene returning it; -1 if none.
+   *  @param queue  The scenes still to be analysed. */
+  private void enter(int id, int from, ArrayDeque<Integer> queue)
+  {
+    if (id < 0 || reachable.containsKey(id) || queue.contains(id)) return;
+    if (!scenes.containsKey(id)) {
+      Set<Integer> sources = missing.get(id);
+      if (sources == null) {
+        sources = new TreeSet<Integer>();
+        missing.put(id, sources);
+      }
+      if (from >= 0) sources.add(from);
+      return;
+    }
+    queue.add(id);
+  }
+  
+  /** Adds a value to the set kept for a key, making the set if needed.
+   *  @param map    The sets by key.
+   *  @param key    The key.
+   *  @param value  The value to add. */
+  private static <K, V> void add(Map<K, Set<V>> map, K key, V value)
+  {
+    Set<V> set = map.get(key);
+    if (set == null) {
+      set = new TreeSet<V>();
+      map.put(key, set);
+    }
+    set.add(value);
+  }
+  
+  /** Turns a path from the enumerations, which uses backslashes, into a
+   *  path on this system.
+   *  @param file   The path from an enumeration.
+   *  @return The same path with this system's separators. */
+  private static String local(String file)
+  {
+    return file.replace('\\', File.separatorChar);
+  }
+  
+  /** Lists every image in the base images directory, with its size.
+   *  @param images   The base images directory.
+   *  @return The size of each image by its path from the directory.
+   *  @throws IOException if the directory can't be listed. */
+  private static TreeMap<String, Long> listImages(String images)
+  throws IOException
+  {
+    final TreeMap<String, Long> all = new TreeMap<String, Long>();
+    final Path base = Paths.get(images);
+    if (!Files.isDirectory(base)) {
+      Log.error("Could not list images in {}", images);
+      return all;
+    }
+    Files.walkFileTree(base, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+    Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+    {
+      public FileVisitResult visitFile
+      (Path file, BasicFileAttributes attributes)
+      {
+        if (file.toString().toLowerCase().endsWith(".png"))
+          all.put(base.relativize(file).toString(), attributes.size());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return all;
+  }
+  
+  /** Copies a file, making its folder if needed.
+   *  @param from   The file to copy.
+   *  @param to     Where to copy it to.
+   *  @return The number of bytes copied.
+   *  @throws IOException if the file can't be copied. */
+  private static long copy(Path from, Path to) throws IOException
+  {
+    Files.createDirectories(to.getParent());
+    Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+    return Files.size(to);
+  }
+}
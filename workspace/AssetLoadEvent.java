@@ -0,0 +1,32 @@
+import jdk.jfr.*;
+
+/** A Java Flight Recorder event emitted every time a character or
+ *  background image is decoded from its file or scaled to a new size.
+ *  Disabled by default; see CommandEvent.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+@Name("rickrangers.AssetLoad")
+@Label("Asset Load")
+@Category({ "Rick Rangers", "Assets" })
+@Description("An image decoded from a file or scaled to a new size")
+@Enabled(false)
+@StackTrace(false)
+public class AssetLoadEvent extends Event
+{
+  @Label("Asset")
+  @Description("The image file, or the character type being scaled")
+  public String asset;
+  
+  @Label("Operation")
+  @Description("Either \"decode\" or \"scale\"")
+  public String operation;
+  
+  @Label("Width")
+  public int width;
+  
+  @Label("Height")
+  public int height;
+}
@@ -0,0 +1,173 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+/** Remembers which images the game asks for, and in what order, so that
+ *  the next time the game starts they can be got ready before they're
+ *  needed. Which backgrounds are shown first, and at what sizes the first
+ *  characters are shown, hardly ever change from one game to the next.
+ *
+ *  Every background set and every character size loaded is recorded the
+ *  first time it's asked for, up to MAX_ENTRIES of them. When the game
+ *  exits, the record is written to a profile file, one image to a line:
+ *  "background [name]" or "figure [name] [scale]". When the game starts
+ *  again, warm(Path) reads the profile back and, on a thread of its own,
+ *  asks for each image in the same order, so the backgrounds are loaded
+ *  and the character images scaled by the time the scenes ask for them.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class AssetProfile
+{
+  /** Where the game keeps its profile between runs. */
+  public static final Path PROFILE_FILE
+  = Paths.get("..\\saves\\assets.profile");
+  
+  /** The most images recorded. */
+  public static final int MAX_ENTRIES = 256;
+  
+  /** The images asked for, in the order they were first asked for. */
+  private static final LinkedHashSet<String> requests
+  = new LinkedHashSet<String>();
+  
+  /** The AssetProfile class cannot be instantiated. */
+  private AssetProfile() {}
+  
+  /** Records that a background has been set.
+   *  @param type   The background. */
+  public static void record(BackgroundType type)
+  {
+    add("background " + type.name().toLowerCase());
+  }
+  
+  /** Records that a character's images have been asked for at a size.
+   *  @param type   The character.
+   *  @param scale  The scale of the images. */
+  public static void record(FigureType type, double scale)
+  {
+    add("figure " + type.name().toLowerCase() + " " + scale);
+  }
+  
+  /** Writes the images recorded so far to a profile file.
+   *  @param file   The profile file.
+   *  @throws IOException if the file can't be written. */
+  public static void save(Path file) throws IOException
+  {
+    ArrayList<String> lines;
+    synchronized (requests) {
+      lines = new ArrayList<String>(requests);
+    }
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    Files.write(file, lines, Charset.defaultCharset());
+  }
+  
+  /** Has the images recorded written to a profile file when the program
+   *  exits.
+   *  @param file   The profile file. */
+  public static void saveOnExit(final Path file)
+  {
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+    {
+      public void run()
+      {
+        /* Keep the last profile if this run never got as far. */
+        synchronized (requests) {
+          if (requests.isEmpty()) return;
+        }
+        try {
+          save(file);
+        } catch (IOException e) {
+          System.err.println("Could not save " + file + ": "
+          + e.getMessage());
+        }
+      }
+    }, "Asset profile"));
+  }
+  
+  /** Starts getting the images in a profile file ready, in the order
+   *  they're listed, on a background thread. Does nothing if there's no
+   *  profile yet.
+   *  @param file   The profile file.
+   *  @return The thread doing the work; null if there's no profile. */
+  public static Thread warm(Path file)
+  {
+    final ArrayList<String> lines;
+    try {
+      lines = new ArrayList<String>
+      (Files.readAllLines(file, Charset.defaultCharset()));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      Log.warn("Could not read {}: {}", file, e.getMessage());
+      return null;
+    }
+  
+    Thread thread = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        long start = System.nanoTime();
+        int warmed = 0;
+        int[] sizes = new int[FigureType.values().length];
+        for (int i = 0; i < lines.size(); i++)
+        {
+          if (warmOne(lines.get(i), sizes)) warmed++;
+        }
+        Log.info("Warmed {} images from the profile in {} ms", warmed,
+        (System.nanoTime() - start) / 1e6);
+      }
+    }, "Asset warmup");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+    return thread;
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Records an image, unless it's been recorded before or the record is
+   *  full.
+   *  @param entry  The image's line in the profile. */
+  private static void add(String entry)
+  {
+    synchronized (requests) {
+      if (requests.size() < MAX_ENTRIES) requests.add(entry);
+    }
+  }
+  
+  /** Gets one image in a profile ready. No more sizes of a character
+   *  are got ready than FigureType keeps, so that the later ones don't
+   *  push out the ones that are needed first.
+   *  @param line   The image's line in the profile.
+   *  @param sizes  The number of sizes got ready for each character.
+   *  @return true if the line named an image; false if it was skipped. */
+  private static boolean warmOne(String line, int[] sizes)
+  {
+    String[] tokens = line.split(" ");
+    try {
+      if (tokens[0].equals("background")) {
+        BackgroundType.of(tokens[1]).getImage();
+        return true;
+      } else if (tokens[0].equals("figure")) {
+        FigureType type = FigureType.of(tokens[1]);
+        double scale = Double.parseDouble(tokens[2]);
+        if (sizes[type.ordinal()] >= FigureType.CACHE_SIZE) return false;
+        sizes[type.ordinal()]++;
+        type.getAnimationImagesResized(scale);
+        return true;
+      }
+    }
+  
+    /* A line the profile couldn't have written is skipped. */
+    catch (IndexOutOfBoundsException e) {}
+    catch (IllegalArgumentException e) {}
+    return false;
+  }
+}
@@ -2,9 +2,10 @@ import java.awt.*;
 import javax.swing.*;
 
 /** Contains all of the possible background types/images that can be
- *  used in the game. When called, each enumeration will have stored
- *  within them a background image scaled to fit the dimensions of
- *  the game window.
+ *  used in the game. Each enumeration holds a background image scaled
+ *  to fit the dimensions of the game window. The image is only loaded
+ *  the first time it's asked for, so the game doesn't have to wait for
+ *  every background to load before showing the first one.
  *
  *  @author Paul Shin
  *  @since 0.1.0
@@ -30,8 +31,11 @@ public enum BackgroundType
   
   /* PRIVATE DATA */
   
-  /* The background image for each enumeration. */
-  private ImageIcon image;
+  /* The background image for each enumeration; null until loaded. */
+  private volatile ImageIcon image;
+  
+  /* The name of the background's image file. */
+  private final String fileName;
   
   
   
@@ -39,27 +43,104 @@ public enum BackgroundType
   
   /** Constructor for the BackgroundType class, which initializes each
    *  BackgroundType enumeration. Each type has an image, which will be
-   *  used to fill the background in each scene. The image will be scaled
-   *  in order to fit the dimensions of the JFrame window.
+   *  used to fill the background in each scene.
    *  @param fileName   The name of the image file. */
   BackgroundType(String fileName)
   {
-    String path = "..\\images\\backgrounds\\"; // relative path to bg folder
-    image = new ImageIcon // save the image as an icon
-    ( new ImageIcon
-    (path + fileName).getImage().getScaledInstance
-    (Game.WIDTH, Game.HEIGHT, Image.SCALE_SMOOTH) );
-    System.out.println("Loaded background image: " + path + fileName);
+    this.fileName = fileName;
   }
   
   
   
   /* PUBLIC FUNCTIONS */
   
+  /** Function that returns the background type named by a keyword, as
+   *  used in animation files. The default in case of an invalid keyword
+   *  is the title screen.
+   *  @param name   The keyword denoting the background type.
+   *  @return The background type with that name. */
+  public static BackgroundType of(String name)
+  {
+    if (name.equals("ambulance1")) return AMBULANCE1;
+    else if (name.equals("ambulance2")) return AMBULANCE2;
+    else if (name.equals("ambulance3")) return AMBULANCE3;
+    else if (name.equals("boat1")) return BOAT1;
+    else if (name.equals("building1")) return BUILDING1;
+    else if (name.equals("building2")) return BUILDING2;
+    else if (name.equals("city1")) return CITY1;
+    else if (name.equals("city2")) return CITY2;
+    else if (name.equals("office1")) return OFFICE1;
+    else if (name.equals("office2")) return OFFICE2;
+    else return TITLE;
+  }
+  
+  /** Function that returns the path to the background's image file,
+   *  from the base images directory.
+   *  @return The path to the image file, e.g. "backgrounds\\title.png". */
+  public String getImageFile()
+  {
+    return "backgrounds\\" + fileName;
+  }
+  
   /** Function that returns the image representing this background type.
+   *  The image is loaded the first time it's asked for.
    *  @return the background image. */
   public ImageIcon getImage()
   {
-    return image;
+    ImageIcon loaded = image;
+    if (loaded == null) {
+      synchronized (this) {
+        if (image == null) image = load();
+        loaded = image;
+      }
+    }
+    return loaded;
+  }
+  
+  /** Function that returns whether the image has been loaded yet.
+   *  @return true if getImage() won't have to load the image. */
+  public boolean isLoaded()
+  {
+    return image != null;
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Function that loads the image and scales it to fit the dimensions
+   *  of the JFrame window.
+   *  @return the background image. */
+  private ImageIcon load()
+  {
+    String path = "..\\images\\backgrounds\\"; // relative path to bg folder
+    
+    /* Decode the image file. */
+    AssetLoadEvent decode = new AssetLoadEvent();
+    decode.begin();
+    ImageIcon loaded = new ImageIcon(path + fileName);
+    if (decode.shouldCommit()) {
+      decode.asset = path + fileName;
+      decode.operation = "decode";
+      decode.width = loaded.getIconWidth();
+      decode.height = loaded.getIconHeight();
+      decode.commit();
+    }
+    
+    /* Scale the image to fit the window. */
+    AssetLoadEvent scale = new AssetLoadEvent();
+    scale.begin();
+    ImageIcon scaled = new ImageIcon // save the image as an icon
+    ( loaded.getImage().getScaledInstance
+    (Game.WIDTH, Game.HEIGHT, Image.SCALE_SMOOTH) );
+    if (scale.shouldCommit()) {
+      scale.asset = path + fileName;
+      scale.operation = "scale";
+      scale.width = Game.WIDTH;
+      scale.height = Game.HEIGHT;
+      scale.commit();
+    }
+    Log.debug("Loaded background image: {}{}", path, fileName);
+    return scaled;
   }
 }
\ No newline at end of file
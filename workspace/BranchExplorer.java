@@ -0,0 +1,877 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/** The BranchExplorer class follows every path a player could take
+ *  through the game, without a window and without waiting. Each scene's
+ *  animation file is read once, and then run from the scene marked with
+ *  the scene-id 0 on a virtual clock: waits, transitions, moves and
+ *  tweens only move the clock forward by as long as they would take,
+ *  and nothing is drawn.
+ *
+ *  Only the little state that decides where the script goes and how
+ *  long it takes is kept: the scene and line being run, the counter, the
+ *  clock, and where each character is and until when it's busy. At every
+ *  button list the path is split, with a copy of that state for each
+ *  button, and each copy is followed as its own task on a fork-join pool,
+ *  through goto and return commands into other scenes, until its game
+ *  ends. A path that comes back to a scene, line and counter it has
+ *  already been at would go round forever, so it's ended there as a
+ *  cycle.
+ *
+ *  When every path has ended, the following are printed to the console:
+ *  each path's choices, how long it plays for without the time spent
+ *  choosing, and how it ends; the line-ids and scenes that no path
+ *  reaches; the scene-ids that are returned to but don't exist; and the
+ *  dead ends, where a game would stop without returning -1, such as a
+ *  goto to a line-id that doesn't exist or a scene without a return.
+ *
+ *  The explorer is run from the workspace directory, the same as the
+ *  game: "java BranchExplorer [[folder]]", where folder is the folder
+ *  the animation files are kept in.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class BranchExplorer
+{
+  /** The most paths followed before the rest are left unexplored. */
+  private static final int MAX_PATHS = 100000;
+  
+  /** The most buttons chosen on one path before it's given up on. */
+  private static final int MAX_CHOICES = 64;
+  
+  /** The most commands run on one path before it's given up on. */
+  private static final int MAX_STEPS = 1000000;
+  
+  /** The most paths printed, longest first. */
+  private static final int LISTED_PATHS = 1000;
+  
+  /* The ways a path can end. */
+  private static final String FINISHED = "finished";
+  private static final String MISSING = "missing scene";
+  private static final String DEAD_END = "dead end";
+  private static final String CYCLE = "cycle";
+  private static final String LIMIT = "limit";
+  private static final String ERROR = "error";
+  
+  private static final Pattern positive_int = Pattern.compile("[0-9]+");
+  
+  /** Reads the headers, times and numbers of the animation files. */
+  private final AnimationReader parser = new AnimationReader();
+  
+  /** The game's scripts by scene-id. Not changed once loaded. */
+  private final HashMap<Integer, Script> scripts
+  = new HashMap<Integer, Script>();
+  
+  /** The pool the paths are followed on. */
+  private final ForkJoinPool pool = new ForkJoinPool();
+  
+  /** The number of paths started so far. */
+  private final AtomicInteger started = new AtomicInteger();
+  
+  /** The number of paths still being followed. */
+  private final AtomicInteger pending = new AtomicInteger();
+  
+  /** Opened once every path has been followed. */
+  private final CountDownLatch done = new CountDownLatch(1);
+  
+  /** How each path ended. */
+  private final ConcurrentLinkedQueue<Ending> endings
+  = new ConcurrentLinkedQueue<Ending>();
+  
+  /** Each missing scene-id, with where it's returned to from. */
+  private final ConcurrentHashMap<Integer, Set<String>> missing
+  = new ConcurrentHashMap<Integer, Set<String>>();
+  
+  /** Where the game stops without returning -1, and why. */
+  private final Set<String> deadEnds = ConcurrentHashMap.newKeySet();
+  
+  /** Constructor for the BranchExplorer class. Reads every animation
+   *  file in the given folder.
+   *  @param folderPath   The folder the animation files are kept in. */
+  public BranchExplorer(String folderPath)
+  {
+    File[] files = new File(folderPath).listFiles();
+    if (files == null) {
+      Log.error("Could not list animation files in {}", folderPath);
+      return;
+    }
+    Arrays.sort(files);
+  
+    for (int i = 0; i < files.length; i++)
+    {
+      String fName = folderPath + File.separator + files[i].getName();
+      if (!files[i].isFile() || !parser.isAnimationFile(fName)) continue;
+  
+      int id = parser.extractSceneID(fName);
+      try {
+        Script script = new Script(fName, id);
+        if (scripts.containsKey(id)) {
+          Log.warn("Scene {} is defined twice; ignoring {}", id, fName);
+        } else {
+          scripts.put(id, script);
+        }
+      } catch (IOException e) {
+        Log.error("Could not read {}: {}", fName, e.getMessage());
+      }
+    }
+  }
+  
+  public static void main(String[] args) throws InterruptedException
+  {
+    String folder = Session.ANIMATION_FOLDER;
+    if (args.length > 0) folder = args[0];
+  
+    BranchExplorer explorer = new BranchExplorer(folder);
+    long start = System.nanoTime();
+    explorer.explore();
+    double seconds = (System.nanoTime() - start) / 1e9;
+  
+    explorer.report(System.out);
+    System.out.printf("Explored in %.3f s on %d threads\n",
+    seconds, explorer.pool.getParallelism());
+    Log.flush();
+  }
+  
+  /** Follows every path through the game, starting with the scene marked
+   *  with the scene-id 0, and returns once they have all ended.
+   *  @throws InterruptedException if interrupted while waiting. */
+  public void explore() throws InterruptedException
+  {
+    State first = new State();
+    if (!scripts.containsKey(0)) {
+      missingScene(0, "the start");
+      endings.add(new Ending(first, MISSING, "No scene 0"));
+      return;
+    }
+  
+    started.incrementAndGet();
+    pending.incrementAndGet();
+    enter(first, 0);
+    pool.execute(new Explore(first));
+    done.await();
+  }
+  
+  /** Prints what was found by explore().
+   *  @param out    Where to print it. */
+  public void report(PrintStream out)
+  {
+    /* Every path, longest first. */
+    ArrayList<Ending> paths = new ArrayList<Ending>(endings);
+    Collections.sort(paths, new Comparator<Ending>()
+    {
+      public int compare(Ending a, Ending b)
+      {
+        return Long.compare(b.duration, a.duration);
+      }
+    });
+  
+    out.printf("%,d paths through %d scenes\n", paths.size(), scripts.size());
+    out.printf("%12s  %-13s  %s\n", "duration", "ending", "choices");
+    for (int i = 0; i < paths.size() && i < LISTED_PATHS; i++)
+    {
+      Ending e = paths.get(i);
+      out.printf("%10.3f s  %-13s  %s\n",
+      e.duration / 1e3, e.kind, e.describe());
+    }
+    if (paths.size() > LISTED_PATHS)
+      out.printf("... and %,d shorter paths\n", paths.size() - LISTED_PATHS);
+    if (started.get() > MAX_PATHS)
+      out.printf("Stopped after %,d paths; the rest are unexplored\n",
+      MAX_PATHS);
+  
+    /* Scenes and line-ids no path reaches. */
+    out.println();
+    out.println("Unreachable:");
+    int unreachable = 0;
+    ArrayList<Integer> ids = new ArrayList<Integer>(scripts.keySet());
+    Collections.sort(ids);
+    for (int i = 0; i < ids.size(); i++)
+    {
+      Script script = scripts.get(ids.get(i));
+      if (!script.entered) {
+        out.printf("  scene %d (%s)\n", script.sceneID, script.file);
+        unreachable++;
+        continue;
+      }
+      for (Map.Entry<Integer, Integer> id : script.lineIDs.entrySet())
+      {
+        if (!script.reached.contains(id.getKey())) {
+          out.printf("  scene %d, line-id %d (line %d)\n",
+          script.sceneID, id.getKey(), id.getValue() + 1);
+          unreachable++;
+        }
+      }
+    }
+    if (unreachable == 0) out.println("  none");
+  
+    /* Scene-ids returned to that don't exist. */
+    out.println("Missing scene-ids:");
+    ArrayList<Integer> absent = new ArrayList<Integer>(missing.keySet());
+    Collections.sort(absent);
+    for (int i = 0; i < absent.size(); i++)
+    {
+      out.printf("  %d, returned to from %s\n",
+      absent.get(i), new TreeSet<String>(missing.get(absent.get(i))));
+    }
+    if (absent.isEmpty()) out.println("  none");
+  
+    /* Places where the game stops without returning -1. */
+    out.println("Dead ends:");
+    for (String d : new TreeSet<String>(deadEnds)) out.println("  " + d);
+    if (deadEnds.isEmpty()) out.println("  none");
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Follows a path until it ends or splits at a button list.
+   *  @param s    The path's state, which is changed as it goes. */
+  private void follow(State s)
+  {
+    Script script = scripts.get(s.scene);
+  
+    while (true)
+    {
+      if (s.line >= script.ops.length) {
+        end(s, DEAD_END, "scene " + s.scene + " ends without a return");
+        return;
+      }
+      if (++s.steps > MAX_STEPS) {
+        end(s, LIMIT, "gave up after " + MAX_STEPS + " commands");
+        return;
+      }
+  
+      int index = s.line++;
+      String[] tokens = script.tokens[index];
+      Opcode op = script.ops[index];
+  
+      try {
+        switch (op)
+        {
+          case ID:
+            Integer id = script.idAt(index);
+            if (id != null) script.reached.add(id);
+            break;
+  
+          case ADD:
+            addActor(s, tokens);
+            break;
+  
+          case REMOVE:
+            if (tokens[1].equalsIgnoreCase("all")) {
+              s.removeActors();
+            } else {
+              s.actors.remove(s.key(tokens[1]));
+            }
+            break;
+  
+          case MOVE:
+          {
+            Actor a = s.actor(tokens[1]);
+            int x = Integer.parseInt(tokens[2]);
+            int y = Integer.parseInt(tokens[3]);
+            int speed = Game.WIDTH / 10;
+            if (tokens.length > 4 && parser.isInteger(tokens[4]))
+              speed = Integer.parseInt(tokens[4]);
+            moveActor(s, a, MotionPath.through(a.x, a.y, new int[] {x, y}),
+            speed);
+            break;
+          }
+  
+          case PATH:
+          case CURVE:
+          {
+            Actor a = s.actor(tokens[1]);
+            int speed = Integer.parseInt(tokens[2]);
+            int count = 0;
+            while (3 + count < tokens.length
+            && parser.isInteger(tokens[3 + count])) count++;
+            count -= count % 2;
+            if (count == 0) break;
+            int[] points = new int[count];
+            for (int i = 0; i < count; i++)
+              points[i] = Integer.parseInt(tokens[3 + i]);
+            moveActor(s, a, (op == Opcode.CURVE)
+            ? MotionPath.curve(a.x, a.y, points)
+            : MotionPath.through(a.x, a.y, points), speed);
+            break;
+          }
+  
+          case SCALE:
+          case FADE:
+            s.animate(s.actor(tokens[1]), parser.evaluateTime(tokens[3]));
+            break;
+  
+          case GLIDE:
+          {
+            Actor a = s.actor(tokens[1]);
+            int x = Integer.parseInt(tokens[2]);
+            int y = Integer.parseInt(tokens[3]);
+            s.animate(a, parser.evaluateTime(tokens[4]));
+            a.x = x;
+            a.y = y;
+            break;
+          }
+  
+          case TRANSITION:
+            s.animate(null, parser.evaluateTime(tokens[2]));
+            break;
+  
+          case WAIT:
+            s.clock += parser.evaluateTime(tokens[1]);
+            break;
+  
+          case PARALLEL:
+            if (s.blockEnd < 0) s.blockEnd = s.clock;
+            break;
+  
+          case JOIN:
+            if (s.blockEnd >= 0) {
+              s.clock = Math.max(s.clock, s.blockEnd);
+              s.blockEnd = -1;
+            }
+            break;
+  
+          case AWAIT:
+            s.await(tokens);
+            break;
+  
+          case INCREMENT:
+            s.counter++;
+            break;
+  
+          case DECREMENT:
+            s.counter--;
+            break;
+  
+          case RESET:
+            s.counter = 0;
+            break;
+  
+          case GOTO:
+            if (!handleGoto(s, script, tokens, index)) return;
+            break;
+  
+          case BUTTONS:
+            handleButtons(s, script, index);
+            return;
+  
+          case RETURN:
+            if (!handleReturn(s, tokens, index)) return;
+            script = scripts.get(s.scene);
+            break;
+  
+          default:
+            break;
+        }
+      }
+  
+      /* A command the game would fail on is passed over, as in the game. */
+      catch (IndexOutOfBoundsException e) {}
+      catch (IllegalArgumentException e) {}
+    }
+  }
+  
+  /** Adds a character, as with the add command.
+   *  @param s        The path's state.
+   *  @param tokens   The add command and its arguments. */
+  private void addActor(State s, String[] tokens)
+  {
+    Actor a = new Actor(s.scene);
+    if (tokens.length > 4 && parser.isInteger(tokens[4]))
+      a.x = Integer.parseInt(tokens[4]);
+    if (tokens.length > 5 && parser.isInteger(tokens[5]))
+      a.y = Integer.parseInt(tokens[5]);
+    s.actors.put(s.key(tokens[3]), a);
+  }
+  
+  /** Moves a character along a path, as with the move, path and curve
+   *  commands. The move takes as long as the path's length at the speed.
+   *  @param s      The path's state.
+   *  @param a      The character.
+   *  @param path   The path to move along.
+   *  @param speed  The speed of movement in pixels per second. */
+  private void moveActor(State s, Actor a, MotionPath path, int speed)
+  {
+    speed = Math.max(1, Math.abs(speed));
+    s.animate(a, (long) (path.getLength() * 1000 / speed));
+    a.x = path.getEndX();
+    a.y = path.getEndY();
+  }
+  
+  /** Follows a goto command.
+   *  @param s        The path's state.
+   *  @param script   The scene's script.
+   *  @param tokens   The goto command and its arguments.
+   *  @param index    The index of the goto command's line.
+   *  @return Whether the path carries on. */
+  private boolean handleGoto(State s, Script script, String[] tokens,
+  int index)
+  {
+    int id;
+    try {
+      id = Integer.parseInt(tokens[1]);
+      if (tokens.length > 2 && tokens[2].equals("if")) {
+        if (!AnimationReader.compare
+        (s.counter, tokens[4], Integer.parseInt(tokens[5]))) return true;
+      }
+    } catch (RuntimeException e) {
+      end(s, DEAD_END, deadEnd(s.scene, index, "goto is invalid"));
+      return false;
+    }
+    return jump(s, script, id, index, "goto");
+  }
+  
+  /** Splits the path at a button list, and follows each button on its
+   *  own task.
+   *  @param s        The path's state.
+   *  @param script   The scene's script.
+   *  @param index    The index of the * line. */
+  private void handleButtons(State s, Script script, int index)
+  {
+    /* Read the buttons as the game would. */
+    ArrayList<String> labels = new ArrayList<String>();
+    ArrayList<Integer> links = new ArrayList<Integer>();
+    for (int i = index + 1; i < script.tokens.length; i++)
+    {
+      String[] tokens = script.tokens[i];
+      if (tokens.length < 2 || !positive_int.matcher(tokens[1]).matches())
+        break;
+      labels.add(tokens[0]);
+      links.add(Integer.parseInt(tokens[1]));
+    }
+    if (links.isEmpty()) {
+      end(s, DEAD_END, deadEnd(s.scene, index, "button list is empty"));
+      return;
+    }
+  
+    /* A path that never ends, e.g. round a loop of choices that keeps
+     * changing the counter, is given up on. */
+    if (s.depth >= MAX_CHOICES) {
+      end(s, LIMIT, "made " + MAX_CHOICES + " choices");
+      return;
+    }
+  
+    /* Follow each button with its own copy of the state. */
+    for (int i = 0; i < links.size(); i++)
+    {
+      State branch = (i == links.size() - 1) ? s : s.copy();
+      branch.choices = new Choice(branch.choices, s.scene, labels.get(i));
+      branch.depth++;
+      if (!jump(branch, script, links.get(i), index, "button")) continue;
+      if (started.incrementAndGet() > MAX_PATHS) {
+        end(branch, LIMIT, "too many paths");
+        continue;
+      }
+      pending.incrementAndGet();
+      new Explore(branch).fork();
+    }
+  }
+  
+  /** Follows a return command into the next scene.
+   *  @param s        The path's state.
+   *  @param tokens   The return command and its arguments.
+   *  @param index    The index of the return command's line.
+   *  @return Whether the path carries on. */
+  private boolean handleReturn(State s, String[] tokens, int index)
+  {
+    int next = -1;
+    try {
+      next = Integer.parseInt(tokens[1]);
+    } catch (RuntimeException e) {}
+  
+    if (next < 0) {
+      end(s, FINISHED, "");
+      return false;
+    }
+    if (!scripts.containsKey(next)) {
+      missingScene(next, "scene " + s.scene + " line " + (index + 1));
+      end(s, MISSING, "scene " + next + " doesn't exist");
+      return false;
+    }
+  
+    if (!enter(s, next)) {
+      end(s, CYCLE, "returns to scene " + next + " again");
+      return false;
+    }
+    return true;
+  }
+  
+  /** Starts a scene on a path.
+   *  @param s    The path's state.
+   *  @param id   The scene-id of the scene.
+   *  @return Whether the path hasn't been at the start of the scene with
+   *          the same counter before. */
+  private boolean enter(State s, int id)
+  {
+    s.scene = id;
+    s.line = 0;
+    s.transitionEnd = 0;
+    s.blockEnd = -1;
+    scripts.get(id).entered = true;
+    return s.seen.add(s.position());
+  }
+  
+  /** Moves a path to the line after a line-id, as with a goto command or
+   *  a button.
+   *  @param s        The path's state.
+   *  @param script   The scene's script.
+   *  @param id       The line-id.
+   *  @param index    The index of the line that jumps.
+   *  @param command  What jumps, for the report.
+   *  @return Whether the path carries on. */
+  private boolean jump(State s, Script script, int id, int index,
+  String command)
+  {
+    Integer target = script.lineIDs.get(id);
+    if (target == null) {
+      end(s, DEAD_END, deadEnd(s.scene, index,
+      command + " to missing line-id " + id));
+      return false;
+    }
+    script.reached.add(id);
+    s.line = target + 1;
+    if (!s.seen.add(s.position())) {
+      end(s, CYCLE, "loops back to line-id " + id + " in scene " + s.scene);
+      return false;
+    }
+    return true;
+  }
+  
+  /** Records the end of a path.
+   *  @param s        The path's state.
+   *  @param kind     How the path ended.
+   *  @param detail   More about the end, for the report. */
+  private void end(State s, String kind, String detail)
+  {
+    endings.add(new Ending(s, kind, detail));
+  }
+  
+  /** Records a dead end, and describes it.
+   *  @param scene    The scene-id of the scene.
+   *  @param index    The index of the line.
+   *  @param reason   What's wrong.
+   *  @return The description. */
+  private String deadEnd(int scene, int index, String reason)
+  {
+    String where = "scene " + scene + " line " + (index + 1) + ": " + reason;
+    deadEnds.add(where);
+    return where;
+  }
+  
+  /** Records a scene-id that's returned to but doesn't exist.
+   *  @param id     The missing scene-id.
+   *  @param from   Where it's returned to from. */
+  private void missingScene(int id, String from)
+  {
+    Set<String> sources = missing.get(id);
+    if (sources == null) {
+      Set<String> created = ConcurrentHashMap.newKeySet();
+      sources = missing.putIfAbsent(id, created);
+      if (sources == null) sources = created;
+    }
+    sources.add(from);
+  }
+  
+  
+  
+  /** One scene's animation file, split into words and commands. */
+  private class Script
+  {
+    /** The animation file. */
+    final String file;
+  
+    /** The scene-id of the scene. */
+    final int sceneID;
+  
+    /** The words of each line; the first line is at index 0. */
+    final String[][] tokens;
+  
+    /** The command on each line. */
+    final Opcode[] ops;
+  
+    /** The index of the line each line-id is declared on. */
+    final TreeMap<Integer, Integer> lineIDs = new TreeMap<Integer, Integer>();
+  
+    /** The line-ids reached by any path. */
+    final Set<Integer> reached = ConcurrentHashMap.newKeySet();
+  
+    /** Whether any path has started the scene. */
+    volatile boolean entered;
+  
+    /** Constructor for the Script class. Reads and splits the file.
+     *  @param file     The animation file.
+     *  @param sceneID  The scene-id of the scene.
+     *  @throws IOException if the file can't be read. */
+    Script(String file, int sceneID) throws IOException
+    {
+      this.file = file;
+      this.sceneID = sceneID;
+  
+      ArrayList<String> lines = new ArrayList<String>();
+      LineNumberReader reader = ScriptCache.open(file);
+      String line;
+      while ((line = reader.readLine()) != null) lines.add(line);
+  
+      tokens = new String[lines.size()][];
+      ops = new Opcode[lines.size()];
+      for (int i = 0; i < tokens.length; i++)
+      {
+        line = lines.get(i);
+        tokens[i] = line.split(" ");
+        ops[i] = (line.equals("") || tokens[i].length == 0)
+        ? Opcode.NONE : Opcode.of(tokens[i]);
+  
+        /* Line-ids are found as the game finds them: the first line
+         * starting with "id" and a number. */
+        String[] lower = line.toLowerCase().split(" ");
+        if (line.toLowerCase().startsWith("id") && lower.length > 1
+        && positive_int.matcher(lower[1]).matches()) {
+          Integer id = Integer.valueOf(lower[1]);
+          if (!lineIDs.containsKey(id)) lineIDs.put(id, i);
+        }
+      }
+    }
+  
+    /** Returns the line-id declared on a line.
+     *  @param index    The index of the line.
+     *  @return The line-id, or null if the line doesn't declare the first
+     *          use of one. */
+    Integer idAt(int index)
+    {
+      String[] t = tokens[index];
+      if (t.length < 2 || !positive_int.matcher(t[1]).matches()) return null;
+      Integer id = Integer.valueOf(t[1]);
+      Integer declared = lineIDs.get(id);
+      return (declared != null && declared == index) ? id : null;
+    }
+  }
+  
+  
+  
+  /** A task that follows one path. */
+  private class Explore extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+  
+    private final State state;
+  
+    Explore(State state)
+    {
+      this.state = state;
+    }
+  
+    protected void compute()
+    {
+      /* A path that fails is reported rather than lost in the pool. */
+      try {
+        follow(state);
+      } catch (RuntimeException e) {
+        end(state, ERROR, e.toString());
+        Log.error("Path failed in scene {} at line {}: {}",
+        state.scene, state.line, e);
+      } finally {
+        if (pending.decrementAndGet() == 0) done.countDown();
+      }
+    }
+  }
+  
+  
+  
+  /** Where a character is, and until when it's busy. */
+  private static class Actor
+  {
+    /** The scene-id of the scene the character is in. */
+    final int scene;
+  
+    /** The character's position. */
+    double x, y;
+  
+    /** When the character's animations end on the virtual clock. */
+    long busy;
+  
+    Actor(int scene)
+    {
+      this.scene = scene;
+    }
+  
+    Actor copy()
+    {
+      Actor a = new Actor(scene);
+      a.x = x;
+      a.y = y;
+      a.busy = busy;
+      return a;
+    }
+  }
+  
+  
+  
+  /** The choices made on a path, newest first. */
+  private static class Choice
+  {
+    final Choice previous;
+    final int scene;
+    final String label;
+  
+    Choice(Choice previous, int scene, String label)
+    {
+      this.previous = previous;
+      this.scene = scene;
+      this.label = label;
+    }
+  }
+  
+  
+  
+  /** The state of one path: everything that decides where the script
+   *  goes next and how long it takes. */
+  private static class State
+  {
+    /* Where the path is. */
+    int scene;
+    int line;
+    int counter;
+  
+    /** The virtual clock, in milliseconds. */
+    long clock;
+  
+    /** When the last transition ends. */
+    long transitionEnd;
+  
+    /** When the animations in the current parallel block end; -1 if the
+     *  path isn't in one. */
+    long blockEnd = -1;
+  
+    /** The characters, by scene-id and character-id. */
+    HashMap<String, Actor> actors = new HashMap<String, Actor>();
+  
+    /** The scenes, lines and counters the path has jumped to. */
+    HashSet<Long> seen = new HashSet<Long>();
+  
+    /** The buttons chosen on the path, and how many. */
+    Choice choices;
+    int depth;
+  
+    /** The number of commands run on the path. */
+    int steps;
+  
+    /** Returns a copy of the state for another path. */
+    State copy()
+    {
+      State s = new State();
+      s.scene = scene;
+      s.line = line;
+      s.counter = counter;
+      s.clock = clock;
+      s.transitionEnd = transitionEnd;
+      s.blockEnd = blockEnd;
+      for (Map.Entry<String, Actor> e : actors.entrySet())
+        s.actors.put(e.getKey(), e.getValue().copy());
+      s.seen.addAll(seen);
+      s.choices = choices;
+      s.depth = depth;
+      s.steps = steps;
+      return s;
+    }
+  
+    /** Returns a hash of the scene, line and counter. */
+    long position()
+    {
+      return ((long) scene << 48) ^ ((long) line << 32)
+      ^ (counter & 0xFFFFFFFFL);
+    }
+  
+    /** Returns the key of a character in the current scene. */
+    String key(String id)
+    {
+      return scene + ":" + id.toLowerCase();
+    }
+  
+    /** Returns a character in the current scene, adding one at (0, 0)
+     *  if it hasn't been added. */
+    Actor actor(String id)
+    {
+      Actor a = actors.get(key(id));
+      if (a == null) {
+        a = new Actor(scene);
+        actors.put(key(id), a);
+      }
+      return a;
+    }
+  
+    /** Removes every character in the current scene. */
+    void removeActors()
+    {
+      Iterator<Actor> it = actors.values().iterator();
+      while (it.hasNext()) if (it.next().scene == scene) it.remove();
+    }
+  
+    /** Starts an animation now.
+     *  @param a          The character animated; null for a transition.
+     *  @param duration   How long the animation takes, in milliseconds. */
+    void animate(Actor a, long duration)
+    {
+      long end = clock + Math.max(0, duration);
+      if (a == null) transitionEnd = Math.max(transitionEnd, end);
+      else a.busy = Math.max(a.busy, end);
+      if (blockEnd >= 0) blockEnd = Math.max(blockEnd, end);
+    }
+  
+    /** Moves the clock on until the animations an await command waits
+     *  for have ended.
+     *  @param tokens   The await command and its arguments. */
+    void await(String[] tokens)
+    {
+      long end = clock;
+      if (tokens.length < 2) {
+        end = Math.max(end, transitionEnd);
+        for (Actor a : actors.values())
+          if (a.scene == scene) end = Math.max(end, a.busy);
+      } else if (tokens[1].equalsIgnoreCase("transition")) {
+        end = Math.max(end, transitionEnd);
+      } else {
+        Actor a = actors.get(key(tokens[1]));
+        if (a != null) end = Math.max(end, a.busy);
+      }
+      clock = end;
+    }
+  }
+  
+  
+  
+  /** How a path ended. */
+  private static class Ending
+  {
+    final Choice choices;
+    final long duration;
+    final String kind;
+    final String detail;
+  
+    Ending(State s, String kind, String detail)
+    {
+      this.choices = s.choices;
+      this.duration = s.clock;
+      this.kind = kind;
+      this.detail = detail;
+    }
+  
+    /** Describes the choices made, oldest first, and the end. */
+    String describe()
+    {
+      ArrayList<String> picks = new ArrayList<String>();
+      for (Choice c = choices; c != null; c = c.previous)
+        picks.add(c.scene + ":" + c.label);
+      Collections.reverse(picks);
+      String path = picks.isEmpty() ? "(no choices)"
+      : String.join(" > ", picks);
+      return detail.isEmpty() ? path : path + "  [" + detail + "]";
+    }
+  }
+}
@@ -0,0 +1,29 @@
+import jdk.jfr.*;
+
+/** A Java Flight Recorder event emitted every time the game waits for
+ *  the player to press one of the buttons in a button list. The event
+ *  lasts from when the buttons are shown until one is pressed. Disabled
+ *  by default; see CommandEvent.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+@Name("rickrangers.ButtonWait")
+@Label("Button Wait")
+@Category({ "Rick Rangers", "Script" })
+@Description("The player choosing from a button list")
+@Enabled(false)
+@StackTrace(false)
+public class ButtonWaitEvent extends Event
+{
+  @Label("Scene ID")
+  public int sceneID;
+  
+  @Label("Button Count")
+  public int buttons;
+  
+  @Label("Chosen Line ID")
+  @Description("The line-id of the button that was pressed")
+  public int result;
+}
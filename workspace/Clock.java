@@ -0,0 +1,307 @@
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/** The clock that the game's animations are timed by. Times are measured
+ *  in nanoseconds from System.nanoTime(), which unlike the time of day
+ *  never jumps forwards or backwards.
+ *
+ *  Animations are timed by deadlines: rather than sleeping for a length
+ *  of time after each step, which lets the time spent on the steps
+ *  themselves pile up, each step is given the absolute time at which it
+ *  should happen, and the thread sleeps until then. A step that runs
+ *  late therefore shortens the next sleep instead of delaying every
+ *  step after it.
+ *
+ *  Every reader, scene and task scope is timed by REAL_TIME unless it's
+ *  given a clock of its own. A clock made with virtualTime() instead
+ *  keeps virtual time, as when a scene is recorded frame by frame, and
+ *  only the scene it's given to is timed by it; every other session
+ *  carries on in real time. Virtual time only moves when advanceTo(long)
+ *  is called, and a thread sleeping until a deadline wakes once virtual
+ *  time reaches it. The threads that run the scene, i.e. the reader and
+ *  every animation, are counted as busy from enter() to exit(), except
+ *  while they sleep or await(...) animations; advanceTo(long) returns
+ *  once none of them is busy, so that the scene is exactly as it should
+ *  be at that moment.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class Clock
+{
+  /** How long advanceTo(long) waits on busy threads before warning, in
+   *  milliseconds. */
+  private static final long STALL_WARNING = 5000;
+  
+  /** The clock that keeps real time, from System.nanoTime(). */
+  public static final Clock REAL_TIME = new Clock(false);
+  
+  /** Guards the virtual time, the busy count and the sleepers. */
+  private final Object lock = new Object();
+  
+  /** Whether the clock keeps virtual time. */
+  private final boolean virtual;
+  
+  /** The virtual time, in nanoseconds. */
+  private volatile long virtualNow = 0;
+  
+  /** The number of threads running the scene that aren't sleeping. */
+  private int busy;
+  
+  /** The threads sleeping in virtual time. */
+  private final ArrayList<Sleeper> sleepers = new ArrayList<Sleeper>();
+  
+  /** Constructor for the Clock class.
+   *  @param virtual  Whether the clock keeps virtual time. */
+  private Clock(boolean virtual)
+  {
+    this.virtual = virtual;
+  }
+  
+  /** Returns a new clock that keeps virtual time, starting at 0. It
+   *  should be given to the reader and scene it times before any thread
+   *  that runs the scene is started.
+   *  @return The new clock. */
+  public static Clock virtualTime()
+  {
+    return new Clock(true);
+  }
+  
+  /** Returns the current time.
+   *  @return The current time in nanoseconds. */
+  public long now()
+  {
+    if (virtual) return virtualNow;
+    return System.nanoTime();
+  }
+  
+  /** Returns whether the clock keeps virtual time.
+   *  @return true if it does. */
+  public boolean isVirtual()
+  {
+    return virtual;
+  }
+  
+  /** Counts a thread that runs the scene as busy. Called before the
+   *  thread is started. Does nothing unless the clock keeps virtual
+   *  time. */
+  public void enter()
+  {
+    if (!virtual) return;
+    synchronized (lock) {
+      busy++;
+    }
+  }
+  
+  /** Stops counting a thread that runs the scene, as it ends. Does
+   *  nothing unless the clock keeps virtual time. */
+  public void exit()
+  {
+    if (!virtual) return;
+    synchronized (lock) {
+      busy--;
+      lock.notifyAll();
+    }
+  }
+  
+  /** Moves virtual time on to the given time, wakes every thread whose
+   *  deadline has been reached, and waits until none of them is busy.
+   *  @param time   The new virtual time, in nanoseconds.
+   *  @throws InterruptedException if the thread is interrupted. */
+  public void advanceTo(long time) throws InterruptedException
+  {
+    synchronized (lock) {
+      virtualNow = Math.max(virtualNow, time);
+      for (int i = sleepers.size() - 1; i >= 0; i--)
+      {
+        Sleeper s = sleepers.get(i);
+        if (s.deadline <= virtualNow) wake(s, false);
+      }
+      
+      long start = System.currentTimeMillis();
+      boolean warned = false;
+      while (busy > 0)
+      {
+        lock.wait(STALL_WARNING);
+        if (!warned && busy > 0
+        && System.currentTimeMillis() - start >= STALL_WARNING) {
+          Log.warn("Virtual clock waiting on {} busy threads", busy);
+          warned = true;
+        }
+      }
+    }
+  }
+  
+  /** Waits for a handle to be completed. In virtual time, the thread
+   *  isn't counted as busy while it waits.
+   *  @param handle   The handle to wait for.
+   *  @throws InterruptedException if the thread is interrupted.
+   *  @throws ExecutionException if the handle completed exceptionally. */
+  public void await(CompletableFuture<?> handle)
+  throws InterruptedException, ExecutionException
+  {
+    if (!virtual || handle.isDone()) {
+      handle.get();
+      return;
+    }
+    
+    /* The thread is counted again by whoever completes the handle, before
+     * that thread can itself stop being busy. The callback goes in first,
+     * so a handle completed in between can't be missed. */
+    final Sleeper s = new Sleeper(Long.MAX_VALUE);
+    handle.whenComplete(new BiConsumer<Object, Throwable>()
+    {
+      public void accept(Object result, Throwable failure)
+      {
+        synchronized (lock) {
+          wake(s, true);
+        }
+      }
+    });
+    synchronized (lock) {
+      if (!s.woken) {
+        s.asleep = true;
+        busy--;
+        lock.notifyAll();
+      }
+    }
+    try {
+      handle.get();
+    } finally {
+      synchronized (lock) {
+        wake(s, true);
+      }
+    }
+  }
+  
+  /** Sleeps until the given time. Returns immediately if that time has
+   *  already passed.
+   *  @param deadline   The time to wake up, in nanoseconds.
+   *  @throws InterruptedException if the thread is interrupted. */
+  public void sleepUntil(long deadline) throws InterruptedException
+  {
+    if (virtual) {
+      sleepVirtual(deadline, null);
+      return;
+    }
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0)
+    {
+      Thread.sleep(remaining / 1000000L, (int) (remaining % 1000000L));
+    }
+  }
+  
+  /** Sleeps until the given time, or until the given handle is completed,
+   *  whichever comes first. Returns immediately if that time has already
+   *  passed or the handle is already completed.
+   *  @param deadline   The time to wake up, in nanoseconds.
+   *  @param wake       A handle that wakes the thread early.
+   *  @return true if the thread was woken early by the handle.
+   *  @throws InterruptedException if the thread is interrupted. */
+  public boolean sleepUntil(long deadline, Future<?> wake)
+  throws InterruptedException
+  {
+    if (virtual) return sleepVirtual(deadline, wake);
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0)
+    {
+      if (wake.isDone()) return true;
+      try {
+        wake.get(remaining, TimeUnit.NANOSECONDS);
+        return true;
+      } catch (ExecutionException e) {
+        return true;
+      } catch (TimeoutException e) {}
+    }
+    return false;
+  }
+  
+  /** Sleeps until virtual time reaches the given time, or until the given
+   *  handle is completed, whichever comes first.
+   *  @param deadline   The time to wake up, in nanoseconds.
+   *  @param wake       A handle that wakes the thread early; may be null.
+   *  @return true if the thread was woken early by the handle.
+   *  @throws InterruptedException if the thread is interrupted. */
+  private boolean sleepVirtual(long deadline, Future<?> wake)
+  throws InterruptedException
+  {
+    final Sleeper s = new Sleeper(deadline);
+    
+    /* Wake early if the handle is completed first. The callback goes in
+     * before the thread stops being busy, so that a handle completed in
+     * between can't leave it asleep after time has moved on. */
+    if (wake instanceof CompletableFuture) {
+      ((CompletableFuture<?>) wake).whenComplete
+      (new BiConsumer<Object, Throwable>()
+      {
+        public void accept(Object result, Throwable failure)
+        {
+          synchronized (lock) {
+            wake(s, true);
+          }
+        }
+      });
+    }
+    
+    synchronized (lock) {
+      if (s.woken) return true;
+      if (virtualNow >= deadline || wake != null && wake.isDone()) {
+        s.woken = true;
+        return virtualNow < deadline;
+      }
+      sleepers.add(s);
+      s.asleep = true;
+      busy--;
+      lock.notifyAll();
+      try {
+        while (!s.woken) lock.wait();
+      } catch (InterruptedException e) {
+        wake(s, true);
+        throw e;
+      }
+    }
+    return s.early;
+  }
+  
+  /** Wakes a sleeping thread and, if it had stopped being busy, counts it
+   *  as busy again, unless it has already been woken. Must be called while
+   *  holding the lock.
+   *  @param s      The sleeping thread.
+   *  @param early  Whether it's woken before its deadline. */
+  private void wake(Sleeper s, boolean early)
+  {
+    if (s.woken) return;
+    s.woken = true;
+    s.early = early;
+    sleepers.remove(s);
+    if (s.asleep) busy++;
+    lock.notifyAll();
+  }
+  
+  
+  
+  /** A thread sleeping in virtual time. */
+  private static class Sleeper
+  {
+    /** When the thread wakes, in nanoseconds. */
+    final long deadline;
+    
+    /** Whether the thread has been woken, and whether that was early. */
+    boolean woken;
+    boolean early;
+    
+    /** Whether the thread stopped being busy to sleep. */
+    boolean asleep;
+    
+    Sleeper(long deadline)
+    {
+      this.deadline = deadline;
+    }
+  }
+}
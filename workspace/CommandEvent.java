@@ -0,0 +1,31 @@
+import jdk.jfr.*;
+
+/** A Java Flight Recorder event emitted for every command run by the
+ *  AnimationReader. The event lasts as long as the command, so a wait
+ *  or a button list shows up as a long event. Like every event of the
+ *  game, it is disabled by default and costs nothing until a recording
+ *  enables it, e.g. by turning on the "Rick Rangers" events in the
+ *  recording settings of JDK Mission Control.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+@Name("rickrangers.Command")
+@Label("Script Command")
+@Category({ "Rick Rangers", "Script" })
+@Description("A command run from an animation file")
+@Enabled(false)
+@StackTrace(false)
+public class CommandEvent extends Event
+{
+  @Label("Scene ID")
+  public int sceneID;
+  
+  @Label("Line")
+  @Description("The line number of the command in its animation file")
+  public int line;
+  
+  @Label("Command")
+  public String opcode;
+}
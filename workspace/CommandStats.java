@@ -0,0 +1,226 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Keeps execution counts and latency histograms for the commands run by
+ *  the AnimationReader. Every command is recorded twice: once under its
+ *  opcode, which shows what kind of command is expensive, and once under
+ *  its scene and line number, which shows exactly which lines of which
+ *  animation files are slow.
+ *
+ *  Recording a command never locks once its line has been seen before,
+ *  so the statistics can stay enabled while the game runs. They can be
+ *  printed at any time from any thread, either as a whole or for a
+ *  single scene.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class CommandStats
+{
+  /** The precision of the per-opcode histograms (12.5%). */
+  private static final int OPCODE_PRECISION = 3;
+  
+  /** The precision of the per-line histograms (25%), which are smaller
+   *  since there is one for every line that has been run. */
+  private static final int LINE_PRECISION = 2;
+  
+  /** The number of slowest lines printed for a scene. */
+  private static final int SLOWEST_LINES = 5;
+  
+  /** The latencies of each opcode, indexed by the opcode's ordinal. */
+  private final LatencyHistogram[] opcodes;
+  
+  /** The latencies of every command, whatever its opcode. */
+  private final LatencyHistogram all = new LatencyHistogram(OPCODE_PRECISION);
+  
+  /** The latencies of each line, by scene-id. */
+  private final ConcurrentHashMap<Integer, Lines> scenes;
+  
+  /** Constructor for the CommandStats class. */
+  public CommandStats()
+  {
+    Opcode[] ops = Opcode.values();
+    opcodes = new LatencyHistogram[ops.length];
+    for (int i = 0; i < ops.length; i++)
+    {
+      opcodes[i] = new LatencyHistogram(OPCODE_PRECISION);
+    }
+    scenes = new ConcurrentHashMap<Integer, Lines>();
+  }
+  
+  /** Returns the line statistics for a scene, creating them if the
+   *  scene hasn't been seen before. This should be called once at the
+   *  start of each scene, and the result used for every line.
+   *  @param sceneID  The scene-id of the scene.
+   *  @return The line statistics of that scene. */
+  public Lines forScene(int sceneID)
+  {
+    Lines lines = scenes.get(sceneID);
+    if (lines == null) {
+      Lines newLines = new Lines(sceneID);
+      lines = scenes.putIfAbsent(sceneID, newLines);
+      if (lines == null) lines = newLines;
+    }
+    return lines;
+  }
+  
+  /** Records a command that has just been run.
+   *  @param lines    The line statistics of the command's scene.
+   *  @param line     The line number of the command.
+   *  @param op       The opcode of the command.
+   *  @param nanos    How long the command took in nanoseconds. */
+  public void record(Lines lines, int line, Opcode op, long nanos)
+  {
+    opcodes[op.ordinal()].record(nanos);
+    all.record(nanos);
+    lines.record(line, nanos);
+  }
+  
+  /** Returns the latency histogram of an opcode.
+   *  @param op   The opcode.
+   *  @return The opcode's histogram. */
+  public LatencyHistogram getHistogram(Opcode op)
+  {
+    return opcodes[op.ordinal()];
+  }
+  
+  /** Returns the latency histogram of every command together.
+   *  @return The histogram of all commands. */
+  public LatencyHistogram getAll()
+  {
+    return all;
+  }
+  
+  /** Clears every recorded command. */
+  public void reset()
+  {
+    for (int i = 0; i < opcodes.length; i++) opcodes[i].reset();
+    all.reset();
+    scenes.clear();
+  }
+  
+  /** Prints the statistics of every opcode, followed by the slowest lines
+   *  of every scene that has been run.
+   *  @param out    Where to print the statistics. */
+  public void dump(PrintStream out)
+  {
+    out.println("Command statistics:");
+    out.printf("  %-15s %9s %10s %10s %10s %10s\n",
+    "command", "count", "mean(ms)", "p50(ms)", "p99(ms)", "max(ms)");
+    
+    Opcode[] ops = Opcode.values();
+    for (int i = 0; i < ops.length; i++)
+    {
+      LatencyHistogram h = opcodes[i];
+      if (h.getCount() == 0) continue;
+      out.printf("  %-15s %9d %10.3f %10.3f %10.3f %10.3f\n",
+      ops[i].getKeyword(), h.getCount(), h.getMean() / 1e6,
+      h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6,
+      h.getMax() / 1e6);
+    }
+    
+    for (Lines lines : scenes.values()) dumpScene(lines, out);
+  }
+  
+  /** Prints the total time spent in a scene's commands and its slowest
+   *  lines, as measured by total time spent on each line.
+   *  @param sceneID  The scene-id of the scene.
+   *  @param out      Where to print the statistics. */
+  public void dumpScene(int sceneID, PrintStream out)
+  {
+    Lines lines = scenes.get(sceneID);
+    if (lines != null) dumpScene(lines, out);
+  }
+  
+  /** See void dumpScene(int, PrintStream).
+   *  @param lines    The line statistics of the scene.
+   *  @param out      Where to print the statistics. */
+  private void dumpScene(Lines lines, PrintStream out)
+  {
+    /* Gather the lines that have been run, slowest first. */
+    final LatencyHistogram[] table = lines.table;
+    ArrayList<Integer> run = new ArrayList<Integer>();
+    long commands = 0;
+    long total = 0;
+    for (int i = 0; i < table.length; i++)
+    {
+      if (table[i] == null) continue;
+      run.add(i);
+      commands += table[i].getCount();
+      total += table[i].getTotal();
+    }
+    Collections.sort(run, new Comparator<Integer>()
+    {
+      public int compare(Integer a, Integer b)
+      {
+        return Long.compare(table[b].getTotal(), table[a].getTotal());
+      }
+    });
+    
+    out.printf("Scene %d: %d commands in %.3f ms\n",
+    lines.sceneID, commands, total / 1e6);
+    for (int i = 0; i < run.size() && i < SLOWEST_LINES; i++)
+    {
+      LatencyHistogram h = table[run.get(i)];
+      out.printf("  line %-6d %6d runs %10.3f ms total %10.3f ms p99\n",
+      run.get(i), h.getCount(), h.getTotal() / 1e6,
+      h.getPercentile(99) / 1e6);
+    }
+  }
+  
+  
+  
+  /* INNER CLASSES */
+  
+  /** The latency histograms of each line of a single scene, indexed by
+   *  line number. Histograms are only created for lines that are run. */
+  public static class Lines
+  {
+    /** The scene-id of the scene. */
+    private final int sceneID;
+    
+    /** The histograms by line number; replaced whenever it grows. */
+    private volatile LatencyHistogram[] table = new LatencyHistogram[64];
+    
+    /** Constructor for the Lines class.
+     *  @param sceneID  The scene-id of the scene. */
+    private Lines(int sceneID)
+    {
+      this.sceneID = sceneID;
+    }
+    
+    /** Records a latency for a line, creating its histogram the first
+     *  time that the line is run.
+     *  @param line   The line number.
+     *  @param nanos  The latency in nanoseconds. */
+    private void record(int line, long nanos)
+    {
+      LatencyHistogram[] current = table;
+      LatencyHistogram h;
+      if (line < current.length && (h = current[line]) != null) h.record(nanos);
+      else recordNew(line, nanos);
+    }
+    
+    /** Creates the histogram of a line that hasn't been run before.
+     *  @param line   The line number.
+     *  @param nanos  The latency in nanoseconds. */
+    private synchronized void recordNew(int line, long nanos)
+    {
+      LatencyHistogram[] current = table;
+      if (line >= current.length) {
+        LatencyHistogram[] grown = new LatencyHistogram
+        [Math.max(line + 1, current.length * 2)];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        current = grown;
+      }
+      if (current[line] == null) current[line] = new LatencyHistogram
+      (LINE_PRECISION);
+      table = current;
+      current[line].record(nanos);
+    }
+  }
+}
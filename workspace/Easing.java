@@ -0,0 +1,122 @@
+/** Defines the easing curves that tweens can follow. An easing curve
+ *  maps the fraction of a tween's time that has passed onto the fraction
+ *  of the change that should have been made by then: a linear tween
+ *  changes at a steady rate, while an eased tween starts or ends slowly.
+ *
+ *  Each curve is sampled once into a lookup table when the enum is
+ *  loaded, so that finding a point on the curve every frame only takes
+ *  an interpolation between two entries of the table.
+ *
+ *  In an animation file, curves are named by their keywords, e.g.
+ *  "ease-in-out".
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public enum Easing
+{
+  /* ENUMERATIONS */
+  
+  LINEAR        ("linear"     ),
+  EASE_IN       ("ease-in"    ),
+  EASE_OUT      ("ease-out"   ),
+  EASE_IN_OUT   ("ease-in-out");
+  
+  
+  
+  /* PRIVATE DATA */
+  
+  /** The number of intervals each curve is sampled at. */
+  private static final int STEPS = 256;
+  
+  static {
+    for (Easing easing : values()) easing.fill();
+  }
+  
+  /** The curve's keyword in an animation file. */
+  private final String keyword;
+  
+  /** The curve sampled at every 1/STEPS of the way along. */
+  private final float[] table = new float[STEPS + 1];
+  
+  
+  
+  /* CONSTRUCTORS */
+  
+  /** Constructor for the Easing enum.
+   *  @param keyword  The curve's keyword in an animation file. */
+  Easing(String keyword)
+  {
+    this.keyword = keyword;
+  }
+  
+  
+  
+  /* PUBLIC FUNCTIONS */
+  
+  /** Returns the curve's keyword in an animation file.
+   *  @return The curve's keyword. */
+  public String getKeyword()
+  {
+    return keyword;
+  }
+  
+  /** Finds the point on the curve for the given fraction of time.
+   *  @param t    The fraction of time passed, from 0 to 1.
+   *  @return The fraction of the change that should have been made. */
+  public double apply(double t)
+  {
+    if (t <= 0.0) return 0.0;
+    if (t >= 1.0) return 1.0;
+    
+    double position = t * STEPS;
+    int i = (int) position;
+    double fraction = position - i;
+    return table[i] + (table[i + 1] - table[i]) * fraction;
+  }
+  
+  /** Finds the easing curve with the given keyword.
+   *  @param keyword  The keyword of the curve.
+   *  @return The curve, or null if there's no curve with that keyword. */
+  public static Easing of(String keyword)
+  {
+    for (Easing easing : values())
+    {
+      if (easing.keyword.equalsIgnoreCase(keyword)) return easing;
+    }
+    return null;
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Samples the curve into its lookup table. */
+  private void fill()
+  {
+    for (int i = 0; i <= STEPS; i++)
+    {
+      table[i] = (float) curve((double) i / STEPS);
+    }
+  }
+  
+  /** Computes the curve exactly. The eased curves are cubic.
+   *  @param t    The fraction of time passed, from 0 to 1.
+   *  @return The fraction of the change that should have been made. */
+  private double curve(double t)
+  {
+    switch (this)
+    {
+      case EASE_IN:
+        return t * t * t;
+      case EASE_OUT:
+        return 1 - (1 - t) * (1 - t) * (1 - t);
+      case EASE_IN_OUT:
+        return (t < 0.5) ? 4 * t * t * t
+        : 1 - Math.pow(2 - 2 * t, 3) / 2;
+      default:
+        return t;
+    }
+  }
+}
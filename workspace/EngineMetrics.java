@@ -0,0 +1,193 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Exposes the live figures of a running game as a JMX MBean, so the
+ *  game can be watched without attaching a profiler. The figures are
+ *  read from the AnimationReader's statistics, the current scene and the
+ *  character image cache whenever they're asked for, so the MBean costs
+ *  nothing while no one is watching.
+ *
+ *  The MBean is registered by the Game under the name
+ *  "rickrangers:type=EngineMetrics".
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class EngineMetrics implements EngineMetricsMBean
+{
+  /** The name the MBean is registered under. */
+  public static final String NAME = "rickrangers:type=EngineMetrics";
+  
+  /** The reader whose commands are measured. */
+  private final AnimationReader reader;
+  
+  /* The command count and time when the command rate was last read. */
+  private long lastCount = 0;
+  private long lastTime = System.nanoTime();
+  
+  /** Constructor for the EngineMetrics class.
+   *  @param reader   The reader whose commands are measured. */
+  public EngineMetrics(AnimationReader reader)
+  {
+    this.reader = reader;
+  }
+  
+  /** Registers the MBean with the platform MBean server. A failure is
+   *  logged, and the game carries on without it. */
+  public void register()
+  {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean
+      (this, new ObjectName(NAME));
+    } catch (JMException e) {
+      Log.warn("Engine metrics unavailable: {}", e.getMessage());
+    }
+  }
+  
+  
+  
+  /* ATTRIBUTES */
+  
+  public int getCurrentSceneID()
+  {
+    Scene scene = reader.getCurrentScene();
+    return (scene == null) ? -1 : scene.getSceneID();
+  }
+  
+  public long getCommandsExecuted()
+  {
+    return reader.getStats().getAll().getCount();
+  }
+  
+  /** The rate is averaged over the time since it was last read. */
+  public synchronized double getCommandsPerSecond()
+  {
+    long count = getCommandsExecuted();
+    long now = System.nanoTime();
+    double rate = (count - lastCount) * 1e9 / Math.max(1, now - lastTime);
+    lastCount = count;
+    lastTime = now;
+    return rate;
+  }
+  
+  public double getAverageCommandLatency()
+  {
+    return reader.getStats().getAll().getMean() / 1e6;
+  }
+  
+  public double getP99CommandLatency()
+  {
+    return reader.getStats().getAll().getPercentile(99) / 1e6;
+  }
+  
+  public int getActiveAnimations()
+  {
+    Scene scene = reader.getCurrentScene();
+    return (scene == null) ? 0 : scene.getActiveAnimations();
+  }
+  
+  /** Animations stopped because their scene ended. */
+  public long getCancelledAnimations()
+  {
+    return TaskScope.getCancelled();
+  }
+  
+  /** Animations that didn't stop when their scene ended. */
+  public long getLeakedAnimations()
+  {
+    return TaskScope.getLeaked();
+  }
+  
+  public int getImageCacheSize()
+  {
+    return FigureType.getCacheSize();
+  }
+  
+  public double getImageCacheHitRate()
+  {
+    long hits = FigureType.getCacheHits();
+    long total = hits + FigureType.getCacheMisses();
+    return (total == 0) ? 0.0 : (double) hits / total;
+  }
+  
+  public long getSceneLoads()
+  {
+    return reader.getSceneLoads().getCount();
+  }
+  
+  public double getAverageSceneLoadTime()
+  {
+    return reader.getSceneLoads().getMean() / 1e6;
+  }
+  
+  public double getMaxSceneLoadTime()
+  {
+    return reader.getSceneLoads().getMax() / 1e6;
+  }
+  
+  public long getButtonWaits()
+  {
+    return reader.getButtonWaits().getCount();
+  }
+  
+  public double getAverageButtonWaitTime()
+  {
+    return reader.getButtonWaits().getMean() / 1e6;
+  }
+  
+  public double getMaxButtonWaitTime()
+  {
+    return reader.getButtonWaits().getMax() / 1e6;
+  }
+  
+  /** The time from a button press until the next command starts. */
+  public double getAverageButtonLatency()
+  {
+    return reader.getButtonLatencies().getMean() / 1e6;
+  }
+  
+  public double getMaxButtonLatency()
+  {
+    return reader.getButtonLatencies().getMax() / 1e6;
+  }
+  
+  public double getMaxWaitLateness()
+  {
+    return reader.getWaitLateness().getMax() / 1e6;
+  }
+  
+  /** How far behind their scripts the scenes ended. */
+  public double getAverageSceneDrift()
+  {
+    return reader.getSceneDrifts().getMean() / 1e6;
+  }
+  
+  public double getMaxSceneDrift()
+  {
+    return reader.getSceneDrifts().getMax() / 1e6;
+  }
+  
+  
+  
+  /* OPERATIONS */
+  
+  public synchronized void resetCounters()
+  {
+    reader.getStats().reset();
+    reader.getSceneLoads().reset();
+    reader.getButtonWaits().reset();
+    reader.getButtonLatencies().reset();
+    reader.getWaitLateness().reset();
+    reader.getSceneDrifts().reset();
+    FigureType.resetCacheCounts();
+    lastCount = 0;
+    lastTime = System.nanoTime();
+  }
+  
+  public String dumpReaderPosition()
+  {
+    return reader.getPosition();
+  }
+}
@@ -0,0 +1,46 @@
+/** The management interface of the EngineMetrics class, which lets the
+ *  engine's live figures be watched from a JMX console such as
+ *  JConsole or VisualVM while the game is running. Times are reported
+ *  in milliseconds.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public interface EngineMetricsMBean
+{
+  /* ATTRIBUTES */
+  
+  int getCurrentSceneID();
+  long getCommandsExecuted();
+  double getCommandsPerSecond();
+  double getAverageCommandLatency();
+  double getP99CommandLatency();
+  int getActiveAnimations();
+  long getCancelledAnimations();
+  long getLeakedAnimations();
+  int getImageCacheSize();
+  double getImageCacheHitRate();
+  long getSceneLoads();
+  double getAverageSceneLoadTime();
+  double getMaxSceneLoadTime();
+  long getButtonWaits();
+  double getAverageButtonWaitTime();
+  double getMaxButtonWaitTime();
+  double getAverageButtonLatency();
+  double getMaxButtonLatency();
+  double getMaxWaitLateness();
+  double getAverageSceneDrift();
+  double getMaxSceneDrift();
+  
+  
+  
+  /* OPERATIONS */
+  
+  /** Starts every counter and histogram over again. */
+  void resetCounters();
+  
+  /** Describes where the AnimationReader currently is.
+   *  @return The scene, file, line and loop counter being run. */
+  String dumpReaderPosition();
+}
@@ -1,4 +1,6 @@
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.io.*;
 import javax.swing.*;
 import static java.lang.Math.*;
@@ -20,6 +22,11 @@ import static java.lang.Math.*;
  *  The character's ID is what allows you to differentiate between
  *  different characters within a scene. This is represented as a string.
  *
+ *  While a tween is changing the character's size, the character is
+ *  drawn by stretching its current images with a transform, rather than
+ *  rescaling them every frame. The images are only rescaled once the
+ *  size settles. A character can also be drawn partly transparent.
+ *
  *  @author Paul Shin
  *  @since 0.1.0
  *  @version 0.1.0
@@ -36,8 +43,11 @@ public class Figure extends JLabel
   private FigureType type; // holds the animation images by character type
   private ImageIcon[] images; // the animation images
   private double relativeSize = 1.0; // the current scale of the images
+  private volatile double displaySize = 1.0; // the scale it's drawn at
+  private volatile float alpha = 1.0f; // the opacity it's drawn with
   
   private String id; // the character's unique identification label
+  private volatile Scene scene; // the scene the character is in
   private int currentState; // the current appearance of the character
   
   /* Animation-specific constant static fields */
@@ -118,7 +128,45 @@ public class Figure extends JLabel
     
     /* Retrieve the resized images. */
     loadImages();
-    Game.getCurrentScene().repaint();
+    repaintScene();
+  }
+  
+  /** Sets the size the character is drawn at, without rescaling its
+   *  images. The images are stretched to this size when the character is
+   *  painted, which is cheap but not as smooth as rescaling them; this is
+   *  meant for sizes that are only shown for a frame, such as during a
+   *  tween. Use resize(double, String) to rescale the images once the
+   *  size settles. A non-positive size is ignored.
+   *  @param size   The size to draw at, with respect to the window. */
+  public void setDisplaySize(double size)
+  {
+    if (size <= 0.0) return;
+    displaySize = size;
+    
+    repaintScene();
+  }
+  
+  /** Returns the size the character is currently drawn at.
+   *  @return The size with respect to the height of the window. */
+  public double getDisplaySize()
+  {
+    return displaySize;
+  }
+  
+  /** Sets the opacity the character is drawn with.
+   *  @param opacity  The opacity, from 0 (invisible) to 1 (opaque). */
+  public void setAlpha(double opacity)
+  {
+    alpha = (float) max(0.0, min(1.0, opacity));
+    
+    repaintScene();
+  }
+  
+  /** Returns the opacity the character is drawn with.
+   *  @return The opacity, from 0 (invisible) to 1 (opaque). */
+  public double getAlpha()
+  {
+    return alpha;
   }
   
   /** Changes the type of character given by its name. The dimensions
@@ -129,7 +177,7 @@ public class Figure extends JLabel
   {
     setType(name); // determine the character type
     loadImages(); // retrieve the character's images
-    Game.getCurrentScene().repaint();
+    repaintScene();
   }
   
   /** Performs two functions: resizes the character and changes the
@@ -146,26 +194,36 @@ public class Figure extends JLabel
     
     setType(name); // determine the character's type
     loadImages(); // retrieve the character's sized images
-    Game.getCurrentScene().repaint();
+    repaintScene();
   }
   
   /** Moves the character from its current position to the specified
-   *  final position at the specified speed in pixels per second.
-   *  The task is handled by computing the horizontal and vertical
-   *  velocities in pixels per second. If fx - ix and fy - iy are
-   *  the changes in x and y respectively, and a = the ratio between
-   *  speed and the distance between the initial and final points,
-   *  then the velocities are computed as vx = a(fx - ix) and
-   *  vy = a(fy - iy), in pixels per second. If a speed too slow
-   *  is specified, then it is increased to a minimum threshold.
-   *  A negative speed is interpreted as a positive speed.
+   *  final position at the specified speed in pixels per second, in a
+   *  straight line. See void moveAlong(MotionPath, int).
    *  @param fx     The x-coordinate to move to.
    *  @param fy     The y-coordinate to move to.
    *  @param speed  The speed of movement in pixels per second. */
   public void moveTo(int fx, int fy, int speed)
   {
-    /* If the character is moved to the same place, return. */
-    if (fx == x && fy == y) {
+    moveAlong(MotionPath.through(x, y, new int[] {fx, fy}), speed);
+  }
+  
+  /** Moves the character along a path at the specified speed in pixels
+   *  per second. The path should start at the character's current
+   *  position. The task is handled by computing how long the whole path
+   *  takes at that speed, then placing the character the distance along
+   *  the path it should have covered by the time elapsed. If a speed
+   *  too slow is specified, then it is increased to a minimum threshold.
+   *  A negative speed is interpreted as a positive speed. If the thread
+   *  is interrupted, the character jumps to the end of the path.
+   *  @param path   The path to move along.
+   *  @param speed  The speed of movement in pixels per second. */
+  public void moveAlong(MotionPath path, int speed)
+  {
+    /* If the character isn't going anywhere, return. */
+    double length = path.getLength();
+    if (length == 0.0) {
+      setPosition(path.getEndX(), path.getEndY());
       return;
     }
     
@@ -177,64 +235,54 @@ public class Figure extends JLabel
       speed = 1;
     }
     
-    /* Compute the ratio a. */
-    double a = speed / sqrt(pow(fx - x, 2) + pow(fy - y, 2));
+    /* How long the move takes in ns. */
+    long duration = (long) (length / speed * 1e9);
     
-    /* Compute the horizontal and vertical speeds. */
-    double vx = a * (fx - x);
-    double vy = a * (fy - y);
+    /* Stores the change in time used in the loop. */
+    long delta = 50000000L; // time between frames in ns
     
-    /* Stores the previous distance from the final position. */
-    double lastDeltaX = abs(x - fx);
-    double lastDeltaY = abs(y - fy);
-    boolean flag = true; // false if distance increases
+    /* Start the timer, on the scene's clock. */
+    Scene in = scene;
+    Clock clock = (in != null) ? in.getClock() : Clock.REAL_TIME;
+    long start = clock.now();
+    long next = start;
+    Point2D.Double point = new Point2D.Double();
     
-    /* Stores the change in time and position used in the loop. */
-    long delta = 50; // change in time in ms
-    long last = -1;
-    double cx = vx / (1000.0 / delta);
-    double cy = vy / (1000.0 / delta); // change in position in px
-    
-    /* Start the timer. */
-    long start = System.currentTimeMillis();
-    
-    /* Continuously modify the position of the character. */
-    while (flag && Game.getCurrentScene() != null)
-    {
-      long current = System.currentTimeMillis();
-      long timeDiff = current - start;
-      long iteration = timeDiff / delta;
-      if (iteration != last) {
+    /* Each frame, place the character where it should be at that moment,
+     * so late frames don't slow the move down. */
+    try {
+      long elapsed;
+      while ((elapsed = clock.now() - start) < duration)
+      {
         /* Set the character's appearance. */
-        if (timeDiff / 500 % 2 == 0) currentState = LEFT;
+        if (elapsed / 500000000L % 2 == 0) currentState = LEFT;
         else currentState = RIGHT;
         
-        setPosition(x + cx, y + cy); // change position
+        path.pointAt(length * elapsed / duration, point);
+        setPosition(point.x, point.y);
         
-        /* Check to see if the character is further away now than before. */
-        double newDeltaX = abs(x - fx);
-        double newDeltaY = abs(y - fy);
-        
-        /* The character moved further away from the goal. */
-        if (newDeltaX > lastDeltaX || newDeltaY > lastDeltaY) {
-          flag = false;
-        }
-        
-        /* The character is still moving toward the goal. */
-        else {
-          lastDeltaX = newDeltaX;
-          lastDeltaY = newDeltaY;
-          last = iteration;
-        }
+        /* Wait for the next frame. */
+        next += delta;
+        clock.sleepUntil(next);
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
     
-    System.out.println("Move time elapsed: "
-    + ( (System.currentTimeMillis() - start) / 1000.0 ) + "s");
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Move time elapsed: {}s", (clock.now() - start) / 1e9);
     
     /* Make sure the character is in the correct position. */
+    finishMove(path);
+  }
+  
+  /** Places the character at the end of a path at once, standing still,
+   *  as if it had just moved along the path.
+   *  @param path   The path the character would have moved along. */
+  public void finishMove(MotionPath path)
+  {
     currentState = STILL;
-    setPosition(fx, fy);
+    setPosition(path.getEndX(), path.getEndY());
   }
   
   /** Sets the horizontal position of the character.
@@ -243,10 +291,7 @@ public class Figure extends JLabel
   {
     x = newX;
     
-    /* Make sure the scene is still running. */
-    if (Game.getCurrentScene() != null) {
-      Game.getCurrentScene().repaint();
-    }
+    repaintScene();
   }
   
   /** Sets the vertical position of the character.
@@ -255,10 +300,7 @@ public class Figure extends JLabel
   {
     y = newY;
     
-    /* Make sure the scene is still running. */
-    if (Game.getCurrentScene() != null) {
-      Game.getCurrentScene().repaint();
-    }
+    repaintScene();
   }
   
   /** Sets the horizontal and vertical position of the character.
@@ -269,10 +311,21 @@ public class Figure extends JLabel
     x = newX;
     y = newY;
     
-    /* Make sure the scene is still running. */
-    if (Game.getCurrentScene() != null) {
-      Game.getCurrentScene().repaint();
-    }
+    repaintScene();
+  }
+  
+  /** Returns the horizontal position of the character's center.
+   *  @return The x-coordinate. */
+  public double getCenterX()
+  {
+    return x;
+  }
+  
+  /** Returns the vertical position of the character's base.
+   *  @return The y-coordinate. */
+  public double getBaseY()
+  {
+    return y;
   }
   
   /** Returns the character's unique identification label.
@@ -282,27 +335,60 @@ public class Figure extends JLabel
     return id;
   }
   
+  /** Sets the scene the character is in, which is repainted whenever
+   *  the character changes.
+   *  @param scene  The scene, or null if the character isn't in one. */
+  public void setScene(Scene scene)
+  {
+    this.scene = scene;
+  }
+  
+  /** Returns the name of the character's type, as used by the add
+   *  command, e.g. "rick".
+   *  @return The type's name. */
+  public String getTypeName()
+  {
+    return type.name().toLowerCase();
+  }
+  
+  /** Returns the current appearance of the character.
+   *  @return The appearance, e.g. STILL or LEFT. */
+  public int getState()
+  {
+    return currentState;
+  }
+  
   /** Sets the appearance of the character when it is not moving.
    *  @param The appearance to set. */
   public void setState(String state)
+  {
+    currentState = parseState(state);
+  }
+  
+  /** Returns the appearance named by a keyword or number, as used in
+   *  animation files. Anything that isn't a valid appearance is taken
+   *  as the still image.
+   *  @param state  The appearance's keyword or number.
+   *  @return The appearance, e.g. STILL or LEFT. */
+  public static int parseState(String state)
   {
     /* First, try to see if it's an integer. */
     try {
       int newState = Integer.parseInt(state);
       
       /* Make sure the integer is within bounds. */
-      currentState = (STILL <= newState && newState <= ACTION2) ?
+      return (STILL <= newState && newState <= ACTION2) ?
       newState : STILL;
     }
     
     /* The state is sent as a non-integer. */
     catch (NumberFormatException e) {
-      /* Set the state based on its keyword. */
-      if (state.equals("left")) currentState = LEFT;
-      else if (state.equals("right")) currentState = RIGHT;
-      else if (state.equals("action1")) currentState = ACTION1;
-      else if (state.equals("action2")) currentState = ACTION2;
-      else currentState = STILL;
+      /* Find the state based on its keyword. */
+      if (state.equals("left")) return LEFT;
+      else if (state.equals("right")) return RIGHT;
+      else if (state.equals("action1")) return ACTION1;
+      else if (state.equals("action2")) return ACTION2;
+      else return STILL;
     }
   }
   
@@ -317,14 +403,7 @@ public class Figure extends JLabel
   private void setType(String name)
   {
     /* Figure out the relevant FigureType ID. */
-    if (name.equals("jason")) type = FigureType.JASON;
-    else if (name.equals("paul")) type = FigureType.PAUL;
-    else if (name.equals("rick")) type = FigureType.RICK;
-    else if (name.equals("sam")) type = FigureType.SAM;
-    else if (name.equals("shin")) type = FigureType.SHIN;
-    else if (name.equals("heather")) type = FigureType.HEATHER;
-    else if (name.equals("enemy")) type = FigureType.ENEMY;
-    else type = FigureType.MOB;
+    type = FigureType.of(name);
   }
   
   /** Sets the scale of the character's images.
@@ -333,12 +412,21 @@ public class Figure extends JLabel
   private void setRelativeSize(double size)
   {
     relativeSize = (size > 0.0) ? size : 1.0;
+    displaySize = relativeSize;
+  }
+  
+  /** Repaints the scene the character is in, if it's in one. */
+  private void repaintScene()
+  {
+    Scene current = scene;
+    if (current != null) current.repaint();
   }
   
   /** Loads the array of animation images based on the current
    *  size and type. */
   private void loadImages()
   {
+    AssetProfile.record(type, relativeSize);
     images = type.getAnimationImagesResized(relativeSize);
   }
   
@@ -351,7 +439,8 @@ public class Figure extends JLabel
    *  Paints the character on the window at its current coordinates.
    *  The x-coordinate is considered the center, and the y-coordinate
    *  is considered the base or bottom. If the character is currently
-   *  moving, then it is animated as well. */
+   *  moving, then it is animated as well. If the character's images
+   *  don't match the size it's drawn at, they're stretched to fit. */
   @Override
   public void paintComponent(Graphics g)
   {
@@ -360,11 +449,36 @@ public class Figure extends JLabel
     /* Determine the ImageIcon to use. */
     ImageIcon icon = images[currentState];
     
-    /* Display the image in the correct location.
+    /* The height the image should be drawn at. The images may have
+     * been rescaled to another size, so check against the image. */
+    double height
+    = type.getAnimationImages()[currentState].getIconHeight() * displaySize;
+    double scale = height / icon.getIconHeight();
+    float opacity = alpha;
+    
+    /* Nothing to stretch or fade: paint the image as it is.
      * "x" should be the center of the image, and
      * "y" should be the bottom of the image. */
-    int paintX = (int) x - icon.getIconWidth() / 2;
-    int paintY = (int) y - icon.getIconHeight();
-    icon.paintIcon(this, g, paintX, paintY);
+    if (abs(height - icon.getIconHeight()) < 1.0 && opacity >= 1.0f) {
+      int paintX = (int) x - icon.getIconWidth() / 2;
+      int paintY = (int) y - icon.getIconHeight();
+      icon.paintIcon(this, g, paintX, paintY);
+      return;
+    }
+    if (opacity <= 0.0f) return;
+    
+    /* Otherwise, draw the image through a transform. */
+    Graphics2D g2d = (Graphics2D) g.create();
+    try {
+      g2d.setComposite(AlphaComposite.SrcOver.derive(opacity));
+      g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+      RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      AffineTransform transform = AffineTransform.getTranslateInstance
+      (x - icon.getIconWidth() * scale / 2, y - height);
+      transform.scale(scale, scale);
+      g2d.drawImage(icon.getImage(), transform, this);
+    } finally {
+      g2d.dispose();
+    }
   }
 }
\ No newline at end of file
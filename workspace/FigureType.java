@@ -1,5 +1,8 @@
 import java.awt.*;
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.*;
 
 /** Defines all of the possible character types in the game. Each
@@ -24,6 +27,10 @@ import javax.swing.*;
  *  with respect to the height of the window). Either way, the
  *  returned array is immutable.
  *
+ *  Resized image arrays are cached, so asking for the same scale again
+ *  returns the same array without rescaling. Each character keeps only
+ *  its most recently used scales.
+ *
  *  @author Paul Shin
  *  @since 0.1.0
  *  @version 0.1.0
@@ -45,8 +52,30 @@ public enum FigureType
   
   /* PRIVATE DATA */
   
-  /** The animation images for each character. */
-  private final ImageIcon[] animationImages;
+  /** The animation images for each character; null until loaded. */
+  private volatile ImageIcon[] images;
+  
+  /** The path to the character's image files from the base images
+   *  directory, plus the character's name. */
+  private final String image;
+  
+  /** The number of resized image arrays kept for each character. */
+  public static final int CACHE_SIZE = 16;
+  
+  /* The number of resized image requests served with and without the
+   * cache, over every character. */
+  private static final AtomicLong cacheHits = new AtomicLong();
+  private static final AtomicLong cacheMisses = new AtomicLong();
+  
+  /** The resized image arrays by scale, least recently used first. */
+  private final LinkedHashMap<Double, ImageIcon[]> resized
+  = new LinkedHashMap<Double, ImageIcon[]>(CACHE_SIZE * 2, 0.75f, true)
+  {
+    protected boolean removeEldestEntry(Map.Entry<Double, ImageIcon[]> e)
+    {
+      return size() > CACHE_SIZE;
+    }
+  };
   
   
   
@@ -54,63 +83,68 @@ public enum FigureType
   
   /** Constructor for the FigureType enum. This method takes in
    *  a string representing the path to the image files from the
-   *  base images directory, plus the figure's name. It then
-   *  loads all of the relevant images for the specified character,
-   *  filling in any gaps at the end of the array with the default
-   *  still image.
+   *  base images directory, plus the figure's name. The images
+   *  themselves are loaded the first time they're asked for.
    *  @param image    The path to a character's image files and its name. */
   FigureType(String image)
   {
-    String path = "..\\images\\"; // relative location to image directory
-    
-    /* Determine the number of relevant image files. */
-    int first_non_image = -1; // first occurrance of a non-existant image
-    while (new File(path + image + ++first_non_image + ".png").exists()) {}
-    
-    /* Initialize the animationImages array to a max size of 5. */
-    animationImages = new ImageIcon[5];
-    
-    /* Load the animationImages array with all provided images.
-     * If less than 4 images exist, use the default first image. */
-    for (int i = 0; i < animationImages.length; i++)
-    {
-      String fn = ""; // store the relative location to image here
-      
-      /* Retrieve the location of the file. */
-      if (i < first_non_image) {
-        fn = path + image + i + ".png";
-        System.out.println("Loaded character image: " + fn);
-      } else {
-        fn = path + image + 0 + ".png";
-      }
-      
-      /* Load the image first. */
-      ImageIcon loaded_image = new ImageIcon(fn);
-      
-      /* Determine the width and height of loaded image. */
-      int load_height = Game.HEIGHT;
-      int load_width
-      = (int) ( ( (double) Game.HEIGHT / loaded_image.getIconHeight() )
-      * loaded_image.getIconWidth() );
-      
-      /* Add the image to the array as an icon. */
-      animationImages[i]
-      = new ImageIcon
-      ( loaded_image.getImage().getScaledInstance
-      ( load_width, load_height, Image.SCALE_SMOOTH ) );
-    }
+    this.image = image;
   }
   
   
   
   /* PUBLIC FUNCTIONS */
   
+  /** Returns the character type with the given name, as used in
+   *  animation files. If an invalid name is sent in, then a mob is
+   *  returned instead.
+   *  @param name   The name of the character.
+   *  @return The character type with that name. */
+  public static FigureType of(String name)
+  {
+    if (name.equals("jason")) return JASON;
+    else if (name.equals("paul")) return PAUL;
+    else if (name.equals("rick")) return RICK;
+    else if (name.equals("sam")) return SAM;
+    else if (name.equals("shin")) return SHIN;
+    else if (name.equals("heather")) return HEATHER;
+    else if (name.equals("enemy")) return ENEMY;
+    else return MOB;
+  }
+  
+  /** Returns the path to the image file for an appearance, from the
+   *  base images directory. If the file doesn't exist, the appearance
+   *  shows the still image instead. Note that the files are found by
+   *  counting up from the still image, so a file is only used if every
+   *  file before it exists as well.
+   *  @param state    The appearance, e.g. Figure.STILL.
+   *  @return The path to the image file, e.g. "char_main\\rick0.png". */
+  public String getImageFile(int state)
+  {
+    return image + state + ".png";
+  }
+  
   /** Returns the array of animation image files. Note that this array
-   *  cannot be modified.
+   *  cannot be modified. The images are loaded the first time they're
+   *  asked for.
    *  @return The array of animation image files. */
   public ImageIcon[] getAnimationImages()
   {
-    return animationImages;
+    ImageIcon[] loaded = images;
+    if (loaded == null) {
+      synchronized (this) {
+        if (images == null) images = load();
+        loaded = images;
+      }
+    }
+    return loaded;
+  }
+  
+  /** Returns whether the character's images have been loaded yet.
+   *  @return true if getAnimationImages() won't have to load them. */
+  public boolean isLoaded()
+  {
+    return images != null;
   }
   
   /** Returns the array of animation image files with resized images
@@ -121,6 +155,17 @@ public enum FigureType
    *  @return The array of animation image files scaled by some factor. */
   public ImageIcon[] getAnimationImagesResized(double scale)
   {
+    /* Reuse the images if this scale has been requested recently. */
+    synchronized (resized) {
+      ImageIcon[] cached = resized.get(scale);
+      if (cached != null) {
+        cacheHits.incrementAndGet();
+        return cached;
+      }
+    }
+    cacheMisses.incrementAndGet();
+    
+    ImageIcon[] animationImages = getAnimationImages();
     final ImageIcon[] animationImagesResized // holds the scaled instances
     = new ImageIcon[animationImages.length]; // of the animation images
     int[] newWidths = new int[animationImages.length]; // width of scaled img
@@ -138,13 +183,158 @@ public enum FigureType
     for (int i = 0; i < animationImagesResized.length; i++)
     {
       ImageIcon currentImage = animationImages[i];
+      AssetLoadEvent event = new AssetLoadEvent();
+      event.begin();
       ImageIcon scaledImage /* scale the image */
       = new ImageIcon
       ( currentImage.getImage().getScaledInstance
       ( newWidths[i], newHeights[i], Image.SCALE_SMOOTH) );
+      if (event.shouldCommit()) {
+        event.asset = name();
+        event.operation = "scale";
+        event.width = newWidths[i];
+        event.height = newHeights[i];
+        event.commit();
+      }
       animationImagesResized[i] = scaledImage; /* add the scaled image */
     }
     
+    synchronized (resized) {
+      resized.put(scale, animationImagesResized);
+    }
     return animationImagesResized;
   }
-}
\ No newline at end of file
+  
+  /** Returns whether the images at the given scale are already cached,
+   *  without counting it as a use of them.
+   *  @param scale    The factor by which the images are scaled.
+   *  @return true if getAnimationImagesResized(scale) wouldn't rescale. */
+  public boolean isCached(double scale)
+  {
+    synchronized (resized) {
+      return resized.containsKey(scale);
+    }
+  }
+  
+  /** Returns roughly how many bytes the images at the given scale take
+   *  up once drawn, at four bytes a pixel.
+   *  @param scale    The factor by which the images are scaled.
+   *  @return The estimated size of the scaled images in bytes. */
+  public long getResizedBytes(double scale)
+  {
+    ImageIcon[] animationImages = getAnimationImages();
+    long bytes = 0;
+    for (int i = 0; i < animationImages.length; i++)
+    {
+      ImageIcon currentImage = animationImages[i];
+      bytes += 4L * (long) Math.ceil(currentImage.getIconWidth() * scale)
+      * (long) Math.ceil(currentImage.getIconHeight() * scale);
+    }
+    return bytes;
+  }
+  
+  /** Returns the number of resized image arrays currently cached, over
+   *  every character.
+   *  @return The number of cached image arrays. */
+  public static int getCacheSize()
+  {
+    int size = 0;
+    for (FigureType type : values())
+    {
+      synchronized (type.resized) {
+        size += type.resized.size();
+      }
+    }
+    return size;
+  }
+  
+  /** Returns the number of resized image requests served from the cache.
+   *  @return The number of cache hits. */
+  public static long getCacheHits()
+  {
+    return cacheHits.get();
+  }
+  
+  /** Returns the number of resized image requests that had to rescale.
+   *  @return The number of cache misses. */
+  public static long getCacheMisses()
+  {
+    return cacheMisses.get();
+  }
+  
+  /** Starts counting cache hits and misses over again. The cached images
+   *  themselves are kept. */
+  public static void resetCacheCounts()
+  {
+    cacheHits.set(0);
+    cacheMisses.set(0);
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Loads all of the relevant images for the character, filling in
+   *  any gaps at the end of the array with the default still image.
+   *  @return The array of animation image files. */
+  private ImageIcon[] load()
+  {
+    String path = "..\\images\\"; // relative location to image directory
+    
+    /* Determine the number of relevant image files. */
+    int first_non_image = -1; // first occurrance of a non-existant image
+    while (new File(path + image + ++first_non_image + ".png").exists()) {}
+    
+    /* Initialize the animationImages array to a max size of 5. */
+    ImageIcon[] animationImages = new ImageIcon[5];
+    
+    /* Load the animationImages array with all provided images.
+     * If less than 4 images exist, use the default first image. */
+    for (int i = 0; i < animationImages.length; i++)
+    {
+      String fn = ""; // store the relative location to image here
+      
+      /* Retrieve the location of the file. */
+      if (i < first_non_image) {
+        fn = path + image + i + ".png";
+        Log.debug("Loaded character image: {}", fn);
+      } else {
+        fn = path + image + 0 + ".png";
+      }
+      
+      /* Load the image first. */
+      AssetLoadEvent decode = new AssetLoadEvent();
+      decode.begin();
+      ImageIcon loaded_image = new ImageIcon(fn);
+      if (decode.shouldCommit()) {
+        decode.asset = fn;
+        decode.operation = "decode";
+        decode.width = loaded_image.getIconWidth();
+        decode.height = loaded_image.getIconHeight();
+        decode.commit();
+      }
+      
+      /* Determine the width and height of loaded image. */
+      int load_height = Game.HEIGHT;
+      int load_width
+      = (int) ( ( (double) Game.HEIGHT / loaded_image.getIconHeight() )
+      * loaded_image.getIconWidth() );
+      
+      /* Add the image to the array as an icon. */
+      AssetLoadEvent scale = new AssetLoadEvent();
+      scale.begin();
+      animationImages[i]
+      = new ImageIcon
+      ( loaded_image.getImage().getScaledInstance
+      ( load_width, load_height, Image.SCALE_SMOOTH ) );
+      if (scale.shouldCommit()) {
+        scale.asset = fn;
+        scale.operation = "scale";
+        scale.width = load_width;
+        scale.height = load_height;
+        scale.commit();
+      }
+    }
+    return animationImages;
+  }
+}
@@ -0,0 +1,496 @@
+import java.awt.Graphics2D;
+import java.awt.image.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.imageio.*;
+import javax.imageio.metadata.*;
+import javax.imageio.stream.ImageOutputStream;
+
+/** The FrameExporter class records a scene to image files instead of the
+ *  screen, for trailers and for comparing how scenes look between
+ *  versions. The scene is run on a virtual clock of its own that moves
+ *  on by one frame at a time, so it's recorded at exactly the given
+ *  frame rate however long each frame takes, and usually much faster
+ *  than it plays; any other session in the program carries on in real
+ *  time.
+ *  Buttons are chosen at random, with a fixed seed, so the same scene
+ *  gives the same frames every time.
+ *
+ *  Frames are made in three stages that overlap. The scene is run up to
+ *  each frame's time and a snapshot of it is taken; a pool of render
+ *  threads each put a snapshot back into their own offscreen scene and
+ *  paint it through Scene.paintComponent(Graphics), the same as the game
+ *  window; and a pool of encoding threads compress the painted frames.
+ *  The frames are written either as a numbered PNG sequence, or as one
+ *  looping animated GIF, whose frames are given their own palettes in
+ *  parallel and then written in order.
+ *
+ *  The exporter is run from the workspace directory, the same as the
+ *  game: "java FrameExporter [file] [output] [[fps]] [[seconds]]", where
+ *  file is the scene's animation file, output is the folder to write the
+ *  PNG sequence to, or a file ending in ".gif" for an animated GIF, fps
+ *  is the frame rate (the default is 30), and seconds is the most of the
+ *  scene to record (the default is 600).
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class FrameExporter
+{
+  /** The seed buttons are chosen with. */
+  private static final long SEED = 0;
+  
+  /** The most frames being rendered or encoded at once, per thread. */
+  private static final int FRAMES_PER_THREAD = 4;
+  
+  /** The number of bits kept of each color channel when building a
+   *  frame's palette. */
+  private static final int PALETTE_BITS = 5;
+  
+  /** The scene being recorded. */
+  private final Scene scene;
+  
+  /** The frame rate. */
+  private final int fps;
+  
+  /** The threads that paint frames, and those that encode them. */
+  private final ExecutorService renderPool;
+  private final ExecutorService encodePool;
+  
+  /** Each render thread's own scene to paint snapshots in. */
+  private final ThreadLocal<Scene> canvases = new ThreadLocal<Scene>()
+  {
+    protected Scene initialValue()
+    {
+      Scene canvas = new Scene("", -1);
+      canvas.setSize(Game.WIDTH, Game.HEIGHT);
+      return canvas;
+    }
+  };
+  
+  /** Constructor for the FrameExporter class.
+   *  @param file   The scene's animation file.
+   *  @param fps    The frame rate. */
+  public FrameExporter(String file, int fps)
+  {
+    AnimationReader parser = new AnimationReader();
+    scene = new Scene(file, parser.extractSceneID(file));
+    scene.setSize(Game.WIDTH, Game.HEIGHT);
+    this.fps = Math.max(1, fps);
+  
+    int threads = Runtime.getRuntime().availableProcessors();
+    renderPool = Executors.newFixedThreadPool(threads);
+    encodePool = Executors.newFixedThreadPool(threads);
+  }
+  
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length < 2) {
+      System.out.println
+      ("Usage: java FrameExporter [file] [output] [[fps]] [[seconds]]");
+      return;
+    }
+    int fps = 30;
+    if (args.length > 2) fps = Integer.parseInt(args[2]);
+    double seconds = 600;
+    if (args.length > 3) seconds = Double.parseDouble(args[3]);
+  
+    Log.setLevel(Log.WARN);
+    FrameExporter exporter = new FrameExporter(args[0], fps);
+    long start = System.nanoTime();
+    int frames = exporter.export(new File(args[1]),
+    (int) Math.ceil(seconds * exporter.fps));
+    double wall = (System.nanoTime() - start) / 1e9;
+    double length = (double) frames / exporter.fps;
+  
+    System.out.printf("%,d frames (%.2f s of scene) in %.2f s, %.1fx "
+    + "real time\n", frames, length, wall, length / wall);
+    Log.flush();
+  }
+  
+  /** Records the scene from start to end, or until the most frames have
+   *  been recorded.
+   *  @param output     The folder for a PNG sequence, or a ".gif" file.
+   *  @param maxFrames  The most frames to record.
+   *  @return The number of frames recorded.
+   *  @throws IOException if a frame can't be written.
+   *  @throws InterruptedException if interrupted while recording. */
+  public int export(File output, int maxFrames)
+  throws IOException, InterruptedException
+  {
+    boolean gif = output.getName().toLowerCase().endsWith(".gif");
+    GifSequence sequence = null;
+    if (gif) {
+      sequence = new GifSequence(output, fps);
+    } else if (!output.isDirectory() && !output.mkdirs()) {
+      throw new IOException("Could not create " + output);
+    }
+  
+    /* Run the scene on its own thread, on a virtual clock of its own. */
+    final Clock clock = Clock.virtualTime();
+    scene.setClock(clock);
+    final AnimationReader reader = new AnimationReader();
+    reader.setClock(clock);
+    reader.setChooser(new Random(SEED));
+    final CompletableFuture<Void> played = new CompletableFuture<Void>();
+    Thread player = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        try {
+          reader.animate(scene);
+        } finally {
+          played.complete(null);
+          clock.exit();
+        }
+      }
+    }, "Exporter");
+    player.setDaemon(true);
+    clock.enter();
+    player.start();
+  
+    /* Keep only so many frames in memory at once. */
+    int threads = Runtime.getRuntime().availableProcessors();
+    Semaphore inFlight = new Semaphore(threads * FRAMES_PER_THREAD);
+    ArrayList<CompletableFuture<Void>> written
+    = new ArrayList<CompletableFuture<Void>>();
+    CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+  
+    long frameTime = 1000000000L / fps;
+    int frames = 0;
+    try {
+      while (frames < maxFrames)
+      {
+        /* Run the scene up to the frame's time, and take a snapshot. */
+        clock.advanceTo(frames * frameTime);
+        boolean ended = played.isDone();
+        inFlight.acquire();
+        Snapshot snapshot = scene.snapshot(0, 0);
+  
+        /* Render and encode it on the pools. */
+        CompletableFuture<BufferedImage> image = render(snapshot);
+        CompletableFuture<Void> done;
+        if (gif) {
+          lastWrite = sequence.append(image.thenApplyAsync
+          (new Function<BufferedImage, BufferedImage>()
+          {
+            public BufferedImage apply(BufferedImage frame)
+            {
+              return quantize(frame);
+            }
+          }, encodePool), lastWrite);
+          done = lastWrite;
+        } else {
+          done = writePng(image, new File(output,
+          String.format("frame_%05d.png", frames)));
+        }
+        written.add(release(done, inFlight));
+        frames++;
+  
+        if (ended) break;
+      }
+  
+      /* Wait for every frame to be written. */
+      CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0]))
+      .get();
+      if (gif) sequence.close();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException)
+        throw ((UncheckedIOException) cause).getCause();
+      throw new IOException("Export failed", cause);
+    } finally {
+      renderPool.shutdownNow();
+      encodePool.shutdownNow();
+      if (gif) sequence.shutdown();
+    }
+    return frames;
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Paints a snapshot on a render thread.
+   *  @param snapshot   The scene as it was at the frame's time.
+   *  @return A handle on the painted frame. */
+  private CompletableFuture<BufferedImage> render(final Snapshot snapshot)
+  {
+    return CompletableFuture.supplyAsync(new Supplier<BufferedImage>()
+    {
+      public BufferedImage get()
+      {
+        Scene canvas = canvases.get();
+        canvas.restore(snapshot);
+        BufferedImage frame = new BufferedImage
+        (Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        canvas.paintComponent(g);
+        g.dispose();
+        return frame;
+      }
+    }, renderPool);
+  }
+  
+  /** Encodes a frame as a PNG file on an encoding thread.
+   *  @param image  A handle on the painted frame.
+   *  @param file   The file to write.
+   *  @return A handle that is completed once the file is written. */
+  private CompletableFuture<Void> writePng
+  (CompletableFuture<BufferedImage> image, final File file)
+  {
+    return image.thenAcceptAsync(new Consumer<BufferedImage>()
+    {
+      public void accept(BufferedImage frame)
+      {
+        try {
+          ImageIO.write(frame, "png", file);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }, encodePool);
+  }
+  
+  /** Lets another frame be started once a frame has been written.
+   *  @param done       A handle on the frame being written.
+   *  @param inFlight   The frames that may be started.
+   *  @return The handle, once the frame may be replaced. */
+  private static CompletableFuture<Void> release
+  (CompletableFuture<Void> done, final Semaphore inFlight)
+  {
+    return done.whenComplete(new BiConsumer<Void, Throwable>()
+    {
+      public void accept(Void result, Throwable failure)
+      {
+        inFlight.release();
+      }
+    });
+  }
+  
+  /** Reduces a frame to at most 256 colors, for a GIF. The colors are
+   *  counted with a few bits of each channel dropped, the most common
+   *  ones become the frame's palette, and every pixel takes the nearest
+   *  color in it.
+   *  @param frame  The painted frame.
+   *  @return The frame with its own palette. */
+  static BufferedImage quantize(BufferedImage frame)
+  {
+    int w = frame.getWidth();
+    int h = frame.getHeight();
+    int[] pixels = frame.getRGB(0, 0, w, h, null, 0, w);
+  
+    /* Count the colors. */
+    int shift = 8 - PALETTE_BITS;
+    int bins = 1 << (3 * PALETTE_BITS);
+    int[] counts = new int[bins];
+    for (int i = 0; i < pixels.length; i++) counts[bin(pixels[i], shift)]++;
+  
+    /* Take the most common ones as the palette. */
+    long[] ranked = new long[bins];
+    int used = 0;
+    for (int b = 0; b < bins; b++)
+      if (counts[b] > 0) ranked[used++] = ((long) counts[b] << 32) | b;
+    Arrays.sort(ranked, 0, used);
+    int size = Math.min(256, used);
+    byte[] r = new byte[size];
+    byte[] g = new byte[size];
+    byte[] b = new byte[size];
+    int[] pr = new int[size];
+    int[] pg = new int[size];
+    int[] pb = new int[size];
+    for (int i = 0; i < size; i++)
+    {
+      int bin = (int) ranked[used - 1 - i];
+      pr[i] = channel(bin >> (2 * PALETTE_BITS), shift);
+      pg[i] = channel(bin >> PALETTE_BITS, shift);
+      pb[i] = channel(bin, shift);
+      r[i] = (byte) pr[i];
+      g[i] = (byte) pg[i];
+      b[i] = (byte) pb[i];
+    }
+  
+    /* Give every color found its nearest color in the palette. */
+    byte[] nearest = new byte[bins];
+    for (int k = used - 1; k >= 0; k--)
+    {
+      int bin = (int) ranked[k];
+      int cr = channel(bin >> (2 * PALETTE_BITS), shift);
+      int cg = channel(bin >> PALETTE_BITS, shift);
+      int cb = channel(bin, shift);
+      int best = 0;
+      int bestDistance = Integer.MAX_VALUE;
+      for (int i = 0; i < size && bestDistance > 0; i++)
+      {
+        int dr = cr - pr[i], dg = cg - pg[i], db = cb - pb[i];
+        int distance = dr * dr + dg * dg + db * db;
+        if (distance < bestDistance) {
+          best = i;
+          bestDistance = distance;
+        }
+      }
+      nearest[bin] = (byte) best;
+    }
+  
+    /* Fill in the frame. */
+    BufferedImage indexed = new BufferedImage(w, h,
+    BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, size, r, g, b));
+    byte[] data
+    = ((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+    for (int i = 0; i < pixels.length; i++)
+      data[i] = nearest[bin(pixels[i], shift)];
+    return indexed;
+  }
+  
+  /** Returns the color bin of a pixel.
+   *  @param rgb    The pixel.
+   *  @param shift  The number of bits dropped from each channel.
+   *  @return The bin. */
+  private static int bin(int rgb, int shift)
+  {
+    int r = ((rgb >> 16) & 0xFF) >> shift;
+    int g = ((rgb >> 8) & 0xFF) >> shift;
+    int b = (rgb & 0xFF) >> shift;
+    return (r << (2 * PALETTE_BITS)) | (g << PALETTE_BITS) | b;
+  }
+  
+  /** Returns the middle of a channel's range in a color bin.
+   *  @param bits   The bin, with the channel in its lowest bits.
+   *  @param shift  The number of bits dropped from each channel.
+   *  @return The channel's value, from 0 to 255. */
+  private static int channel(int bits, int shift)
+  {
+    int value = bits & ((1 << PALETTE_BITS) - 1);
+    return (value << shift) | (1 << shift >> 1);
+  }
+  
+  
+  
+  /** An animated GIF being written one frame at a time, in order. */
+  private static class GifSequence
+  {
+    /** The thread the frames are written on. */
+    private final ExecutorService writerThread
+    = Executors.newSingleThreadExecutor();
+  
+    private final File file;
+    private final ImageWriter writer;
+    private final ImageOutputStream out;
+    private final int fps;
+  
+    /** The number of frames written so far. */
+    private int frames;
+  
+    /** Whether the file has been finished and closed. */
+    private boolean closed = false;
+  
+    GifSequence(File file, int fps) throws IOException
+    {
+      this.file = file;
+      this.fps = fps;
+      writer = ImageIO.getImageWritersByFormatName("gif").next();
+      file.delete();
+      out = ImageIO.createImageOutputStream(file);
+      if (out == null) throw new IOException("Could not create " + file);
+      writer.setOutput(out);
+      writer.prepareWriteSequence(null);
+    }
+  
+    /** Writes a frame once it and every frame before it are ready.
+     *  @param frame      A handle on the frame.
+     *  @param previous   A handle on the previous frame being written.
+     *  @return A handle that is completed once the frame is written. */
+    CompletableFuture<Void> append
+    (final CompletableFuture<BufferedImage> frame,
+     CompletableFuture<Void> previous)
+    {
+      return CompletableFuture.allOf(previous, frame).thenRunAsync
+      (new Runnable()
+      {
+        public void run()
+        {
+          try {
+            write(frame.join());
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }, writerThread);
+    }
+  
+    /** Writes a frame, lasting until the next frame is due. The delays
+     *  are in hundredths of a second, so they're rounded such that they
+     *  add up to the right length.
+     *  @param image  The frame, with its own palette. */
+    private void write(BufferedImage image) throws IOException
+    {
+      int delay = (int) (Math.round((frames + 1) * 100.0 / fps)
+      - Math.round(frames * 100.0 / fps));
+  
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      IIOMetadata metadata = writer.getDefaultImageMetadata
+      (ImageTypeSpecifier.createFromRenderedImage(image), param);
+      String format = metadata.getNativeMetadataFormatName();
+      IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+  
+      IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+      control.setAttribute("disposalMethod", "none");
+      control.setAttribute("userInputFlag", "FALSE");
+      control.setAttribute("transparentColorFlag", "FALSE");
+      control.setAttribute("delayTime", Integer.toString(Math.max(1, delay)));
+      control.setAttribute("transparentColorIndex", "0");
+      root.appendChild(control);
+  
+      /* The first frame makes the animation loop forever. */
+      if (frames == 0) {
+        IIOMetadataNode extensions
+        = new IIOMetadataNode("ApplicationExtensions");
+        IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+        loop.setAttribute("applicationID", "NETSCAPE");
+        loop.setAttribute("authenticationCode", "2.0");
+        loop.setUserObject(new byte[] { 1, 0, 0 });
+        extensions.appendChild(loop);
+        root.appendChild(extensions);
+      }
+  
+      metadata.setFromTree(format, root);
+      writer.writeToSequence(new IIOImage(image, null, metadata), param);
+      frames++;
+    }
+  
+    /** Finishes the file, once every frame has been written. */
+    void close() throws IOException
+    {
+      writer.endWriteSequence();
+      out.close();
+      closed = true;
+    }
+  
+    /** Stops the writer thread. If the file wasn't finished, as when a
+     *  frame couldn't be made, it's closed and deleted rather than left
+     *  cut short. */
+    void shutdown()
+    {
+      writerThread.shutdownNow();
+      try {
+        writerThread.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      writer.dispose();
+      if (closed) return;
+      try {
+        out.close();
+      } catch (IOException e) {}
+      file.delete();
+    }
+  }
+}
@@ -1,39 +1,70 @@
 import java.awt.*;
-import java.io.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.*;
-import java.util.ArrayList;
 
-/** The Game class is in charge of holding all of the scenes in the game
- *  as well as the global characters able to be referenced within each
- *  scene. This class also controls the order in which the AnimationReader
- *  processes scenes, starting with the scene marked with the scene-id 0.
+/** The Game class is the window the game is played in. It holds a
+ *  Session, which holds all of the scenes in the game and controls the
+ *  order in which they are processed, starting with the scene marked
+ *  with the scene-id 0; the window shows each scene as it starts.
  *
- *  When a Game object is created, the first task that's completed is
- *  the loading of all enumeration types for faster retrieving of data
- *  later on. The program then searches the animation_files directory
- *  within projects/adventure1 for animation files with the correct
- *  heading format: "ANIMATION [scene-id] [[background-name]]". Then,
- *  the scenes are sorted for fast retrieval, in case many scenes are
- *  found.
+ *  When a Game object is created, the window is shown at once with the
+ *  title background, before anything else is loaded; the time until it
+ *  is first painted is logged. The session then searches the
+ *  animation_files directory within projects/adventure1 for animation
+ *  files with the correct heading format: "ANIMATION [scene-id]
+ *  [[background-name]]". Then, the scenes are put in a SceneTable, so
+ *  that each one is found at once however many scenes there are.
+ *
+ *  Images are only loaded as they're needed. When the game starts, the
+ *  first scene's own images are loaded, and the scene is started as soon
+ *  as they're ready; every other image is then loaded in the background,
+ *  with the progress shown in the window's title.
  *
  *  To start the game, the run() function is called, which first searches
  *  for the scene with an ID of 0, then continues until a scene returns
  *  either a negative or a non-existant scene-id.
  *
+ *  While the game is running, pressing F9 prints the execution counts
+ *  and latencies of every command that has been run so far, and F3
+ *  shows or hides the performance overlay. When buttons are shown, the
+ *  number keys 1 to 9 press them in order. Pressing S skips ahead to
+ *  the next choice or the end of the scene, and the left and right arrow
+ *  keys seek five seconds back or forward in the scene's script (Home
+ *  seeks to its start). Pressing F5 saves the game to SAVE_FILE, and
+ *  resume(Path) carries on from a saved game. The game's live figures are
+ *  also published as the JMX MBean "rickrangers:type=EngineMetrics".
+ *  With the system property "reload" set, animation files are reloaded
+ *  as they're edited; see ScriptWatcher.
+ *  The images the game asks for are recorded in an AssetProfile when it
+ *  exits, and got ready in the same order the next time it starts.
+ *
  *  @author Paul Shin
  *  @since 0.1.0
  *  @version 0.1.0
  */
 public class Game extends JFrame
 {
-  /** The collection of scenes present in the game. */
-  private ArrayList<Scene> scenes;
+  /** The game being played in this window. */
+  private final Session session;
   
   /** The utility used to read and process animation files. */
-  private AnimationReader aReader;
+  private final AnimationReader aReader;
+  
+  /** The performance overlay shown over every scene. */
+  private PerformanceOverlay overlay;
+  
+  /** Where the game is saved when F5 is pressed. */
+  public static final Path SAVE_FILE = Paths.get("..\\saves\\quicksave.sav");
+  
+  /** When the window was created, from System.nanoTime(). */
+  private final long created = System.nanoTime();
   
-  /** The current scene being processed. */
-  private static Scene currentScene = null;
+  /** How far the arrow keys seek, in milliseconds. */
+  private static final long SEEK_STEP = 5000;
   
   /* The scale of the JFrame window. */
   public static final int WIDTH = 1000;
@@ -41,29 +72,143 @@ public class Game extends JFrame
   
   /** Constructor for the Game class. Represents the window of the
    *  game that retrieves and holds all of the scenes. When called,
-   *  the constructor also loads all of the enumerations so that
-   *  they can be quickly retrieved later. */
+   *  the constructor shows the window with the title background first,
+   *  so there's something to see while the scenes are found. */
   public Game() {
     super("Game");
     
-    /* Load the enumerations. */
-    try {
-      Class.forName("FigureType");
-      Class.forName("BackgroundType");
-    } catch (ClassNotFoundException e) {}
+    /* Show the window at once, before anything else is loaded. */
+    showTitle();
+    
+    /* Get the images the last game asked for ready while the first
+     * scene shows, and remember this game's for next time. */
+    AssetProfile.warm(AssetProfile.PROFILE_FILE);
+    AssetProfile.saveOnExit(AssetProfile.PROFILE_FILE);
     
     /* Initialize private fields. */
-    scenes = new ArrayList<Scene>();
-    aReader = new AnimationReader();
-    currentScene = null;
+    overlay = new PerformanceOverlay();
     
-    /* Load and sort the scenes. */
-    load_scenes();
-    sort_scenes();
+    /* Load the scenes, showing each one in the window as it starts. */
+    session = new Session(Session.ANIMATION_FOLDER)
+    {
+      protected void sceneStarting(Scene scene)
+      {
+        scene.setOverlay(overlay);
+        setContentPane(scene);
+        pack();
+      }
+    };
+    aReader = session.getReader();
     
-    /* Finish graphical setup. */
-    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    setVisible(true);
+    /* Get each scene's next scenes ready while it plays. */
+    session.setPrefetcher(new Prefetcher());
+    
+    /* Reload animation files as they're edited, if asked to. */
+    if (Boolean.getBoolean("reload")) {
+      try {
+        new ScriptWatcher(session, Session.ANIMATION_FOLDER,
+        Boolean.getBoolean("reload.restart")).start();
+      } catch (IOException e) {
+        Log.warn("Could not watch {}: {}", Session.ANIMATION_FOLDER,
+        e.getMessage());
+      }
+    }
+    
+    /* Publish the engine's live figures over JMX. */
+    new EngineMetrics(aReader).register();
+    
+    /* Print the command statistics whenever F9 is pressed. */
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+    (KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0), "dumpStats");
+    getRootPane().getActionMap().put("dumpStats", new AbstractAction()
+    {
+      public void actionPerformed(ActionEvent e)
+      {
+        aReader.getStats().dump(System.out);
+      }
+    });
+    
+    /* Show or hide the performance overlay whenever F3 is pressed. */
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+    (KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleOverlay");
+    getRootPane().getActionMap().put("toggleOverlay", new AbstractAction()
+    {
+      public void actionPerformed(ActionEvent e)
+      {
+        overlay.toggle();
+        Scene scene = session.getCurrentScene();
+        if (scene != null) scene.repaint();
+      }
+    });
+    
+    /* Save the game whenever F5 is pressed. */
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+    (KeyStroke.getKeyStroke(KeyEvent.VK_F5, 0), "save");
+    getRootPane().getActionMap().put("save", new AbstractAction()
+    {
+      public void actionPerformed(ActionEvent e)
+      {
+        save(SAVE_FILE);
+      }
+    });
+    
+    /* Skip ahead to the next choice whenever S is pressed. */
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+    (KeyStroke.getKeyStroke(KeyEvent.VK_S, 0), "skip");
+    getRootPane().getActionMap().put("skip", new AbstractAction()
+    {
+      public void actionPerformed(ActionEvent e)
+      {
+        aReader.skip();
+      }
+    });
+    
+    /* Seek back or forward in the scene with the arrow keys. */
+    int[] seekKeys = {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT};
+    long[] seekSteps = {-SEEK_STEP, SEEK_STEP};
+    for (int i = 0; i < seekKeys.length; i++)
+    {
+      final long step = seekSteps[i];
+      getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+      (KeyStroke.getKeyStroke(seekKeys[i], 0), "seek" + i);
+      getRootPane().getActionMap().put("seek" + i, new AbstractAction()
+      {
+        public void actionPerformed(ActionEvent e)
+        {
+          aReader.seek(aReader.getScriptTime() + step);
+        }
+      });
+    }
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+    (KeyStroke.getKeyStroke(KeyEvent.VK_HOME, 0), "seekStart");
+    getRootPane().getActionMap().put("seekStart", new AbstractAction()
+    {
+      public void actionPerformed(ActionEvent e)
+      {
+        aReader.seek(0);
+      }
+    });
+    
+    /* Press the n-th button whenever the number key n is pressed. */
+    for (int i = 1; i <= 9; i++)
+    {
+      final int index = i - 1;
+      getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+      (KeyStroke.getKeyStroke(KeyEvent.VK_0 + i, 0), "choice" + i);
+      getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put
+      (KeyStroke.getKeyStroke(KeyEvent.VK_NUMPAD0 + i, 0), "choice" + i);
+      getRootPane().getActionMap().put("choice" + i, new AbstractAction()
+      {
+        public void actionPerformed(ActionEvent e)
+        {
+          Scene scene = session.getCurrentScene();
+          if (scene != null) scene.pressButton(index);
+        }
+      });
+    }
+    
+    Log.info("Found {} scenes {} ms after start", session.getSceneCount(),
+    (System.nanoTime() - created) / 1e6);
   }
   
   /** Function to start processing the animation files and display
@@ -72,123 +217,135 @@ public class Game extends JFrame
    *  no animations are displayed. */
   public void run()
   {
-    /* The first scene should be marked as 0. */
-    currentScene = find_scene(0);
-    
-    /* Keep animating until the next scene isn't found. */
-    while (currentScene != null)
-    {
-      /* Set up the new scene. */
-      setContentPane(currentScene);
-      pack();
-      System.out.println();
-      
-      /* Animate the new scene. */
-      currentScene
-      = find_scene
-      ( aReader.animate(currentScene) );
-    }
+    /* Start the first scene as soon as its own images are ready. */
+    Scene first = session.getScene(0);
+    if (first != null) prepare(first);
+    loadRemaining();
+    session.run();
   }
   
-  /** Function to find the scene with the given ID. This operation
-   *  performs a binary search, and thus assumes that the scene array
-   *  has been sorted prior to calling.
-   *  Precondition: sort_scenes() has been called previously.
-   *  @param id     The scene ID to find.
-   *  @return The scene with the specified ID if it exists; null if not. */
-  private Scene find_scene(int id)
+  /** Function to carry on a saved game. The saved scene is put back as it
+   *  was, and animated from the command that was being run when the game
+   *  was saved; the commands before it aren't run again. If the save
+   *  can't be read, the game starts from the beginning instead.
+   *  @param file   The saved game. */
+  public void resume(Path file)
   {
-    /* BINARY SEARCH */
-    
-    /* Preliminary set-up. */
-    int lo = 0;
-    int hi = scenes.size() - 1;
-    
-    while (hi >= lo)
-    {
-      /* Retrieve the scene in the middle and its ID. */
-      int mid = (hi + lo) / 2;
-      Scene current_scene = scenes.get(mid);
-      int current_id = current_scene.getSceneID();
-      
-      /* The search ID is higher up in the list. */
-      if (id > current_id) lo = mid + 1;
-      
-      /* The search ID is lower in the list. */
-      else if (id < current_id) hi = mid - 1;
-      
-      /* The search ID matches exactly. */
-      else return current_scene;
-    }
-    
-    /* No scene with the specified ID has been found. */
-    return null;
+    /* Start the saved scene as soon as its own images are ready; the
+     * session starts from the first scene if it isn't found. */
+    Scene first = null;
+    try {
+      first = session.getScene(Snapshot.read(file).getSceneID());
+    } catch (IOException e) {}
+    if (first == null) first = session.getScene(0);
+    if (first != null) prepare(first);
+    loadRemaining();
+    session.resume(file);
   }
   
-  /** Function to sort the scenes based on their ID numbers. A lower
-   *  ID number will be placed towards the front of the list. This
-   *  method uses insertion sort to sort the list. */
-  private void sort_scenes()
+  /** Function to save the game. The scene's reader saves it at the next
+   *  command where nothing is moving; see Session.save(Path). Does nothing
+   *  if no scene is being animated.
+   *  @param file   Where to save the game. */
+  public void save(Path file)
   {
-    /* INSERTION SORT */
-    
-    /* Start at the second item and move to the last item. */
-    int len = scenes.size();
-    for (int i = 1; i < len; i++)
-    {
-      /* Store the value of the item at the current index. */
-      Scene current_scene = scenes.get(i);
-      int current_id = current_scene.getSceneID();
-      
-      int j = i;
-      Scene temp_scene;
-      /* Shift scenes right until you find a smaller ID. */
-      while (--j >= 0
-      && ( temp_scene = scenes.get(j) ).getSceneID() > current_id)
-        scenes.set(j + 1, temp_scene);
-      
-      /* Place the scene at index i in the appropriate location. */
-      scenes.set(j + 1, current_scene);
-    }
+    session.save(file);
   }
   
-  /** Function which searches the animation_files directory within
-   *  the project folder for animation files. These animation files
-   *  are tested for the proper heading format which denotes it as
-   *  an animation file, and then proceeds to store it in the array. */
-  private void load_scenes()
+  /** Function to get the session being played in this window.
+   *  @return The window's session. */
+  public Session getSession()
   {
-    /* Retrieve the files in the animation folder. */
-    String folderPath = "..\\animation_files";
-    File folder = new File(folderPath);
-    File[] files = folder.listFiles();
-    
-    /* Loop through each file. */
-    for (int i = 0; i < files.length; i++)
+    return session;
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Function to show the window with nothing but the title background,
+   *  and to log how long after start it's first painted. */
+  private void showTitle()
+  {
+    Scene title = new Scene(null, -1)
     {
-      File f = files[i];
-      String fName = folderPath + "\\" + f.getName();
+      private boolean painted = false;
       
-      /* Make sure it's an animation file. */
-      if (f.isFile() && aReader.isAnimationFile(fName)) {
-        System.out.println("Loaded animation file: " + fName);
-        Scene newScene = new Scene
-        (fName, aReader.extractSceneID(fName));
-        scenes.add(newScene);
+      public void paintComponent(Graphics g)
+      {
+        super.paintComponent(g);
+        if (painted) return;
+        painted = true;
+        Log.info("First frame {} ms after start ({} ms since JVM start)",
+        (System.nanoTime() - created) / 1e6,
+        ManagementFactory.getRuntimeMXBean().getUptime());
       }
+    };
+    title.setBackgroundImage("title");
+    setContentPane(title);
+    pack();
+    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    setVisible(true);
+  }
+  
+  /** Function to load the backgrounds and character sizes a scene shows,
+   *  so that the scene doesn't have to stop for them.
+   *  @param scene  The scene to get ready. */
+  private void prepare(Scene scene)
+  {
+    try {
+      SceneAssets assets = SceneAssets.of(scene.getAnimationFile());
+      for (BackgroundType type : assets.getBackgrounds()) type.getImage();
+      for (SceneAssets.Sizing s : assets.getSizings())
+        s.getType().getAnimationImagesResized(s.getScale());
+    } catch (IOException e) {
+      Log.warn("Could not read {}: {}", scene.getAnimationFile(),
+      e.getMessage());
+    } catch (IllegalArgumentException e) {
+      Log.warn("Could not load the images of scene {}", scene.getSceneID());
     }
+    Log.info("Scene {} ready {} ms after start", scene.getSceneID(),
+    (System.nanoTime() - created) / 1e6);
   }
   
-  /** Function to get the current scene being processed and animated.
-   *  @return The current scene being processed. */
-  public static Scene getCurrentScene()
+  /** Function to load every image that hasn't been loaded yet, on a
+   *  background thread, showing the progress in the window's title. */
+  private void loadRemaining()
   {
-    return currentScene;
+    Thread loader = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        long start = System.nanoTime();
+        BackgroundType[] bgs = BackgroundType.values();
+        FigureType[] figures = FigureType.values();
+        int total = bgs.length + figures.length;
+        for (int i = 0; i < total; i++)
+        {
+          if (i < bgs.length) bgs[i].getImage();
+          else figures[i - bgs.length].getAnimationImages();
+          showProgress((i + 1) * 100 / total);
+        }
+        Log.info("Loaded {} images in the background in {} ms", total,
+        (System.nanoTime() - start) / 1e6);
+      }
+    }, "Asset loader");
+    loader.setDaemon(true);
+    loader.setPriority(Thread.MIN_PRIORITY);
+    loader.start();
   }
   
-  public static void updateScene () {
-    if (currentScene != null) {
-      currentScene.repaint();
-    }
+  /** Function to show how much has been loaded in the window's title.
+   *  @param percent  How much has been loaded, from 0 to 100. */
+  private void showProgress(final int percent)
+  {
+    EventQueue.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        setTitle((percent < 100) ? "Game (loading " + percent + "%)"
+        : "Game");
+      }
+    });
   }
 }
@@ -7,8 +7,8 @@ import javax.swing.*;
  *  a line-id), which when pressed is similar to calling the goto
  *  command. This is achieved by having the game button set the
  *  value of the scene's result variable when an action is detected,
- *  which indicates to the AnimationReader that a button has been
- *  pressed and which one has been pressed.
+ *  which wakes the AnimationReader and tells it which button has been
+ *  pressed.
  *
  *  @author Paul Shin
  *  @since 0.1.0
@@ -50,8 +50,9 @@ public class GameButton extends JButton
         GameButton button = (GameButton) e.getSource(); // retrieve button
         Scene sc = button.getContainingScene(); // retrieve scene
         sc.setResult(button.getLink()); // set result variable in scene
-        System.out.println("Button clicked: "
-        + button.getButtonLabel() + " -> " + button.getLink());
+        if (Log.isEnabled(Log.DEBUG))
+          Log.debug("Button clicked: {} -> {}",
+          button.getButtonLabel(), button.getLink());
       }
     });
     
@@ -0,0 +1,169 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A histogram of latencies measured in nanoseconds. Values are counted
+ *  in buckets whose width grows with the size of the value, so a small
+ *  fixed-size array can cover everything from a single nanosecond up to
+ *  several minutes while keeping the same relative precision throughout.
+ *  Each power of two is split into 2^precision equal sub-buckets; with a
+ *  precision of 3, for example, every recorded value is known to within
+ *  12.5% of its real value.
+ *
+ *  Recording a value never locks and never allocates: it only performs
+ *  a few atomic increments. This allows the interpreter to record every
+ *  command it runs while other threads read the histogram at any time.
+ *  Readers may see a value counted in one field before another, but the
+ *  numbers settle as soon as recording stops.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class LatencyHistogram
+{
+  /** The largest power of two that is tracked (2^40 ns, about 18 min). */
+  private static final int MAX_EXPONENT = 40;
+  
+  /** The largest value that is tracked; larger values are clamped. */
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  
+  /** The number of bits of precision kept for each value. */
+  private final int precision;
+  
+  /** The number of sub-buckets per power of two (2^precision). */
+  private final int subBuckets;
+  
+  /** The number of values recorded in each bucket. */
+  private final AtomicLongArray buckets;
+  
+  /* Running totals over every recorded value. */
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+  
+  /** Constructor for the LatencyHistogram class.
+   *  @param precision  The number of bits of precision, from 0 to 6. */
+  public LatencyHistogram(int precision)
+  {
+    if (precision < 0 || precision > 6) {
+      throw new IllegalArgumentException("Precision out of range.");
+    }
+    
+    this.precision = precision;
+    subBuckets = 1 << precision;
+    buckets = new AtomicLongArray
+    ((MAX_EXPONENT - precision + 2) * subBuckets);
+  }
+  
+  /** Records a single latency.
+   *  @param nanos  The latency in nanoseconds; negatives count as 0. */
+  public void record(long nanos)
+  {
+    if (nanos < 0) nanos = 0;
+    
+    buckets.incrementAndGet(indexOf(nanos));
+    count.incrementAndGet();
+    sum.addAndGet(nanos);
+    
+    /* Raise the maximum if this is the largest value seen. */
+    long current;
+    while (nanos > (current = max.get())
+    && !max.compareAndSet(current, nanos)) {}
+  }
+  
+  /** Returns the number of values recorded.
+   *  @return The number of values recorded. */
+  public long getCount()
+  {
+    return count.get();
+  }
+  
+  /** Returns the sum of every value recorded.
+   *  @return The total latency in nanoseconds. */
+  public long getTotal()
+  {
+    return sum.get();
+  }
+  
+  /** Returns the largest value recorded.
+   *  @return The largest latency in nanoseconds. */
+  public long getMax()
+  {
+    return max.get();
+  }
+  
+  /** Returns the average of every value recorded.
+   *  @return The mean latency in nanoseconds, or 0 if nothing's recorded. */
+  public double getMean()
+  {
+    long n = count.get();
+    return (n == 0) ? 0.0 : (double) sum.get() / n;
+  }
+  
+  /** Returns the value below which the given percentage of recorded values
+   *  fall. The value is reported as the top of its bucket, so it is never
+   *  smaller than the real percentile.
+   *  @param percent  The percentile to find, from 0 to 100.
+   *  @return The percentile in nanoseconds, or 0 if nothing's recorded. */
+  public long getPercentile(double percent)
+  {
+    /* Count the buckets first, since the totals may be slightly ahead. */
+    long total = 0;
+    int len = buckets.length();
+    for (int i = 0; i < len; i++) total += buckets.get(i);
+    if (total == 0) return 0;
+    
+    long target = (long) Math.ceil(total * Math.min(percent, 100.0) / 100.0);
+    if (target < 1) target = 1;
+    
+    /* Walk up the buckets until enough values have been passed. */
+    long seen = 0;
+    for (int i = 0; i < len; i++)
+    {
+      seen += buckets.get(i);
+      if (seen >= target) return Math.min(highestValueOf(i), max.get());
+    }
+    
+    return max.get();
+  }
+  
+  /** Clears every recorded value. Values recorded while the histogram is
+   *  being cleared may be partially kept. */
+  public void reset()
+  {
+    int len = buckets.length();
+    for (int i = 0; i < len; i++) buckets.set(i, 0);
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+  
+  /** Finds the bucket that a value is counted in. Values smaller than
+   *  the number of sub-buckets get a bucket each; larger values keep
+   *  only their highest (precision + 1) bits.
+   *  @param value  The value, which must not be negative.
+   *  @return The index of the bucket. */
+  private int indexOf(long value)
+  {
+    if (value > MAX_VALUE) value = MAX_VALUE;
+    if (value < subBuckets) return (int) value;
+    
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - precision;
+    int sub = (int) (value >>> shift) - subBuckets;
+    return (shift + 1) * subBuckets + sub;
+  }
+  
+  /** Finds the largest value that is counted in a bucket.
+   *  @param index  The index of the bucket.
+   *  @return The largest value in that bucket. */
+  private long highestValueOf(int index)
+  {
+    if (index < subBuckets) return index;
+    
+    int shift = index / subBuckets - 1;
+    int sub = index % subBuckets;
+    long lowest = (long) (subBuckets + sub) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
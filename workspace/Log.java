@@ -0,0 +1,285 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/** The Log class prints the game's messages to the console without
+ *  slowing down the code that produces them. Each message has a level:
+ *  DEBUG for detailed traces of every command, INFO for the main events
+ *  of the game, WARN for commands that could not be carried out, and
+ *  ERROR for failures. Messages below the current level are thrown away
+ *  before any work is done on them.
+ *
+ *  Messages are written as templates in which every "{}" is replaced by
+ *  the next argument, e.g. Log.debug("Removed character w/ ID:\"{}\"",
+ *  id). The template is only filled in if the message is printed, and
+ *  the filling in and printing is done by a separate writer thread, so
+ *  the caller never waits on the console. Messages are passed to the
+ *  writer through a fixed-size ring buffer; if the writer falls too far
+ *  behind, new messages are dropped and counted instead of blocking the
+ *  caller.
+ *
+ *  Arguments that are primitive values are boxed when the call is made,
+ *  even if the message is thrown away. Code that runs for every command
+ *  or frame should therefore check isEnabled(int) first:
+ *
+ *    if (Log.isEnabled(Log.DEBUG)) Log.debug("Moved to ({},{})", x, y);
+ *
+ *  The starting level is INFO, and can be changed with the system
+ *  property "log", e.g. "java -Dlog=debug Runner".
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class Log
+{
+  /* The levels, from most to least detailed. */
+  public static final int DEBUG = 0;
+  public static final int INFO = 1;
+  public static final int WARN = 2;
+  public static final int ERROR = 3;
+  public static final int OFF = 4;
+  
+  /** The number of messages the ring buffer can hold (a power of 2). */
+  private static final int CAPACITY = 1024;
+  
+  /** The lowest level of messages that are printed. */
+  private static volatile int level = parseLevel(System.getProperty("log"));
+  
+  /** The messages waiting to be printed, reused around the ring. */
+  private static final Entry[] ring = new Entry[CAPACITY];
+  
+  /** The sequence number published in each slot once it's filled. */
+  private static final AtomicLongArray published
+  = new AtomicLongArray(CAPACITY);
+  
+  /** The sequence number of the next message to be claimed. */
+  private static final AtomicLong claimed = new AtomicLong();
+  
+  /** The sequence number of the next message to be printed. */
+  private static volatile long printed = 0;
+  
+  /** The number of messages dropped because the buffer was full. */
+  private static final AtomicLong dropped = new AtomicLong();
+  
+  /** Whether the writer thread is parked waiting for messages. */
+  private static volatile boolean idle = false;
+  
+  /** Where the messages are printed. */
+  private static final PrintStream out = System.out;
+  
+  /** The thread that prints the messages. */
+  private static final Thread writer;
+  
+  static {
+    for (int i = 0; i < CAPACITY; i++)
+    {
+      ring[i] = new Entry();
+      published.set(i, -1);
+    }
+    
+    writer = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        write();
+      }
+    }, "Log writer");
+    writer.setDaemon(true);
+    writer.start();
+    
+    /* Print whatever is left when the game exits. */
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+    {
+      public void run()
+      {
+        flush();
+      }
+    }));
+  }
+  
+  /** The Log class cannot be instantiated. */
+  private Log() {}
+  
+  
+  
+  /* PUBLIC FUNCTIONS */
+  
+  /** Returns whether messages of the given level are printed.
+   *  @param lvl    The level to check.
+   *  @return Whether messages of that level are printed. */
+  public static boolean isEnabled(int lvl)
+  {
+    return lvl >= level;
+  }
+  
+  /** Sets the lowest level of messages that are printed.
+   *  @param lvl    The new level, from DEBUG to OFF. */
+  public static void setLevel(int lvl)
+  {
+    level = lvl;
+  }
+  
+  /** Returns the lowest level of messages that are printed.
+   *  @return The current level. */
+  public static int getLevel()
+  {
+    return level;
+  }
+  
+  /** Returns the number of messages dropped because the writer thread
+   *  could not keep up.
+   *  @return The number of dropped messages. */
+  public static long getDropped()
+  {
+    return dropped.get();
+  }
+  
+  /* Functions to log a message at each level. */
+  public static void debug(String message) { log(DEBUG, message, null); }
+  public static void info(String message) { log(INFO, message, null); }
+  public static void warn(String message) { log(WARN, message, null); }
+  public static void error(String message) { log(ERROR, message, null); }
+  
+  /* Functions to log a message template at each level. */
+  public static void debug(String template, Object... args)
+  { log(DEBUG, template, args); }
+  public static void info(String template, Object... args)
+  { log(INFO, template, args); }
+  public static void warn(String template, Object... args)
+  { log(WARN, template, args); }
+  public static void error(String template, Object... args)
+  { log(ERROR, template, args); }
+  
+  /** Waits until every message logged so far has been printed. */
+  public static void flush()
+  {
+    long target = claimed.get();
+    while (printed < target && writer.isAlive())
+    {
+      LockSupport.unpark(writer);
+      Thread.yield();
+    }
+    out.flush();
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Adds a message to the ring buffer, unless its level is too low or
+   *  the buffer is full.
+   *  @param lvl        The level of the message.
+   *  @param template   The message template.
+   *  @param args       The values of the template's "{}"s; may be null. */
+  private static void log(int lvl, String template, Object[] args)
+  {
+    if (lvl < level) return;
+    
+    /* Claim a slot, unless the writer is a full lap behind. */
+    long seq;
+    do {
+      seq = claimed.get();
+      if (seq - printed >= CAPACITY) {
+        dropped.incrementAndGet();
+        return;
+      }
+    } while (!claimed.compareAndSet(seq, seq + 1));
+    
+    /* Fill in the slot, then publish it to the writer. */
+    int index = (int) (seq & (CAPACITY - 1));
+    Entry entry = ring[index];
+    entry.level = lvl;
+    entry.template = template;
+    entry.args = args;
+    published.set(index, seq);
+    
+    if (idle) LockSupport.unpark(writer);
+  }
+  
+  /** Prints messages from the ring buffer, in order, for as long as the
+   *  game is running. Runs on the writer thread. */
+  private static void write()
+  {
+    StringBuilder line = new StringBuilder();
+    long reported = 0;
+    
+    while (true)
+    {
+      long seq = printed;
+      int index = (int) (seq & (CAPACITY - 1));
+      
+      /* Sleep until the next message has been published. */
+      if (published.get(index) != seq) {
+        idle = true;
+        if (published.get(index) != seq) LockSupport.park();
+        idle = false;
+        continue;
+      }
+      
+      /* Print the message, then free up its slot. */
+      Entry entry = ring[index];
+      line.setLength(0);
+      format(line, entry.template, entry.args);
+      entry.template = null;
+      entry.args = null;
+      printed = seq + 1;
+      out.println(line);
+      
+      /* Let the console know if anything had to be dropped. */
+      long lost = dropped.get();
+      if (lost != reported) {
+        out.println("(" + (lost - reported) + " log messages dropped)");
+        reported = lost;
+      }
+    }
+  }
+  
+  /** Fills in a message template, replacing each "{}" with the next
+   *  argument. Any extra "{}"s are left as they are.
+   *  @param line       Where to write the message.
+   *  @param template   The message template.
+   *  @param args       The values of the "{}"s; may be null. */
+  private static void format(StringBuilder line, String template, Object[] args)
+  {
+    int argc = (args == null) ? 0 : args.length;
+    int from = 0;
+    int arg = 0;
+    
+    int at;
+    while (arg < argc && (at = template.indexOf("{}", from)) >= 0)
+    {
+      line.append(template, from, at);
+      line.append(args[arg++]);
+      from = at + 2;
+    }
+    line.append(template, from, template.length());
+  }
+  
+  /** Converts the name of a level into the level.
+   *  @param name   The name of the level; null means INFO.
+   *  @return The level. */
+  private static int parseLevel(String name)
+  {
+    if (name == null) return INFO;
+    name = name.toLowerCase();
+    if (name.equals("debug")) return DEBUG;
+    if (name.equals("warn")) return WARN;
+    if (name.equals("error")) return ERROR;
+    if (name.equals("off")) return OFF;
+    return INFO;
+  }
+  
+  
+  
+  /* INNER CLASSES */
+  
+  /** A single message waiting to be printed. */
+  private static class Entry
+  {
+    int level;
+    String template;
+    Object[] args;
+  }
+}
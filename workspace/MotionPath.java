@@ -0,0 +1,162 @@
+import java.awt.geom.*;
+import java.util.Arrays;
+
+/** A path that a character can be moved along, made of straight lines
+ *  through a list of waypoints or of curves bent towards control points.
+ *
+ *  When the path is made, its curves are flattened into short straight
+ *  lines, and the distance along the path to the end of each line is
+ *  stored in a table. Finding the point a given distance along the path
+ *  then only takes a binary search of the table, so a character can be
+ *  placed along the path at a steady speed every frame, however the path
+ *  bends, without measuring the path again.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class MotionPath
+{
+  /** How far the flattened lines may stray from the curves, in pixels. */
+  private static final double FLATNESS = 0.5;
+  
+  /* The points at the ends of the flattened lines, in order. */
+  private final double[] xs;
+  private final double[] ys;
+  
+  /** The distance along the path to each point; the first is 0. */
+  private final double[] lengths;
+  
+  /** Constructor for the MotionPath class. Flattens the given shape's
+   *  outline into its table of points.
+   *  @param shape  The path, starting with a move to its first point. */
+  public MotionPath(Path2D shape)
+  {
+    double[] px = new double[16];
+    double[] py = new double[16];
+    int n = 0;
+    
+    /* Collect the end of every flattened line. */
+    double[] coords = new double[6];
+    PathIterator it = shape.getPathIterator(null, FLATNESS);
+    for (; !it.isDone(); it.next())
+    {
+      int type = it.currentSegment(coords);
+      if (type == PathIterator.SEG_CLOSE) continue;
+      if (type == PathIterator.SEG_MOVETO && n > 0) continue;
+      if (n == px.length) {
+        px = Arrays.copyOf(px, n * 2);
+        py = Arrays.copyOf(py, n * 2);
+      }
+      px[n] = coords[0];
+      py[n] = coords[1];
+      n++;
+    }
+    
+    xs = Arrays.copyOf(px, Math.max(n, 1));
+    ys = Arrays.copyOf(py, Math.max(n, 1));
+    
+    /* Measure the distance along the path to each point. */
+    lengths = new double[xs.length];
+    for (int i = 1; i < xs.length; i++)
+    {
+      lengths[i] = lengths[i - 1]
+      + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+    }
+  }
+  
+  /** Makes a path of straight lines from a starting point through each
+   *  of the given waypoints in turn.
+   *  @param x0       The x-coordinate of the starting point.
+   *  @param y0       The y-coordinate of the starting point.
+   *  @param points   The waypoints as pairs of coordinates: x1, y1, x2,
+   *                  y2, and so on.
+   *  @return The path through the waypoints. */
+  public static MotionPath through(double x0, double y0, int[] points)
+  {
+    Path2D.Double shape = new Path2D.Double();
+    shape.moveTo(x0, y0);
+    for (int i = 0; i + 1 < points.length; i += 2)
+    {
+      shape.lineTo(points[i], points[i + 1]);
+    }
+    return new MotionPath(shape);
+  }
+  
+  /** Makes a path of quadratic Bezier curves from a starting point. Each
+   *  curve is given by a control point, which it bends towards, followed
+   *  by the point where it ends and the next curve begins. A leftover
+   *  point without an end is joined by a straight line.
+   *  @param x0       The x-coordinate of the starting point.
+   *  @param y0       The y-coordinate of the starting point.
+   *  @param points   The control and end points as pairs of coordinates:
+   *                  cx1, cy1, x1, y1, cx2, cy2, x2, y2, and so on.
+   *  @return The path along the curves. */
+  public static MotionPath curve(double x0, double y0, int[] points)
+  {
+    Path2D.Double shape = new Path2D.Double();
+    shape.moveTo(x0, y0);
+    int i = 0;
+    for (; i + 3 < points.length; i += 4)
+    {
+      shape.quadTo(points[i], points[i + 1], points[i + 2], points[i + 3]);
+    }
+    if (i + 1 < points.length) shape.lineTo(points[i], points[i + 1]);
+    return new MotionPath(shape);
+  }
+  
+  /** Returns the length of the whole path.
+   *  @return The length in pixels. */
+  public double getLength()
+  {
+    return lengths[lengths.length - 1];
+  }
+  
+  /** Returns the x-coordinate where the path ends.
+   *  @return The x-coordinate of the last point. */
+  public double getEndX()
+  {
+    return xs[xs.length - 1];
+  }
+  
+  /** Returns the y-coordinate where the path ends.
+   *  @return The y-coordinate of the last point. */
+  public double getEndY()
+  {
+    return ys[ys.length - 1];
+  }
+  
+  /** Finds the point the given distance along the path. Distances before
+   *  the start or past the end give the first or last point.
+   *  @param distance   The distance along the path in pixels.
+   *  @param point      Where to store the point found.
+   *  @return The point, for convenience. */
+  public Point2D.Double pointAt(double distance, Point2D.Double point)
+  {
+    int last = lengths.length - 1;
+    if (distance <= 0.0 || last == 0) {
+      point.setLocation(xs[0], ys[0]);
+      return point;
+    }
+    if (distance >= lengths[last]) {
+      point.setLocation(xs[last], ys[last]);
+      return point;
+    }
+    
+    /* Find the line the distance falls on. */
+    int i = Arrays.binarySearch(lengths, distance);
+    if (i >= 0) {
+      point.setLocation(xs[i], ys[i]);
+      return point;
+    }
+    int end = -i - 1;
+    int start = end - 1;
+    
+    /* Find how far along that line it is. */
+    double fraction = (distance - lengths[start])
+    / (lengths[end] - lengths[start]);
+    point.setLocation(xs[start] + (xs[end] - xs[start]) * fraction,
+    ys[start] + (ys[end] - ys[start]) * fraction);
+    return point;
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.HashMap;
+
+/** Defines every command that can appear in an animation file. Each line
+ *  of an animation file is classified by its first word (and, for the set
+ *  command, its second word) into one of these opcodes, which is used by
+ *  the AnimationReader to decide how to handle the line and to keep
+ *  statistics on each kind of command.
+ *
+ *  Lines that don't start with a built-in command are comments, and are
+ *  classified as NONE. An id line only marks a location in the file, so
+ *  it does nothing when it is read.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public enum Opcode
+{
+  /* ENUMERATIONS */
+  
+  ADD             ("add"           ),
+  REMOVE          ("remove"        ),
+  MOVE            ("move"          ),
+  PATH            ("path"          ),
+  CURVE           ("curve"         ),
+  SCALE           ("scale"         ),
+  GLIDE           ("glide"         ),
+  FADE            ("fade"          ),
+  SET             ("set"           ),
+  SET_CHARACTER   ("set character" ),
+  SET_BACKGROUND  ("set background"),
+  SET_OPACITY     ("set opacity"   ),
+  SET_SIZE        ("set size"      ),
+  PRINT           ("print"         ),
+  CLEAR_TEXT      ("clear-text"    ),
+  WAIT            ("wait"          ),
+  ID              ("id"            ),
+  GOTO            ("goto"          ),
+  BUTTONS         ("*"             ),
+  RETURN          ("return"        ),
+  TRANSITION      ("transition"    ),
+  INCREMENT       ("increment"     ),
+  DECREMENT       ("decrement"     ),
+  RESET           ("reset"         ),
+  PARALLEL        ("parallel"      ),
+  JOIN            ("join"          ),
+  AWAIT           ("await"         ),
+  NONE            (""              );
+  
+  
+  
+  /* PRIVATE DATA */
+  
+  /** The opcodes of single-word commands, by their command word. */
+  private static final HashMap<String, Opcode> COMMANDS
+  = new HashMap<String, Opcode>();
+  
+  /** The opcodes of set commands, by their second word. */
+  private static final HashMap<String, Opcode> SET_COMMANDS
+  = new HashMap<String, Opcode>();
+  
+  static {
+    for (Opcode op : values())
+    {
+      String[] words = op.keyword.split(" ");
+      if (words.length == 2) SET_COMMANDS.put(words[1], op);
+      else if (op != NONE) COMMANDS.put(op.keyword, op);
+    }
+  }
+  
+  /** The command as it is written in an animation file. */
+  private final String keyword;
+  
+  
+  
+  /* CONSTRUCTORS */
+  
+  /** Constructor for the Opcode enum.
+   *  @param keyword  The command as it is written in an animation file. */
+  Opcode(String keyword)
+  {
+    this.keyword = keyword;
+  }
+  
+  
+  
+  /* PUBLIC FUNCTIONS */
+  
+  /** Returns the command as it is written in an animation file.
+   *  @return The command's keyword(s). */
+  public String getKeyword()
+  {
+    return keyword;
+  }
+  
+  /** Classifies a line of an animation file. A set command with an
+   *  invalid second word is classified as SET.
+   *  @param tokens   The line, separated into individual words.
+   *  @return The opcode of the line, or NONE if it's not a command. */
+  public static Opcode of(String[] tokens)
+  {
+    Opcode op = COMMANDS.get(tokens[0].toLowerCase());
+    if (op == null) return NONE;
+    
+    /* Set commands are told apart by their second word. */
+    if (op == SET && tokens.length > 1) {
+      Opcode setOp = SET_COMMANDS.get(tokens[1].toLowerCase());
+      if (setOp != null) return setOp;
+    }
+    
+    return op;
+  }
+}
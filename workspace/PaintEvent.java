@@ -0,0 +1,24 @@
+import jdk.jfr.*;
+
+/** A Java Flight Recorder event emitted every time a scene is painted.
+ *  Disabled by default; see CommandEvent.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+@Name("rickrangers.Paint")
+@Label("Scene Paint")
+@Category({ "Rick Rangers", "Rendering" })
+@Description("A single call to Scene.paintComponent")
+@Enabled(false)
+@StackTrace(false)
+public class PaintEvent extends Event
+{
+  @Label("Scene ID")
+  public int sceneID;
+  
+  @Label("Figure Count")
+  @Description("The number of characters painted")
+  public int figures;
+}
@@ -0,0 +1,209 @@
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A small panel of performance figures that a scene can paint over
+ *  itself. The overlay shows the number of frames painted per second, a
+ *  graph of the time between the last few frames, how long each layer of
+ *  the scene (background, characters, cover and text box) takes to
+ *  paint, how many repaints were requested compared to how many frames
+ *  were actually painted, how many move and transition threads are
+ *  running, and how many bytes the painting thread allocates per frame.
+ *
+ *  The overlay is hidden until toggled, and while hidden the scene takes
+ *  no measurements at all, so it can stay in the game at no cost. In the
+ *  game, the overlay is toggled by pressing F3.
+ *
+ *  All of the measurements are taken and painted on the event dispatch
+ *  thread, except for repaint requests, which can come from any thread.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class PerformanceOverlay
+{
+  /** The number of frames shown in the frame-time graph. */
+  private static final int HISTORY = 120;
+  
+  /** The frame time that fills the graph's height (50 ms). */
+  private static final long GRAPH_MAX = 50000000L;
+  
+  /** How much each new frame counts towards the layer averages. */
+  private static final double SMOOTHING = 0.1;
+  
+  /* The position and size of the overlay. */
+  private static final int X = 10;
+  private static final int Y = 10;
+  private static final int WIDTH = 2 * HISTORY + 20;
+  private static final int GRAPH_HEIGHT = 50;
+  
+  /** Whether the overlay is shown. */
+  private volatile boolean visible = false;
+  
+  /** The time between each of the last frames, as a ring. */
+  private final long[] frameTimes = new long[HISTORY];
+  
+  /** The index of the next entry in frameTimes. */
+  private int next = 0;
+  
+  /** When the last frame finished, from System.nanoTime(); 0 if none. */
+  private long lastFrame = 0;
+  
+  /** The average time spent on each layer, in nanoseconds. */
+  private final double[] layers = new double[4];
+  
+  /** The names of the layers, in painting order. */
+  private static final String[] LAYER_NAMES =
+  { "background", "figures", "cover", "text" };
+  
+  /** The bytes allocated by the painting thread, when last measured. */
+  private long lastAllocated = -1;
+  
+  /** The average bytes allocated by the painting thread per frame. */
+  private double allocatedPerFrame = 0;
+  
+  /* Counts over the current second, and the totals of the last one. */
+  private final AtomicInteger requests = new AtomicInteger();
+  private int paints = 0;
+  private long secondStart = 0;
+  private int fps = 0;
+  private int requestsPerSecond = 0;
+  
+  /** The source of the painting thread's allocation counter. */
+  private final com.sun.management.ThreadMXBean threads;
+  
+  /** Constructor for the PerformanceOverlay class. The overlay starts
+   *  hidden. */
+  public PerformanceOverlay()
+  {
+    threads = (com.sun.management.ThreadMXBean)
+    ManagementFactory.getThreadMXBean();
+  }
+  
+  /** Returns whether the overlay is shown. Scenes only take measurements
+   *  while this is true.
+   *  @return Whether the overlay is shown. */
+  public boolean isVisible()
+  {
+    return visible;
+  }
+  
+  /** Shows the overlay if it's hidden, or hides it if it's shown. The
+   *  measurements start over every time the overlay is shown. */
+  public void toggle()
+  {
+    if (!visible) {
+      lastFrame = 0;
+      lastAllocated = -1;
+      secondStart = 0;
+      requests.set(0);
+      paints = 0;
+    }
+    visible = !visible;
+  }
+  
+  /** Counts a request to repaint the scene. */
+  public void repaintRequested()
+  {
+    requests.incrementAndGet();
+  }
+  
+  /** Records a frame that has just been painted. Each argument is the
+   *  time, from System.nanoTime(), at which that stage of painting ended.
+   *  @param start        When the frame started painting.
+   *  @param background   When the background was painted.
+   *  @param figures      When the characters were painted.
+   *  @param cover        When the transition cover was painted.
+   *  @param text         When the text box was painted. */
+  public void framePainted
+  (long start, long background, long figures, long cover, long text)
+  {
+    /* Average the time spent on each layer. */
+    smooth(0, background - start);
+    smooth(1, figures - background);
+    smooth(2, cover - figures);
+    smooth(3, text - cover);
+    
+    /* Record the time since the last frame. */
+    if (lastFrame != 0) {
+      frameTimes[next] = text - lastFrame;
+      next = (next + 1) % HISTORY;
+    }
+    lastFrame = text;
+    
+    /* Average the bytes allocated since the last frame. */
+    long allocated = threads.getCurrentThreadAllocatedBytes();
+    if (lastAllocated >= 0) {
+      allocatedPerFrame += SMOOTHING
+      * ( (allocated - lastAllocated) - allocatedPerFrame );
+    }
+    lastAllocated = allocated;
+    
+    /* Roll the per-second counts over once a second has passed. */
+    paints++;
+    if (secondStart == 0) secondStart = start;
+    else if (text - secondStart >= 1000000000L) {
+      fps = paints;
+      requestsPerSecond = requests.getAndSet(0);
+      paints = 0;
+      secondStart = text;
+    }
+  }
+  
+  /** Paints the overlay in the top-left corner of the scene.
+   *  @param g            The graphics to paint with.
+   *  @param movers       The number of move threads running.
+   *  @param transitions  The number of transition threads running. */
+  public void paint(Graphics2D g, int movers, int transitions)
+  {
+    int lineHeight = 14;
+    int height = GRAPH_HEIGHT + lineHeight * 7 + 20;
+    
+    /* The translucent backing. */
+    g.setColor(new Color(0, 0, 0, 160));
+    g.fillRect(X, Y, WIDTH, height);
+    
+    /* The frame-time graph, with a line at 60 fps. */
+    int graphX = X + 10;
+    int graphBottom = Y + 10 + GRAPH_HEIGHT;
+    g.setColor(Color.GREEN);
+    for (int i = 0; i < HISTORY; i++)
+    {
+      long time = frameTimes[(next + i) % HISTORY];
+      int bar = (int) (Math.min(time, GRAPH_MAX) * GRAPH_HEIGHT / GRAPH_MAX);
+      g.fillRect(graphX + 2 * i, graphBottom - bar, 2, bar);
+    }
+    g.setColor(Color.YELLOW);
+    int sixty = (int) (16666667L * GRAPH_HEIGHT / GRAPH_MAX);
+    g.drawLine(graphX, graphBottom - sixty,
+    graphX + 2 * HISTORY, graphBottom - sixty);
+    
+    /* The figures. */
+    g.setColor(Color.WHITE);
+    g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+    int y = graphBottom + lineHeight;
+    g.drawString("fps " + fps + "   repaints " + requestsPerSecond
+    + "/s", graphX, y);
+    for (int i = 0; i < layers.length; i++)
+    {
+      y += lineHeight;
+      g.drawString(String.format("%-10s %7.3f ms",
+      LAYER_NAMES[i], layers[i] / 1e6), graphX, y);
+    }
+    y += lineHeight;
+    g.drawString("movers " + movers + "   transitions " + transitions,
+    graphX, y);
+    y += lineHeight;
+    g.drawString(String.format("alloc %.1f KB/frame",
+    allocatedPerFrame / 1024.0), graphX, y);
+  }
+  
+  /** Adds a new measurement to the average time of a layer.
+   *  @param layer    The index of the layer.
+   *  @param nanos    The time spent on the layer. */
+  private void smooth(int layer, long nanos)
+  {
+    layers[layer] += SMOOTHING * (nanos - layers[layer]);
+  }
+}
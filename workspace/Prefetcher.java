@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Gets the next scenes ready while the current one plays. When a scene
+ *  starts, the prefetcher looks up the scenes it can return to, using
+ *  SceneAssets, and on a thread of its own reads their animation files,
+ *  loads their backgrounds, and scales the images of the characters they
+ *  add to the sizes they add them at. By the time the next scene starts,
+ *  its script is cached and its first commands don't have to wait for
+ *  images to be loaded or scaled.
+ *
+ *  The scenes are warmed in the order the current scene returns them,
+ *  and only until the budget is spent: the budget is the most bytes of
+ *  newly scaled images prefetched for one scene, so that a scene with
+ *  many possible next scenes doesn't push every image it's using out of
+ *  FigureType's cache. Images that are already cached cost nothing.
+ *  The budget can be given in megabytes with the system property
+ *  "prefetch.budget".
+ *
+ *  Prefetching runs at the lowest priority, and holds back while the
+ *  scene's animations are running, so that it doesn't take time away
+ *  from drawing them. While the player is choosing a button, nothing is
+ *  being animated, so prefetching runs at normal priority instead.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class Prefetcher
+{
+  /** The default budget for each scene, in megabytes. */
+  public static final long DEFAULT_BUDGET = 64;
+  
+  /** How long to hold back while animations are running, in ms. */
+  private static final long PAUSE = 10;
+  
+  /** The most bytes of images prefetched for each scene. */
+  private final long budget;
+  
+  /** Runs the prefetching, one scene at a time. */
+  private final ExecutorService worker;
+  
+  /** Counts the scenes started; prefetching for an earlier scene stops
+   *  as soon as a later one starts. */
+  private final AtomicInteger generation = new AtomicInteger();
+  
+  /* The number of image arrays and bytes prefetched so far. */
+  private final AtomicLong images = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  
+  /** Constructor for the Prefetcher class, with the budget given by the
+   *  "prefetch.budget" system property, or DEFAULT_BUDGET if not set. */
+  public Prefetcher()
+  {
+    this(Long.getLong("prefetch.budget", DEFAULT_BUDGET) << 20);
+  }
+  
+  /** Constructor for the Prefetcher class.
+   *  @param budget   The most bytes of images prefetched for each
+   *                  scene. */
+  public Prefetcher(long budget)
+  {
+    this.budget = budget;
+    worker = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+      public Thread newThread(Runnable task)
+      {
+        Thread thread = new Thread(task, "Prefetcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+  
+  /** Starts prefetching the scenes that a scene can return to, and stops
+   *  any prefetching for the scene before it.
+   *  @param session  The session the scene is being played in.
+   *  @param scene    The scene that's starting. */
+  public void sceneStarting(final Session session, final Scene scene)
+  {
+    final int current = generation.incrementAndGet();
+    worker.execute(new Runnable()
+    {
+      public void run()
+      {
+        if (generation.get() == current)
+          prefetch(session, scene, current);
+      }
+    });
+  }
+  
+  /** Stops prefetching for good. */
+  public void shutdown()
+  {
+    generation.incrementAndGet();
+    worker.shutdownNow();
+  }
+  
+  /** Returns the most bytes of images prefetched for each scene.
+   *  @return The budget in bytes. */
+  public long getBudget()
+  {
+    return budget;
+  }
+  
+  /** Returns the number of image arrays scaled ahead of time so far.
+   *  @return The number of image arrays prefetched. */
+  public long getPrefetchedImages()
+  {
+    return images.get();
+  }
+  
+  /** Returns the bytes of images scaled ahead of time so far.
+   *  @return The estimated bytes prefetched. */
+  public long getPrefetchedBytes()
+  {
+    return bytes.get();
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Prefetches the scenes a scene can return to, in order, until the
+   *  budget is spent or another scene starts.
+   *  @param session  The session the scene is being played in.
+   *  @param scene    The scene being played.
+   *  @param current  The generation this prefetch belongs to. */
+  private void prefetch(Session session, Scene scene, int current)
+  {
+    long start = System.nanoTime();
+    long spent = 0;
+    int warmed = 0;
+    try {
+      List<Integer> returns
+      = SceneAssets.of(scene.getAnimationFile()).getReturns();
+      for (int i = 0; i < returns.size(); i++)
+      {
+        Scene next = session.getScene(returns.get(i));
+        if (next == null) continue;
+  
+        /* Reading the file's assets reads and caches its text. */
+        SceneAssets assets = SceneAssets.of(next.getAnimationFile());
+        List<BackgroundType> bgs = assets.getBackgrounds();
+        for (int j = 0; j < bgs.size(); j++)
+        {
+          if (bgs.get(j).isLoaded()) continue;
+          long cost = 4L * Game.WIDTH * Game.HEIGHT;
+          if (spent + cost > budget) return;
+          if (!pace(session, scene, current)) return;
+          bgs.get(j).getImage();
+          spent += cost;
+          bytes.addAndGet(cost);
+        }
+  
+        List<SceneAssets.Sizing> sizings = assets.getSizings();
+        for (int j = 0; j < sizings.size(); j++)
+        {
+          FigureType type = sizings.get(j).getType();
+          double scale = sizings.get(j).getScale();
+          if (type.isCached(scale)) continue;
+  
+          long cost = type.getResizedBytes(scale);
+          if (spent + cost > budget) {
+            Log.debug("Prefetch budget spent after {} bytes", spent);
+            return;
+          }
+  
+          if (!pace(session, scene, current)) return;
+          type.getAnimationImagesResized(scale);
+          spent += cost;
+          warmed++;
+          images.incrementAndGet();
+          bytes.addAndGet(cost);
+        }
+      }
+    } catch (IOException e) {
+      Log.warn("Prefetch failed: {}", e.getMessage());
+    } catch (IllegalArgumentException e) {
+      Log.warn("Prefetch failed: an image couldn't be scaled.");
+    } catch (InterruptedException e) {
+      return;
+    } finally {
+      if (warmed > 0 && Log.isEnabled(Log.DEBUG))
+        Log.debug("Prefetched {} image sets ({} bytes) after scene {} in "
+        + "{} ms", warmed, spent, scene.getSceneID(),
+        (System.nanoTime() - start) / 1e6);
+    }
+  }
+  
+  /** Waits until it's a good time to scale the next images: at once
+   *  while the player is choosing a button, and otherwise once the
+   *  scene's animations have had a turn.
+   *  @param session  The session the scene is being played in.
+   *  @param scene    The scene being played.
+   *  @param current  The generation this prefetch belongs to.
+   *  @return true to go on; false if another scene has started.
+   *  @throws InterruptedException if the prefetcher is shut down. */
+  private boolean pace(Session session, Scene scene, int current)
+  throws InterruptedException
+  {
+    Thread thread = Thread.currentThread();
+    if (session.getReader().isWaitingForButtons()) {
+      thread.setPriority(Thread.NORM_PRIORITY);
+    } else {
+      thread.setPriority(Thread.MIN_PRIORITY);
+      if (scene.getActiveAnimations() > 0) Thread.sleep(PAUSE);
+    }
+    return generation.get() == current;
+  }
+}
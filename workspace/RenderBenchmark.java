@@ -0,0 +1,137 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/** The RenderBenchmark class measures how long it takes to paint a scene
+ *  and how much memory each painted frame allocates. A scene is filled
+ *  with a given number of characters of mixed character types and sizes,
+ *  and is then repeatedly painted into an offscreen image through the
+ *  same Scene.paintComponent(Graphics) method used by the game window.
+ *
+ *  Each scene size (1, 10, 100 and 1,000 characters) is measured twice:
+ *  once with a bare scene, and once with a half-opaque transition cover
+ *  and a full text box painted over the characters. For every case, the
+ *  average time per frame in nanoseconds and the average number of bytes
+ *  allocated per frame are printed to the console. The allocation count
+ *  is taken from the current thread's allocation counter, so the numbers
+ *  only include the garbage created by the paint path itself.
+ *
+ *  The benchmark is run from the workspace directory, the same as the
+ *  game, so that the character and background images can be found:
+ *  "java RenderBenchmark [[frames]]", where frames is the number of
+ *  measured frames per case (the default is 200).
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class RenderBenchmark
+{
+  /** The numbers of characters to paint in each case. */
+  private static final int[] FIGURE_COUNTS = { 1, 10, 100, 1000 };
+  
+  /** The character names cycled through when filling a scene. */
+  private static final String[] NAMES =
+  { "enemy", "mob", "jason", "paul", "rick", "sam", "shin", "heather" };
+  
+  /** The character sizes cycled through when filling a scene. */
+  private static final double[] SIZES = { 0.25, 0.3, 0.5, 0.75 };
+  
+  /** The character states cycled through when filling a scene. */
+  private static final String[] STATES =
+  { "still", "left", "right", "action1", "action2" };
+  
+  /** The number of unmeasured frames painted before each measurement. */
+  private static final int WARMUP_FRAMES = 50;
+  
+  public static void main(String[] args)
+  {
+    /* The number of measured frames per case. */
+    int frames = 200;
+    if (args.length > 0) frames = Integer.parseInt(args[0]);
+    
+    /* Allocation counting is only available on HotSpot-based JVMs. */
+    com.sun.management.ThreadMXBean threads
+    = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    threads.setThreadAllocatedMemoryEnabled(true);
+    
+    /* The offscreen image that every frame is painted into. */
+    BufferedImage frame = new BufferedImage
+    (Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    
+    System.out.printf("%8s  %-8s  %14s  %14s\n",
+    "figures", "overlay", "ns/frame", "bytes/frame");
+    
+    for (int i = 0; i < FIGURE_COUNTS.length; i++)
+    {
+      Scene scene = createScene(FIGURE_COUNTS[i]);
+      
+      /* Paint the bare scene first, then with the cover and text box. */
+      measure(scene, frame, threads, frames, FIGURE_COUNTS[i], false);
+      measure(scene, frame, threads, frames, FIGURE_COUNTS[i], true);
+    }
+  }
+  
+  /** Creates a new scene filled with the given number of characters.
+   *  The characters are spread across the window and cycle through
+   *  all of the character types, sizes and states.
+   *  @param count    The number of characters to add.
+   *  @return The filled scene. */
+  private static Scene createScene(int count)
+  {
+    Scene scene = new Scene("", -1);
+    scene.setSize(Game.WIDTH, Game.HEIGHT);
+    scene.setBackgroundImage("city1");
+    
+    for (int i = 0; i < count; i++)
+    {
+      String id = "fig" + i;
+      int x = (int) ( (i * 37L) % Game.WIDTH );
+      int y = Game.HEIGHT - (int) ( (i * 11L) % (Game.HEIGHT / 2) );
+      scene.addCharacter("local", NAMES[i % NAMES.length], id,
+      x, y, SIZES[i % SIZES.length], "absolute");
+      scene.setCharacter(id, STATES[i % STATES.length]);
+    }
+    
+    return scene;
+  }
+  
+  /** Paints a scene repeatedly and prints the average time and number
+   *  of bytes allocated per frame.
+   *  @param scene    The scene to paint.
+   *  @param frame    The offscreen image to paint into.
+   *  @param threads  The source of the thread allocation counter.
+   *  @param frames   The number of measured frames.
+   *  @param count    The number of characters in the scene.
+   *  @param overlay  Whether to paint the transition cover and text box. */
+  private static void measure
+  (Scene scene, BufferedImage frame, com.sun.management.ThreadMXBean threads,
+   int frames, int count, boolean overlay)
+  {
+    /* Set up the cover and text box for this case. */
+    scene.addText("");
+    if (overlay) {
+      scene.setOpacity(128);
+      for (int i = 0; i < 5; i++) scene.addText("Rick: \"Line " + i + "\"");
+    } else {
+      scene.setOpacity(0);
+    }
+    
+    Graphics2D g = frame.createGraphics();
+    
+    /* Let the scaled images load and the JIT settle first. */
+    for (int i = 0; i < WARMUP_FRAMES; i++) scene.paintComponent(g);
+    
+    long startBytes = threads.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    
+    for (int i = 0; i < frames; i++) scene.paintComponent(g);
+    
+    long elapsed = System.nanoTime() - start;
+    long bytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+    g.dispose();
+    
+    System.out.printf("%8d  %-8s  %14d  %14d\n",
+    count, overlay ? "on" : "off", elapsed / frames, bytes / frames);
+  }
+}
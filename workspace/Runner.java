@@ -1,6 +1,9 @@
+import java.nio.file.Paths;
+
 /** The Runner class simply creates a Game object and runs it.
  *  It acts as the starting point for the program and all
- *  animations to follow.
+ *  animations to follow. If the path to a saved game is given as an
+ *  argument, the game carries on from there instead.
  *
  *  @author Paul Shin
  *  @since 0.1.0
@@ -10,6 +13,7 @@ public class Runner
 {
   public static void main(String[] args) {
     Game game = new Game();
-    game.run();
+    if (args.length > 0) game.resume(Paths.get(args[0]));
+    else game.run();
   }
 }
\ No newline at end of file
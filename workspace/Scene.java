@@ -4,6 +4,10 @@ import javax.swing.*;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** The Scene class is responsible for holding all of the characters,
  *  text, transitions, and buttons used in an animation. A game
@@ -37,7 +41,9 @@ import java.util.Scanner;
  *  button in the list, and after the appropriate action within the button
  *  has been noted/carried out. This is achieved with the use of another
  *  variable, namely the result variable: this variable is set to 0
- *  whenever no button has yet been pressed.
+ *  whenever no button has yet been pressed. The AnimationReader waits on
+ *  the result with waitForResult(), which returns as soon as a button is
+ *  pressed, whether it's clicked or chosen with the number keys.
  *
  *  Finally, each scene also contains text in the form of a list. Each
  *  entry in the list will be placed in its own line. Only the last
@@ -45,6 +51,18 @@ import java.util.Scanner;
  *  of the text box will not wrap to a new line. This class allows the
  *  addition and removal of lines of text, via the same function.
  *
+ *  Characters can also be tweened: their size, position and opacity
+ *  can be changed smoothly over a set time, following an easing curve.
+ *  Like moves, tweens are run on their own threads.
+ *
+ *  A scene can skip ahead: while it's skipping, animations are put
+ *  straight into their final states instead of being run, and the scene
+ *  is only repainted once the skip is over.
+ *
+ *  A scene can also be given a PerformanceOverlay, which is painted on
+ *  top of everything else while it's visible. The scene only measures
+ *  its painting while the overlay is visible.
+ *
  *  @author Paul Shin
  *  @since 0.1.0
  *  @version 0.1.0
@@ -66,16 +84,53 @@ public class Scene extends JPanel
   private int sceneID;
   
   /** The set of buttons to be used in the scene. */
-  private ArrayList<GameButton> buttons;
+  private volatile ArrayList<GameButton> buttons;
   
-  /** The stored result from clicking a button. */
-  private int result;
+  /** The stored result from clicking a button, completed when one of
+   *  the current buttons is pressed and replaced when they're removed. */
+  private volatile CompletableFuture<Integer> result
+  = new CompletableFuture<Integer>();
+  
+  /** When the button that completed the result was pressed, from
+   *  System.nanoTime(). */
+  private volatile long resultTime;
+  
+  /** Guards the result and the time it was completed. */
+  private final Object resultLock = new Object();
   
   /** The current text being displayed on-screen. */
   private ArrayList<String> text;
   
-  /* The background image. */
+  /* The background image, and the name it was set by. */
   private ImageIcon background;
+  private String backgroundName = "title";
+  
+  /** The performance overlay painted over the scene, if any. */
+  private PerformanceOverlay overlay;
+  
+  /* The number of move (and tween) and transition threads currently
+   * running. */
+  private final AtomicInteger movers = new AtomicInteger();
+  private final AtomicInteger transitions = new AtomicInteger();
+  
+  /** The clock the scene's animations are timed by. */
+  private volatile Clock clock = Clock.REAL_TIME;
+  
+  /** The move and transition threads of the current run of the scene. */
+  private volatile TaskScope tasks;
+  
+  /** The handle of the moves and tweens of each character that were
+   *  started since the last of them finished, by character-id. */
+  private volatile ConcurrentHashMap<String, CompletableFuture<Void>> moves
+  = new ConcurrentHashMap<String, CompletableFuture<Void>>();
+  
+  /** Whether the scene is skipping ahead: animations are finished at
+   *  once, and nothing is repainted until the skip ends. */
+  private volatile boolean skipping = false;
+  
+  /** The handle of the last transition. */
+  private volatile CompletableFuture<Void> transition
+  = CompletableFuture.completedFuture(null);
   
   
   
@@ -97,6 +152,7 @@ public class Scene extends JPanel
     opacity = 255;
     characters = new ArrayList<Figure>();
     buttons = new ArrayList<GameButton>();
+    tasks = new TaskScope("Scene " + id + " animation", clock);
   }
   
   
@@ -107,24 +163,104 @@ public class Scene extends JPanel
    *  once at the start of the scene's animating sequence. The duration
    *  specifies the length of the transition in milliseconds, or 10^3
    *  times its equivalent numerical value in seconds.
-   *  @param duration   The duration of the transition in millseconds. */
-  public void transitionIn(int duration)
+   *  @param duration   The duration of the transition in millseconds.
+   *  @return A handle that is completed when the transition ends. */
+  public CompletableFuture<Void> transitionIn(int duration)
   {
-    (new Thread
+    return transition = start
     (new Transition
-    (this, duration, -1) ) ).start();
+    (this, duration, -1), transitions );
   }
   
   /** Provides a smooth transition out of the scene. Should only be used
    *  once at the end of the scene's animating sequence. The duration
    *  specifies the length of the transition in milliseconds, or 10^3
    *  times its equivalent numerican value in seconds.
-   *  @param duration   The duration of the transition in milliseconds. */
-  public void transitionOut(int duration)
+   *  @param duration   The duration of the transition in milliseconds.
+   *  @return A handle that is completed when the transition ends. */
+  public CompletableFuture<Void> transitionOut(int duration)
   {
-    (new Thread
+    return transition = start
     (new Transition
-    (this, duration, 1) ) ).start();
+    (this, duration, 1), transitions );
+  }
+  
+  /** Stops every move and transition that is still running in this
+   *  scene, making them jump to their final states, and waits for their
+   *  threads to finish. This should be called whenever the scene ends;
+   *  the scene can then be run again with new animations.
+   *  @return The number of animations that were stopped. */
+  public int cancelAnimations()
+  {
+    TaskScope ended = tasks;
+    tasks = new TaskScope("Scene " + sceneID + " animation", clock);
+    moves = new ConcurrentHashMap<String, CompletableFuture<Void>>();
+    int stopped = ended.close();
+    if (stopped > 0 && Log.isEnabled(Log.DEBUG))
+      Log.debug("Stopped {} animations in scene {}", stopped, sceneID);
+    return stopped;
+  }
+  
+  /** Starts or stops skipping ahead through the scene. While skipping,
+   *  every animation that's started is put straight into its final
+   *  state instead of being run, and the scene isn't repainted; it's
+   *  painted once when the skip stops. Animations that are already
+   *  running should be stopped with cancelAnimations(), which also makes
+   *  them jump to their final states.
+   *  @param skip   Whether to skip. */
+  public void setSkipping(boolean skip)
+  {
+    skipping = skip;
+    if (!skip) repaint();
+  }
+  
+  /** Returns whether the scene is skipping ahead.
+   *  @return true if the scene is skipping. */
+  public boolean isSkipping()
+  {
+    return skipping;
+  }
+  
+  /** Returns the clock the scene's animations are timed by.
+   *  @return The clock; Clock.REAL_TIME unless another has been set. */
+  public Clock getClock()
+  {
+    return clock;
+  }
+  
+  /** Sets the clock the scene's animations are timed by. This should be
+   *  done before the scene is animated; any animation still running is
+   *  stopped.
+   *  @param clock  The clock to time the scene by. */
+  public void setClock(Clock clock)
+  {
+    this.clock = clock;
+    cancelAnimations();
+  }
+  
+  /** Returns a handle on the moves and tweens of a character.
+   *  @param id   The unique ID that references the character.
+   *  @return A handle that is completed when they have all ended;
+   *          already completed if the character isn't moving. */
+  public CompletableFuture<Void> getMove(String id)
+  {
+    CompletableFuture<Void> move = moves.get(id);
+    return (move == null) ? CompletableFuture.<Void>completedFuture(null)
+    : move;
+  }
+  
+  /** Returns a handle on the last transition into or out of the scene.
+   *  @return A handle that is completed when the transition ends. */
+  public CompletableFuture<Void> getTransition()
+  {
+    return transition;
+  }
+  
+  /** Returns a handle on every move and transition currently running.
+   *  @return A handle that is completed when they have all ended. */
+  public CompletableFuture<Void> getAnimations()
+  {
+    return tasks.whenFinished();
   }
   
   /** Sets the opacity of the black rectangular cover painted over the
@@ -160,7 +296,8 @@ public class Scene extends JPanel
    *  @param id       The "goto" id for this button. */
   public void addButton(String title, int id)
   {
-    System.out.println("Button added: " + title + " -> " + id);
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Button added: {} -> {}", title, id);
     
     GameButton newButton = new GameButton(this, title, id,
     (int) (4.0 * Game.WIDTH / 5.0),
@@ -175,7 +312,48 @@ public class Scene extends JPanel
    *  @return the value of the result variable. */
   public int getResult()
   {
-    return result;
+    return result.getNow(0);
+  }
+  
+  /** Waits until a button is pressed, and returns the value that it
+   *  stored in the result variable. Returns immediately if a button has
+   *  already been pressed.
+   *  @return the value of the result variable.
+   *  @throws InterruptedException if the thread is interrupted. */
+  public int waitForResult() throws InterruptedException
+  {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      return 0;
+    }
+  }
+  
+  /** Returns when the button that was chosen was pressed.
+   *  @return the time of the press, from System.nanoTime(). */
+  public long getResultTime()
+  {
+    return resultTime;
+  }
+  
+  /** Presses one of the current buttons, as if it had been clicked. This
+   *  is used to choose buttons with the keyboard, and does nothing if no
+   *  such button exists.
+   *  @param index    The position of the button in the list, from 0. */
+  public void pressButton(int index)
+  {
+    ArrayList<GameButton> current = buttons;
+    if (index >= 0 && index < current.size()) {
+      current.get(index).doClick(0);
+    }
+  }
+  
+  /** Returns the number of move and transition threads currently running
+   *  in this scene.
+   *  @return The number of animations in progress. */
+  public int getActiveAnimations()
+  {
+    return movers.get() + transitions.get();
   }
   
   /** Removes all buttons from the scene and window. This method also
@@ -193,11 +371,21 @@ public class Scene extends JPanel
   
   /** Function to set the value of the result variable. This function is
    *  to be used to indicate to the AnimationReader that a button has
-   *  been selected and to find the resulting line-id.
+   *  been selected and to find the resulting line-id. Only the first
+   *  button pressed counts; setting the result to 0 readies the scene
+   *  for the next list of buttons.
    *  @param res    The value to store in the result variable. */
   public void setResult(int res)
   {
-    result = res;
+    synchronized (resultLock) {
+      if (res == 0) {
+        result = new CompletableFuture<Integer>();
+      } else if (!result.isDone()) {
+        /* Later presses, such as a double-click, don't move the time. */
+        resultTime = System.nanoTime();
+        result.complete(res);
+      }
+    }
   }
   
   /** Function to add a new character into the scene. This method uses
@@ -216,12 +404,13 @@ public class Scene extends JPanel
   (String cType, String name, String id,
    int x, int y, double sz, String type)
   {
-    System.out.println
-    ("Added " + name + " " + cType + "ly w/ ID:\"" + id
-    + "\" at (" + x + "," + y + ") w/ " + type + " size of " + sz);
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Added {} {}ly w/ ID:\"{}\" at ({},{}) w/ {} size of {}",
+      name, cType, id, x, y, type, sz);
     
     /* FIXME: Add support for global character check later. */
     Figure newCharacter = new Figure(name, id, x, y, sz, type);
+    newCharacter.setScene(this);
     characters.add(newCharacter);
     add(newCharacter);
     repaint();
@@ -241,8 +430,10 @@ public class Scene extends JPanel
     {
       Figure character = characters.get(i);
       if (character.getID().equals(id)) {
-        System.out.println("Removed character w/ ID:\"" + id + "\"");
+        if (Log.isEnabled(Log.DEBUG))
+          Log.debug("Removed character w/ ID:\"{}\"", id);
         characters.remove(i);
+        character.setScene(null);
         remove(character);
         repaint();
         found = true;
@@ -258,8 +449,9 @@ public class Scene extends JPanel
     for (int i = 0; i < characters.size(); i++)
     {
       Figure fig = characters.get(i);
-      System.out.println("Removed character w/ ID:\""
-      + fig.getID() + "\"");
+      if (Log.isEnabled(Log.DEBUG))
+        Log.debug("Removed character w/ ID:\"{}\"", fig.getID());
+      fig.setScene(null);
       remove(fig);
     }
     characters = new ArrayList<Figure>();
@@ -272,8 +464,8 @@ public class Scene extends JPanel
    *  @param appearance The specific keyword to set the appearance. */
   public void setCharacter(String id, String appearance)
   {
-    System.out.println
-    ("Set character w/ ID:\"" + id + "\" to IMG:" + appearance);
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Set character w/ ID:\"{}\" to IMG:{}", id, appearance);
     Figure fig = getCharacter(id);
     if (fig != null) fig.setState(appearance);
     repaint();
@@ -286,15 +478,108 @@ public class Scene extends JPanel
    *  @param id     The unique ID that references the character.
    *  @param x      The horizontal position to move to.
    *  @param y      The vertical position to move to.
-   *  @param speed  The speed at which to move in px/s. */
-  public void moveCharacter(String id, int x, int y, int speed) {
-    System.out.println
-    ("Moved character w/ ID:\"" + id + "\" to (" + x + "," + y + ")"
-    + " @ " + speed + " px/s");
+   *  @param speed  The speed at which to move in px/s.
+   *  @return A handle that is completed when the move ends; already
+   *          completed if there is no such character. */
+  public CompletableFuture<Void> moveCharacter
+  (String id, int x, int y, int speed) {
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Moved character w/ ID:\"{}\" to ({},{}) @ {} px/s",
+      id, x, y, speed);
     Figure fig = getCharacter(id);
-    if (fig != null) {
-      (new Thread(new Move(fig, x, y, speed))).start();
-    }
+    if (fig == null) return CompletableFuture.completedFuture(null);
+    
+    return track(id, new Move(fig, new int[] {x, y}, false, speed));
+  }
+  
+  /** Function to move a character along a path from its current location,
+   *  either in straight lines through a list of waypoints or along curves
+   *  bent towards control points. See MotionPath. The move will be done
+   *  on a thread, and so will not interfere with the execution of
+   *  following commands.
+   *  @param id       The unique ID that references the character.
+   *  @param points   The points of the path as pairs of coordinates.
+   *  @param curved   Whether the points are of curves or waypoints.
+   *  @param speed    The speed at which to move in px/s.
+   *  @return A handle that is completed when the move ends; already
+   *          completed if there is no such character. */
+  public CompletableFuture<Void> moveCharacterAlong
+  (String id, int[] points, boolean curved, int speed) {
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Moved character w/ ID:\"{}\" along a {} path of {} points"
+      + " @ {} px/s", id, curved ? "curved" : "straight", points.length / 2,
+      speed);
+    Figure fig = getCharacter(id);
+    if (fig == null) return CompletableFuture.completedFuture(null);
+    
+    return track(id, new Move(fig, points, curved, speed));
+  }
+  
+  /** Function to smoothly change the size of a character over the given
+   *  time. The character is stretched to each size in between as it's
+   *  drawn, and its images are only rescaled once it reaches the final
+   *  size. The tween will be done on a thread.
+   *  @param id       The unique ID that references the character.
+   *  @param size     The size to grow or shrink to.
+   *  @param type     The type of sizing used: absolute or relative.
+   *  @param millis   How long the change takes in milliseconds.
+   *  @param easing   The curve the change follows.
+   *  @return A handle that is completed when the tween ends; already
+   *          completed if there is no such character. */
+  public CompletableFuture<Void> scaleCharacter
+  (String id, double size, String type, int millis, Easing easing)
+  {
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Scaling character w/ ID:\"{}\" to a{} {} size of {} "
+      + "in {} ms", id, (type.equals("absolute")) ? "n" : "", type, size,
+      millis);
+    Figure fig = getCharacter(id);
+    if (fig == null || size <= 0.0)
+      return CompletableFuture.completedFuture(null);
+    
+    return track(id, new Scale(fig, size, type, millis, easing));
+  }
+  
+  /** Function to slide a character to another location over the given
+   *  time. Unlike a move, the character keeps its appearance. The tween
+   *  will be done on a thread.
+   *  @param id       The unique ID that references the character.
+   *  @param x        The horizontal position to slide to.
+   *  @param y        The vertical position to slide to.
+   *  @param millis   How long the slide takes in milliseconds.
+   *  @param easing   The curve the slide follows.
+   *  @return A handle that is completed when the tween ends; already
+   *          completed if there is no such character. */
+  public CompletableFuture<Void> glideCharacter
+  (String id, int x, int y, int millis, Easing easing)
+  {
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Gliding character w/ ID:\"{}\" to ({},{}) in {} ms",
+      id, x, y, millis);
+    Figure fig = getCharacter(id);
+    if (fig == null) return CompletableFuture.completedFuture(null);
+    
+    return track(id, new Glide(fig, x, y, millis, easing));
+  }
+  
+  /** Function to smoothly change the opacity of a character over the
+   *  given time. The tween will be done on a thread.
+   *  @param id       The unique ID that references the character.
+   *  @param opacity  The opacity to fade to, from 0 to 1.
+   *  @param millis   How long the fade takes in milliseconds.
+   *  @param easing   The curve the fade follows.
+   *  @return A handle that is completed when the tween ends; already
+   *          completed if there is no such character. */
+  public CompletableFuture<Void> fadeCharacter
+  (String id, double opacity, int millis, Easing easing)
+  {
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Fading character w/ ID:\"{}\" to {} in {} ms",
+      id, opacity, millis);
+    Figure fig = getCharacter(id);
+    if (fig == null) return CompletableFuture.completedFuture(null);
+    
+    return track(id, new Fade(fig, opacity, millis, easing));
   }
   
   /** Function to add a line of text to the screen. If the text string
@@ -317,23 +602,12 @@ public class Scene extends JPanel
    *  @param name   The keyword denoting the background type. */
   public void setBackgroundImage (String name)
   {
-    /* The background type. */
-    BackgroundType type = null;
-    
     /* Find the appropriate background. */
-    if (name.equals("ambulance1")) type = BackgroundType.AMBULANCE1;
-    else if (name.equals("ambulance2")) type = BackgroundType.AMBULANCE2;
-    else if (name.equals("ambulance3")) type = BackgroundType.AMBULANCE3;
-    else if (name.equals("boat1")) type = BackgroundType.BOAT1;
-    else if (name.equals("building1")) type = BackgroundType.BUILDING1;
-    else if (name.equals("building2")) type = BackgroundType.BUILDING2;
-    else if (name.equals("city1")) type = BackgroundType.CITY1;
-    else if (name.equals("city2")) type = BackgroundType.CITY2;
-    else if (name.equals("office1")) type = BackgroundType.OFFICE1;
-    else if (name.equals("office2")) type = BackgroundType.OFFICE2;
-    else type = BackgroundType.TITLE;
+    BackgroundType type = BackgroundType.of(name);
+    AssetProfile.record(type);
     
     /* Set the background and apply it. */
+    backgroundName = type.name().toLowerCase();
     background = type.getImage();
     repaint();
   }
@@ -347,15 +621,67 @@ public class Scene extends JPanel
    *  @param type   The type of sizing used: absolute or relative. */
   public void resizeCharacter (String id, double size, String type)
   {
-    System.out.println("Resized character w/ ID:\"" + id + "\" to a"
-    + ( (type.equals("absolute")) ? "n" : "" )
-    + " " + type + " size of " + size);
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Resized character w/ ID:\"{}\" to a{} {} size of {}",
+      id, (type.equals("absolute")) ? "n" : "", type, size);
     Figure fig = getCharacter(id);
     if (fig != null) fig.resize(size, type);
   }
   
   
   
+  /** Takes a snapshot of the scene as it is now, to be saved.
+   *  @param line     The line of the animation file being run.
+   *  @param counter  The reader's counter.
+   *  @return The snapshot. */
+  public Snapshot snapshot(int line, int counter)
+  {
+    ArrayList<Snapshot.FigureState> states
+    = new ArrayList<Snapshot.FigureState>();
+    ArrayList<Figure> current = characters;
+    for (int i = 0; i < current.size(); i++)
+    {
+      Figure fig = current.get(i);
+      states.add(new Snapshot.FigureState(fig.getTypeName(), fig.getID(),
+      fig.getCenterX(), fig.getBaseY(), fig.getDisplaySize(),
+      fig.getState(), fig.getAlpha()));
+    }
+    return new Snapshot(sceneID, line, counter, backgroundName, opacity,
+    new ArrayList<String>(text), states);
+  }
+  
+  /** Puts the scene back as it was when a snapshot was taken. Any
+   *  characters and text already in the scene are replaced.
+   *  @param snapshot   The snapshot of this scene to restore. */
+  public void restore(Snapshot snapshot)
+  {
+    cancelAnimations();
+    removeAll();
+    for (Snapshot.FigureState state : snapshot.getCharacters())
+    {
+      Figure fig = new Figure(state.getType(), state.getID(), 0, 0,
+      state.getSize(), "absolute");
+      fig.setScene(this);
+      fig.setPosition(state.getX(), state.getY());
+      fig.setState(Integer.toString(state.getState()));
+      fig.setAlpha(state.getAlpha());
+      characters.add(fig);
+      add(fig);
+    }
+    text = new ArrayList<String>(snapshot.getText());
+    opacity = snapshot.getOpacity();
+    setBackgroundImage(snapshot.getBackground());
+  }
+  
+  /** Sets the performance overlay to paint over the scene.
+   *  @param overlay  The overlay, or null for none. */
+  public void setOverlay(PerformanceOverlay overlay)
+  {
+    this.overlay = overlay;
+  }
+  
+  
+  
   /* PRIVATE MEMBER FUNCTIONS */
   
   /** Function which returns a character based on its ID. If the character
@@ -379,6 +705,36 @@ public class Scene extends JPanel
     return null;
   }
   
+  /** Starts an animation on its own thread, keeping count of it. While
+   *  the scene is skipping, the animation is finished at once instead.
+   *  @param animation  The animation to run.
+   *  @param count      The count of animations of its kind.
+   *  @return A handle that is completed when the animation ends. */
+  private CompletableFuture<Void> start
+  (Animation animation, AtomicInteger count)
+  {
+    if (skipping) {
+      animation.finish();
+      return CompletableFuture.completedFuture(null);
+    }
+    return tasks.fork(new Counted(animation, count));
+  }
+  
+  /** Starts a move or tween of a character, and adds it to the handle on
+   *  that character's animations. Animations that have already finished
+   *  are dropped from the handle.
+   *  @param id         The unique ID that references the character.
+   *  @param animation  The move or tween to run.
+   *  @return A handle that is completed when the animation ends. */
+  private CompletableFuture<Void> track(String id, Animation animation)
+  {
+    CompletableFuture<Void> started = start(animation, movers);
+    CompletableFuture<Void> last = moves.get(id);
+    if (last == null || last.isDone()) moves.put(id, started);
+    else moves.put(id, CompletableFuture.allOf(last, started));
+    return started;
+  }
+  
   
   
   /* INNER CLASSES */
@@ -386,31 +742,198 @@ public class Scene extends JPanel
   /** The class designed to allow characters to be moved within a separate
    *  thread. This class allows a Figure object to be moved without having
    *  to declare it final. */
-  private class Move implements Runnable
+  private class Move implements Animation
   {
     /** The scene character to move. */
     private Figure fig;
     
     /* The settings with which the character will be moved. */
-    private int fx, fy, vel;
+    private int[] points;
+    private boolean curved;
+    private int vel;
     
     /** Constructor for the Move class, which initializes settings
      *  to be used for the move command.
-     *  @param fig    The character to move.
-     *  @param x      The horizontal position to move to.
-     *  @param y      The vertical position to move to.
-     *  @param speed  The speed at which to move in px/s. */
-    public Move(Figure fig, int x, int y, int speed) {
+     *  @param fig      The character to move.
+     *  @param points   The points of the path as pairs of coordinates.
+     *  @param curved   Whether the points are of curves or waypoints.
+     *  @param speed    The speed at which to move in px/s. */
+    public Move(Figure fig, int[] points, boolean curved, int speed) {
       this.fig = fig;
-      fx = x;
-      fy = y;
+      this.points = points;
+      this.curved = curved;
       vel = speed;
     }
     
     /** When called, moves the stored figure from its current position
-     *  to its final position. */
+     *  along the path to its final position. The path is only laid out
+     *  now, since the figure may have moved since the move was made. */
+    public void run() {
+      fig.moveAlong(layOut(), vel);
+    }
+    
+    /** When called, places the stored figure at its final position. */
+    public void finish() {
+      fig.finishMove(layOut());
+    }
+    
+    /** Lays out the path from the figure's current position.
+     *  @return The path to move along. */
+    private MotionPath layOut() {
+      double x0 = fig.getCenterX();
+      double y0 = fig.getBaseY();
+      return curved ? MotionPath.curve(x0, y0, points)
+      : MotionPath.through(x0, y0, points);
+    }
+  }
+  
+  
+  
+  /** The tween that changes a character's size. Each frame, the
+   *  character is only drawn at the size in between; its images are
+   *  rescaled once, when the tween settles. */
+  private class Scale extends Tween
+  {
+    /** The scene character to scale. */
+    private Figure fig;
+    
+    /* The size to scale to, and whether it's relative or absolute. */
+    private double size;
+    private String type;
+    
+    /* The sizes the character starts and ends at, when the tween begins. */
+    private double from, to;
+    
+    /** Constructor for the Scale class.
+     *  @param fig      The character to scale.
+     *  @param size     The size to scale to.
+     *  @param type     The type of sizing used: absolute or relative.
+     *  @param millis   How long the tween runs, in milliseconds.
+     *  @param easing   The curve the tween follows. */
+    public Scale
+    (Figure fig, double size, String type, int millis, Easing easing) {
+      super(millis, easing, clock);
+      this.fig = fig;
+      this.size = size;
+      this.type = type;
+    }
+    
+    /** Notes the size the character starts at. */
+    protected void begin() {
+      from = fig.getDisplaySize();
+      to = type.equals("relative") ? from * size : size;
+    }
+    
+    /** Draws the character at the size in between. */
+    protected void update(double progress) {
+      fig.setDisplaySize(from + (to - from) * progress);
+    }
+    
+    /** Rescales the character's images to the final size. */
+    protected void settle() {
+      fig.resize(to, "absolute");
+    }
+  }
+  
+  
+  
+  /** The tween that slides a character from one place to another. */
+  private class Glide extends Tween
+  {
+    /** The scene character to slide. */
+    private Figure fig;
+    
+    /* The position to slide to, and the position it starts at. */
+    private int fx, fy;
+    private double sx, sy;
+    
+    /** Constructor for the Glide class.
+     *  @param fig      The character to slide.
+     *  @param x        The horizontal position to slide to.
+     *  @param y        The vertical position to slide to.
+     *  @param millis   How long the tween runs, in milliseconds.
+     *  @param easing   The curve the tween follows. */
+    public Glide(Figure fig, int x, int y, int millis, Easing easing) {
+      super(millis, easing, clock);
+      this.fig = fig;
+      fx = x;
+      fy = y;
+    }
+    
+    /** Notes the position the character starts at. */
+    protected void begin() {
+      sx = fig.getCenterX();
+      sy = fig.getBaseY();
+    }
+    
+    /** Places the character at the position in between. */
+    protected void update(double progress) {
+      fig.setPosition(sx + (fx - sx) * progress, sy + (fy - sy) * progress);
+    }
+  }
+  
+  
+  
+  /** The tween that changes a character's opacity. */
+  private class Fade extends Tween
+  {
+    /** The scene character to fade. */
+    private Figure fig;
+    
+    /* The opacity to fade to, and the opacity it starts at. */
+    private double to, from;
+    
+    /** Constructor for the Fade class.
+     *  @param fig      The character to fade.
+     *  @param opacity  The opacity to fade to, from 0 to 1.
+     *  @param millis   How long the tween runs, in milliseconds.
+     *  @param easing   The curve the tween follows. */
+    public Fade(Figure fig, double opacity, int millis, Easing easing) {
+      super(millis, easing, clock);
+      this.fig = fig;
+      to = opacity;
+    }
+    
+    /** Notes the opacity the character starts at. */
+    protected void begin() {
+      from = fig.getAlpha();
+    }
+    
+    /** Draws the character with the opacity in between. */
+    protected void update(double progress) {
+      fig.setAlpha(from + (to - from) * progress);
+    }
+  }
+  
+  
+  
+  /** The class designed to keep count of the threads running a certain
+   *  kind of animation, such as moves or transitions. The count goes up
+   *  when the animation starts and back down when it finishes. */
+  private class Counted implements Runnable
+  {
+    /** The animation to run. */
+    private Runnable task;
+    
+    /** The count to keep. */
+    private AtomicInteger count;
+    
+    /** Constructor for the Counted class.
+     *  @param task   The animation to run.
+     *  @param count  The count to keep. */
+    public Counted(Runnable task, AtomicInteger count) {
+      this.task = task;
+      this.count = count;
+    }
+    
+    /** Runs the animation, keeping count while it runs. */
     public void run() {
-      fig.moveTo(fx, fy, vel);
+      count.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        count.decrementAndGet();
+      }
     }
   }
   
@@ -427,35 +950,60 @@ public class Scene extends JPanel
     (Game.WIDTH, Game.HEIGHT);
   }
   
+  /** {@inheritDoc}
+   *  Counts the request in the performance overlay, if it's visible.
+   *  Nothing is repainted while the scene is skipping ahead. */
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height)
+  {
+    if (skipping) return;
+    PerformanceOverlay o = overlay;
+    if (o != null && o.isVisible()) o.repaintRequested();
+    super.repaint(tm, x, y, width, height);
+  }
+  
   /** {@inheritDoc}
    *  Paints all the characters and text to the JPanel. The components
    *  are painted in this order, with earlier components placed under
    *  the later components: the background image, the characters in the
    *  order that they were added, the transition cover, and the text
    *  box. Five lines of text can fit on the text box, and the latest
-   *  five will be shown. */
+   *  five will be shown. If the performance overlay is visible, the
+   *  time spent on each of these layers is measured, and the overlay
+   *  is painted on top. */
   @Override
   public void paintComponent(Graphics g)
   {
+    PaintEvent event = new PaintEvent();
+    event.begin();
+    
     super.paintComponent(g);
     Graphics2D g2d = (Graphics2D) g;
     
+    /* Only measure the painting if the overlay is visible. */
+    PerformanceOverlay o = overlay;
+    boolean measuring = o != null && o.isVisible();
+    long start = measuring ? System.nanoTime() : 0;
+    
     /* Set the text box stroke. */
     int stroke = 6;
     g2d.setStroke(new BasicStroke(stroke));
     
     /* Paint the background. */
     if (background != null) background.paintIcon(this, g, 0, 0);
+    long backgroundEnd = measuring ? System.nanoTime() : 0;
     
     /* Paint the characters. */
     for (int i = 0; i < characters.size(); i++)
     {
       characters.get(i).paintComponent(g);
     }
+    long figuresEnd = measuring ? System.nanoTime() : 0;
     
     /* Paint the cover if transitioning. */
     g.setColor(new Color(0, 0, 0, opacity));
     g.fillRect(0, 0, Game.WIDTH, Game.HEIGHT);
+    long coverEnd = measuring ? System.nanoTime() : 0;
     
     /* Paint the text box. */
     int num_lines = text.size();
@@ -484,5 +1032,18 @@ public class Scene extends JPanel
         g.drawString(line, x, y + font_size * i);
       }
     }
+    
+    /* Paint the performance overlay on top of everything. */
+    if (measuring) {
+      o.framePainted
+      (start, backgroundEnd, figuresEnd, coverEnd, System.nanoTime());
+      o.paint(g2d, movers.get(), transitions.get());
+    }
+    
+    if (event.shouldCommit()) {
+      event.sceneID = sceneID;
+      event.figures = characters.size();
+      event.commit();
+    }
   }
 }
\ No newline at end of file
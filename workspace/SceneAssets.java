@@ -0,0 +1,314 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** What a scene's animation file refers to, found by reading the file
+ *  without running it: the scene-ids it can return to, the backgrounds it
+ *  can show, and the characters it can add together with the sizes their
+ *  images are scaled to and the appearances they're shown in.
+ *
+ *  Every line is read, whichever way the script's gotos and buttons
+ *  would go, so the lists hold everything the scene might ask for, in
+ *  the order it first appears in the file. A character's size is worked
+ *  out the same way Figure works it out, so a size here asks
+ *  FigureType.getAnimationImagesResized(double) for exactly the images
+ *  the scene will; relative sizes are followed down the file from the
+ *  add command, as though every line before them had been run.
+ *
+ *  Like the text of the files, the assets of a file never change once
+ *  they've been found, so they're kept and shared by every session.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class SceneAssets
+{
+  /** The assets found in each animation file, by path. */
+  private static final ConcurrentHashMap<String, SceneAssets> analysed
+  = new ConcurrentHashMap<String, SceneAssets>();
+  
+  /** Reads the numbers and sizes in each command. */
+  private static final AnimationReader parser = new AnimationReader();
+  
+  /** The scene-ids the scene can return, in the order they're found. */
+  private final List<Integer> returns;
+  
+  /** The backgrounds the scene can show, starting with its header's. */
+  private final List<BackgroundType> backgrounds;
+  
+  /** The characters and sizes the scene can add or resize to. */
+  private final List<Sizing> sizings;
+  
+  /** The appearances each character can be shown in. */
+  private final Map<FigureType, Set<Integer>> states;
+  
+  /** One character type at one size. */
+  public static class Sizing
+  {
+    /* The character's type, and the scale of its images. */
+    private final FigureType type;
+    private final double scale;
+    
+    /** Constructor for the Sizing class.
+     *  @param type   The character's type.
+     *  @param scale  The scale of the character's images. */
+    public Sizing(FigureType type, double scale)
+    {
+      this.type = type;
+      this.scale = scale;
+    }
+    
+    /** Returns the character's type.
+     *  @return The type. */
+    public FigureType getType()
+    {
+      return type;
+    }
+    
+    /** Returns the scale the character's images are resized to.
+     *  @return The scale, with respect to the window's height. */
+    public double getScale()
+    {
+      return scale;
+    }
+    
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Sizing)) return false;
+      Sizing other = (Sizing) o;
+      return type == other.type
+      && Double.compare(scale, other.scale) == 0;
+    }
+    
+    public int hashCode()
+    {
+      return type.hashCode() * 31 + Double.valueOf(scale).hashCode();
+    }
+    
+    public String toString()
+    {
+      return type.name().toLowerCase() + "@" + scale;
+    }
+  }
+  
+  /** Constructor for the SceneAssets class. Reads through the whole file
+   *  once, collecting what each command refers to.
+   *  @param file   The path to the animation file.
+   *  @throws IOException if the file can't be read. */
+  private SceneAssets(String file) throws IOException
+  {
+    LinkedHashSet<Integer> ids = new LinkedHashSet<Integer>();
+    LinkedHashSet<BackgroundType> bgs = new LinkedHashSet<BackgroundType>();
+    LinkedHashSet<Sizing> sizes = new LinkedHashSet<Sizing>();
+    LinkedHashMap<FigureType, Set<Integer>> looks
+    = new LinkedHashMap<FigureType, Set<Integer>>();
+  
+    /* The size each character was last given, and its type, by id. */
+    HashMap<String, Sizing> characters = new HashMap<String, Sizing>();
+  
+    LineNumberReader reader = ScriptCache.open(file);
+  
+    /* The header may name the first background. */
+    String line = reader.readLine();
+    if (line != null) {
+      String[] header = line.split(" ");
+      if (header.length > 2)
+        bgs.add(BackgroundType.of(header[2].toLowerCase()));
+    }
+  
+    while ((line = reader.readLine()) != null)
+    {
+      if (line.equals("")) continue;
+      String[] tokens = line.split(" ");
+      try {
+        switch (Opcode.of(tokens))
+        {
+          case ADD: {
+            /* "add [type] [name] [id] [[x]] [[y]] [[size]] [[sizing]]" */
+            String name = tokens[2].toLowerCase();
+            String id = tokens[3].toLowerCase();
+            double size = 1.0;
+            if (tokens.length > 6)
+              size = parser.evaluatePercent(tokens[6]) / 100.0;
+  
+            /* A new character's relative size is relative to 1. */
+            Sizing added = new Sizing(FigureType.of(name), scale(size));
+            characters.put(id, added);
+            sizes.add(added);
+            look(looks, added, Figure.STILL);
+            break;
+          }
+  
+          case MOVE:
+          case PATH:
+          case CURVE: {
+            /* A moving character steps from one leg to the other. */
+            Sizing moved = characters.get(tokens[1].toLowerCase());
+            look(looks, moved, Figure.LEFT);
+            look(looks, moved, Figure.RIGHT);
+            break;
+          }
+  
+          case SET_CHARACTER:
+            /* "set character [id] [appearance]" */
+            look(looks, characters.get(tokens[2].toLowerCase()),
+            Figure.parseState(tokens[3].toLowerCase()));
+            break;
+  
+          case REMOVE:
+            characters.remove(tokens[1].toLowerCase());
+            break;
+  
+          case SET_SIZE: {
+            /* "set size [id] [size] [[sizing]]" */
+            String id = tokens[2].toLowerCase();
+            Sizing last = characters.get(id);
+            if (last == null) break;
+            double size = parser.evaluatePercent(tokens[3]) / 100.0;
+            if (tokens.length > 4
+            && tokens[4].toLowerCase().equals("relative")) {
+              size = last.getScale() * size;
+            }
+            Sizing resized = new Sizing(last.getType(), scale(size));
+            characters.put(id, resized);
+            sizes.add(resized);
+            break;
+          }
+  
+          case SCALE: {
+            /* "scale [id] [size] [time] [[sizing]] [[easing]]"; the
+             * images are rescaled once the tween ends. */
+            String id = tokens[1].toLowerCase();
+            Sizing last = characters.get(id);
+            if (last == null) break;
+            double size = parser.evaluatePercent(tokens[2]) / 100.0;
+            if (tokens.length > 4
+            && tokens[4].toLowerCase().equals("relative")) {
+              size = last.getScale() * size;
+            }
+            Sizing resized = new Sizing(last.getType(), scale(size));
+            characters.put(id, resized);
+            sizes.add(resized);
+            break;
+          }
+  
+          case SET_BACKGROUND:
+            bgs.add(BackgroundType.of(tokens[2].toLowerCase()));
+            break;
+  
+          case RETURN:
+            ids.add(Integer.valueOf(tokens[1]));
+            break;
+  
+          default:
+            break;
+        }
+      }
+  
+      /* A command the reader would reject asks for nothing. */
+      catch (IndexOutOfBoundsException e) {}
+      catch (IllegalArgumentException e) {}
+    }
+  
+    returns = Collections.unmodifiableList(new ArrayList<Integer>(ids));
+    backgrounds
+    = Collections.unmodifiableList(new ArrayList<BackgroundType>(bgs));
+    sizings = Collections.unmodifiableList(new ArrayList<Sizing>(sizes));
+    for (Map.Entry<FigureType, Set<Integer>> e : looks.entrySet())
+      e.setValue(Collections.unmodifiableSet(e.getValue()));
+    states = Collections.unmodifiableMap(looks);
+  }
+  
+  /** Returns the assets of an animation file. The file is read and
+   *  analysed the first time it's asked for.
+   *  @param file   The path to the animation file.
+   *  @return The file's assets.
+   *  @throws IOException if the file can't be read. */
+  public static SceneAssets of(String file) throws IOException
+  {
+    SceneAssets assets = analysed.get(file);
+    if (assets == null) {
+      assets = new SceneAssets(file);
+      SceneAssets raced = analysed.putIfAbsent(file, assets);
+      if (raced != null) assets = raced;
+    }
+    return assets;
+  }
+  
+  /** Forgets the assets of every file, so that files are analysed again
+   *  the next time they're asked for. */
+  public static void clear()
+  {
+    analysed.clear();
+  }
+  
+  /** Forgets the assets of one file, so that it's analysed again the
+   *  next time it's asked for, as when the file has changed.
+   *  @param file   The path to the animation file. */
+  public static void invalidate(String file)
+  {
+    analysed.remove(file);
+  }
+  
+  /** Returns the scene-ids the scene can return, which may include ones
+   *  that don't exist or are negative.
+   *  @return The scene-ids, in the order they first appear. */
+  public List<Integer> getReturns()
+  {
+    return returns;
+  }
+  
+  /** Returns the backgrounds the scene can show.
+   *  @return The backgrounds, in the order they first appear. */
+  public List<BackgroundType> getBackgrounds()
+  {
+    return backgrounds;
+  }
+  
+  /** Returns the characters the scene can show, at each size they can be
+   *  shown at.
+   *  @return The characters and sizes, in the order they first appear. */
+  public List<Sizing> getSizings()
+  {
+    return sizings;
+  }
+  
+  /** Returns the appearances each character can be shown in. Every
+   *  character the scene adds is shown still at first.
+   *  @return The appearances by character, e.g. Figure.STILL, in the
+   *          order the characters are first added. */
+  public Map<FigureType, Set<Integer>> getStates()
+  {
+    return states;
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Notes that a character can be shown in an appearance.
+   *  @param looks      The appearances found so far.
+   *  @param character  The character; null if it hasn't been added.
+   *  @param state      The appearance, e.g. Figure.STILL. */
+  private static void look(Map<FigureType, Set<Integer>> looks,
+  Sizing character, int state)
+  {
+    if (character == null) return;
+    Set<Integer> shown = looks.get(character.getType());
+    if (shown == null) {
+      shown = new TreeSet<Integer>();
+      looks.put(character.getType(), shown);
+    }
+    shown.add(state);
+  }
+  
+  /** Returns the scale a character's images are resized to when it's
+   *  given a size, the same as Figure: a non-positive size is taken as 1.
+   *  @param size   The size given.
+   *  @return The scale of the images. */
+  private static double scale(double size)
+  {
+    return (size > 0.0) ? size : 1.0;
+  }
+}
@@ -0,0 +1,287 @@
+import java.io.*;
+import java.util.Random;
+
+/** The SceneGenerator class writes synthetic animation files that can be
+ *  used to measure how the game scales with the size of its scripts.
+ *  Every generated file follows the same format as the handwritten files
+ *  in the animation_files directory, starting with the heading
+ *  "ANIMATION [scene-id] [background-name]", and only uses commands that
+ *  the AnimationReader understands.
+ *
+ *  Each generated scene adds a crowd of characters, then runs a body of
+ *  randomly chosen commands (moves, appearance and size changes, text,
+ *  opacity and background changes, and waits). Parts of the body are
+ *  wrapped in counted loops made from the "id" and "goto" commands. A
+ *  scene either ends with a button list whose buttons each lead to a
+ *  different "return", or with a single "return" to the next scene. The
+ *  last scene always returns -1 so that the game can finish.
+ *
+ *  The generator is configured with "key=value" arguments, all of which
+ *  are optional:
+ *
+ *    out=[directory]     Where to write the files (generated_files).
+ *    scenes=[count]      The number of scenes to write (10).
+ *    lines=[count]       The number of body commands per scene (100).
+ *    characters=[count]  The number of characters per scene (5).
+ *    loops=[count]       The number of loops per scene (2).
+ *    iterations=[count]  The number of times each loop repeats (3).
+ *    buttons=[count]     The number of buttons per button list; 0 makes
+ *                        each scene return straight to the next (0).
+ *    wait=[ms]           The duration of each generated wait (100).
+ *    seed=[number]       The seed of the random generator (0).
+ *
+ *  For example: "java SceneGenerator out=big scenes=500 lines=2000".
+ *  The same seed and settings always produce the same files.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class SceneGenerator
+{
+  /** The character names that can be added to a scene. */
+  private static final String[] NAMES =
+  { "enemy", "mob", "jason", "paul", "rick", "sam", "shin", "heather" };
+  
+  /** The backgrounds that can be set in a scene. */
+  private static final String[] BACKGROUNDS =
+  { "ambulance1", "ambulance2", "ambulance3", "boat1", "building1",
+    "building2", "city1", "city2", "office1", "office2" };
+  
+  /** The appearances that a character can be set to. */
+  private static final String[] STATES =
+  { "still", "left", "right", "action1", "action2" };
+  
+  /* The generator settings. */
+  private String out = "generated_files";
+  private int scenes = 10;
+  private int lines = 100;
+  private int characters = 5;
+  private int loops = 2;
+  private int iterations = 3;
+  private int buttons = 0;
+  private int wait = 100;
+  
+  /** The source of every random choice. */
+  private Random random;
+  
+  /** The next unused line-id within the scene being written. */
+  private int nextLineID;
+  
+  public static void main(String[] args) throws IOException
+  {
+    SceneGenerator generator = new SceneGenerator(args);
+    generator.generate();
+  }
+  
+  /** Constructor for the SceneGenerator class. Reads the settings from
+   *  the given "key=value" arguments, keeping the defaults for any
+   *  settings that aren't given.
+   *  @param args   The "key=value" arguments.
+   *  @throws IllegalArgumentException if an argument is not recognized. */
+  public SceneGenerator(String[] args)
+  {
+    long seed = 0;
+    
+    for (int i = 0; i < args.length; i++)
+    {
+      String[] pair = args[i].split("=", 2);
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("Expected key=value: " + args[i]);
+      }
+      
+      String key = pair[0].toLowerCase();
+      String value = pair[1];
+      
+      if (key.equals("out")) out = value;
+      else if (key.equals("scenes")) scenes = Integer.parseInt(value);
+      else if (key.equals("lines")) lines = Integer.parseInt(value);
+      else if (key.equals("characters")) characters = Integer.parseInt(value);
+      else if (key.equals("loops")) loops = Integer.parseInt(value);
+      else if (key.equals("iterations")) iterations = Integer.parseInt(value);
+      else if (key.equals("buttons")) buttons = Integer.parseInt(value);
+      else if (key.equals("wait")) wait = Integer.parseInt(value);
+      else if (key.equals("seed")) seed = Long.parseLong(value);
+      else throw new IllegalArgumentException("Unknown setting: " + key);
+    }
+    
+    random = new Random(seed);
+  }
+  
+  /** Writes every scene into the output directory, one file per scene.
+   *  @throws IOException if a file could not be written. */
+  public void generate() throws IOException
+  {
+    File folder = new File(out);
+    folder.mkdirs();
+    
+    for (int id = 0; id < scenes; id++)
+    {
+      File file = new File(folder, "scene" + id + ".txt");
+      PrintWriter writer = new PrintWriter(new FileWriter(file));
+      try {
+        writeScene(writer, id);
+      } finally {
+        writer.close();
+      }
+    }
+    
+    System.out.println("Generated " + scenes + " scenes in " + out);
+  }
+  
+  /** Writes a single scene: its heading, its crowd of characters, its
+   *  body of commands and loops, and its ending.
+   *  @param writer   Where to write the scene.
+   *  @param id       The scene-id of the scene. */
+  private void writeScene(PrintWriter writer, int id)
+  {
+    nextLineID = 1;
+    
+    writer.println("ANIMATION " + id + " " + pick(BACKGROUNDS));
+    writer.println("# Generated scene " + id);
+    writer.println();
+    writer.println("reset counter");
+    writer.println("transition in 500ms");
+    
+    /* Add the crowd of characters. */
+    for (int i = 0; i < characters; i++)
+    {
+      writer.println("add local " + pick(NAMES) + " c" + i + " "
+      + random.nextInt(Game.WIDTH) + " "
+      + (Game.HEIGHT / 2 + random.nextInt(Game.HEIGHT / 2)) + " "
+      + (10 + random.nextInt(40)) + "%");
+    }
+    writer.println();
+    
+    /* Split the body into equal runs, some of which are loops. */
+    int runs = loops + 1;
+    for (int run = 0; run < runs; run++)
+    {
+      int count = lines / runs + ((run < lines % runs) ? 1 : 0);
+      
+      /* Every run but the last is wrapped in a counted loop. */
+      if (run < loops) {
+        int loopID = nextLineID++;
+        writer.println("reset counter");
+        writer.println("id " + loopID);
+        writeCommands(writer, count);
+        writer.println("increment counter");
+        writer.println("goto " + loopID + " if counter < " + iterations);
+      } else {
+        writeCommands(writer, count);
+      }
+      writer.println();
+    }
+    
+    writeEnding(writer, id);
+  }
+  
+  /** Writes the given number of randomly chosen body commands.
+   *  @param writer   Where to write the commands.
+   *  @param count    The number of commands to write. */
+  private void writeCommands(PrintWriter writer, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      String character = (characters > 0)
+      ? "c" + random.nextInt(characters) : null;
+      int choice = random.nextInt(10);
+      
+      /* Commands on characters can only be used if there's a crowd. */
+      if (character != null && choice < 2) {
+        writer.println("move " + character + " "
+        + random.nextInt(Game.WIDTH) + " "
+        + (Game.HEIGHT / 2 + random.nextInt(Game.HEIGHT / 2)) + " "
+        + (50 + random.nextInt(450)));
+      }
+      else if (character != null && choice < 4) {
+        writer.println("set character " + character + " " + pick(STATES));
+      }
+      else if (character != null && choice < 5) {
+        writer.println("set size " + character + " "
+        + (90 + random.nextInt(21)) + "% relative");
+      }
+      else if (choice < 6) {
+        writer.println("print Line " + random.nextInt(1000)
+        + ": the quick brown fox jumps over the lazy dog.");
+      }
+      else if (choice < 7) {
+        writer.println("clear-text");
+      }
+      else if (choice < 8) {
+        writer.println("set opacity " + random.nextInt(50) + "%");
+      }
+      else if (choice < 9) {
+        writer.println("set background " + pick(BACKGROUNDS));
+      }
+      else {
+        writer.println("wait " + wait + "ms");
+      }
+    }
+  }
+  
+  /** Writes the end of a scene. If buttons are enabled, a button list is
+   *  written whose buttons each jump to their own "return" command, and
+   *  otherwise a single "return" to the next scene is written. The last
+   *  scene always returns -1.
+   *  @param writer   Where to write the ending.
+   *  @param id       The scene-id of the scene. */
+  private void writeEnding(PrintWriter writer, int id)
+  {
+    writer.println("set opacity none");
+    
+    if (buttons > 0) {
+      /* Reserve the line-ids for the button targets. */
+      int firstID = nextLineID;
+      nextLineID += buttons;
+      
+      writer.println("*");
+      for (int i = 0; i < buttons; i++)
+      {
+        writer.println("Choice_" + (i + 1) + " " + (firstID + i));
+      }
+      writer.println("end");
+      writer.println();
+      
+      for (int i = 0; i < buttons; i++)
+      {
+        writer.println("id " + (firstID + i));
+        writeReturn(writer, nextScene(id));
+        writer.println();
+      }
+    } else {
+      writeReturn(writer, (id + 1 < scenes) ? id + 1 : -1);
+    }
+  }
+  
+  /** Writes the commands that clean up a scene before it returns.
+   *  @param writer   Where to write the commands.
+   *  @param next     The scene-id to return. */
+  private void writeReturn(PrintWriter writer, int next)
+  {
+    writer.println("remove all");
+    writer.println("clear-text");
+    writer.println("reset counter");
+    writer.println("return " + next);
+  }
+  
+  /** Chooses the scene that a button leads to. Most buttons move forward
+   *  through the scenes, but some jump back to earlier scenes so that the
+   *  graph of returns contains cycles. The last scene always ends.
+   *  @param id     The scene-id of the current scene.
+   *  @return The scene-id to return. */
+  private int nextScene(int id)
+  {
+    if (id + 1 >= scenes) return -1;
+    if (random.nextInt(4) == 0) return random.nextInt(id + 1);
+    return id + 1 + random.nextInt(scenes - id - 1);
+  }
+  
+  /** Returns a random entry of the given array.
+   *  @param choices  The entries to choose from.
+   *  @return One of the entries. */
+  private String pick(String[] choices)
+  {
+    return choices[random.nextInt(choices.length)];
+  }
+}
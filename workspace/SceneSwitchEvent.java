@@ -0,0 +1,26 @@
+import jdk.jfr.*;
+
+/** A Java Flight Recorder event emitted every time the game switches
+ *  from one scene to the next. The event lasts as long as it takes to
+ *  set up the new scene in the window. Disabled by default; see
+ *  CommandEvent.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+@Name("rickrangers.SceneSwitch")
+@Label("Scene Switch")
+@Category({ "Rick Rangers", "Script" })
+@Description("The window switching to a new scene")
+@Enabled(false)
+@StackTrace(false)
+public class SceneSwitchEvent extends Event
+{
+  @Label("Previous Scene ID")
+  @Description("The scene that just finished, or -1 at the start")
+  public int previousSceneID;
+  
+  @Label("Scene ID")
+  public int sceneID;
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The scenes of a game, looked up by scene-id. A table is built once
+ *  from a list of scenes, in time proportional to the number of scenes,
+ *  and never changes afterwards, so any number of threads can look
+ *  scenes up in it while another builds its replacement.
+ *
+ *  Scene-ids are usually numbered 0, 1, 2 and so on, with few gaps, so
+ *  the scenes are kept in an array indexed by scene-id, from the lowest
+ *  to the highest. If the scene-ids are spread too thin for that, such as
+ *  0, 1000 and 20000, the scenes are kept in a hash table keyed by the
+ *  scene-id instead, probed from slot to slot. Either way, finding a
+ *  scene takes the same time however many scenes there are.
+ *
+ *  No two scenes in a table have the same scene-id. If two files claim
+ *  the same one, the first one listed is kept, and the other is logged
+ *  and left out.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class SceneTable
+{
+  /** The most empty slots allowed for each scene in an array. */
+  private static final int SPREAD = 2;
+  
+  /** The scenes in the table, in the order they were listed. */
+  private final List<Scene> scenes;
+  
+  /** The lowest scene-id; the scene-id of the array's first slot. */
+  private final int lowest;
+  
+  /** The scenes indexed by scene-id, or by hash slot if keys is set. */
+  private final Scene[] slots;
+  
+  /** The scene-id in each hash slot; null if the scenes are in an array
+   *  indexed by scene-id. */
+  private final int[] keys;
+  
+  /** Constructor for the SceneTable class. Scenes whose scene-id has
+   *  already been taken by an earlier scene in the list are left out.
+   *  @param list   The scenes to put in the table. */
+  public SceneTable(List<Scene> list)
+  {
+    /* Find the range of scene-ids. */
+    int lo = 0;
+    int hi = -1;
+    for (int i = 0; i < list.size(); i++)
+    {
+      int id = list.get(i).getSceneID();
+      if (i == 0 || id < lo) lo = id;
+      if (i == 0 || id > hi) hi = id;
+    }
+  
+    /* Use an array if the scene-ids are close enough together. */
+    long range = (long) hi - lo + 1;
+    ArrayList<Scene> kept = new ArrayList<Scene>(list.size());
+    if (range <= (long) SPREAD * list.size() + 16) {
+      lowest = lo;
+      keys = null;
+      slots = new Scene[(int) range];
+      for (int i = 0; i < list.size(); i++)
+      {
+        Scene scene = list.get(i);
+        int slot = scene.getSceneID() - lo;
+        if (slots[slot] == null) {
+          slots[slot] = scene;
+          kept.add(scene);
+        } else {
+          duplicate(slots[slot], scene);
+        }
+      }
+    } else {
+      /* Otherwise, a hash table at most half full. */
+      int capacity = Integer.highestOneBit(list.size() * 2 - 1) << 1;
+      lowest = 0;
+      keys = new int[capacity];
+      slots = new Scene[capacity];
+      for (int i = 0; i < list.size(); i++)
+      {
+        Scene scene = list.get(i);
+        int slot = probe(scene.getSceneID());
+        if (slots[slot] == null) {
+          keys[slot] = scene.getSceneID();
+          slots[slot] = scene;
+          kept.add(scene);
+        } else {
+          duplicate(slots[slot], scene);
+        }
+      }
+    }
+    scenes = Collections.unmodifiableList(kept);
+  }
+  
+  /** Function to find the scene with the given scene-id.
+   *  @param id     The scene-id to find.
+   *  @return The scene with that scene-id; null if there isn't one. */
+  public Scene get(int id)
+  {
+    if (keys != null) return slots[probe(id)];
+    long slot = (long) id - lowest;
+    if (slot < 0 || slot >= slots.length) return null;
+    return slots[(int) slot];
+  }
+  
+  /** Function to get the number of scenes in the table.
+   *  @return The number of scenes. */
+  public int size()
+  {
+    return scenes.size();
+  }
+  
+  /** Function to get every scene in the table.
+   *  @return The scenes, in the order they were listed. */
+  public List<Scene> getScenes()
+  {
+    return scenes;
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Function to find the hash slot that holds a scene-id, or the empty
+   *  slot where it would go.
+   *  @param id     The scene-id.
+   *  @return The slot's index. */
+  private int probe(int id)
+  {
+    int mask = slots.length - 1;
+    int hash = id * 0x9E3779B9;
+    int slot = (hash ^ hash >>> 16) & mask;
+    while (slots[slot] != null && keys[slot] != id)
+      slot = (slot + 1) & mask;
+    return slot;
+  }
+  
+  /** Function to report a scene left out because its scene-id is taken.
+   *  @param kept     The scene that has the scene-id.
+   *  @param dropped  The scene left out. */
+  private static void duplicate(Scene kept, Scene dropped)
+  {
+    Log.warn("Scene {} in {} is already in {}; it's left out",
+    dropped.getSceneID(), dropped.getAnimationFile(),
+    kept.getAnimationFile());
+  }
+}
@@ -0,0 +1,67 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Keeps the text of every animation file that has been read, so that
+ *  the file is only read from disk once. The text never changes once it
+ *  has been read, so it's shared by every session in the process: many
+ *  games can read the same scenes at once without each keeping its own
+ *  copy.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class ScriptCache
+{
+  /** The text of each animation file read, by path. */
+  private static final ConcurrentHashMap<String, String> scripts
+  = new ConcurrentHashMap<String, String>();
+  
+  /** The ScriptCache class cannot be instantiated. */
+  private ScriptCache() {}
+  
+  /** Opens an animation file for reading, from its cached text. The file
+   *  is read from disk the first time it's opened.
+   *  @param file   The path to the animation file.
+   *  @return A reader at the start of the file.
+   *  @throws IOException if the file can't be read. */
+  public static LineNumberReader open(String file) throws IOException
+  {
+    return new LineNumberReader(new StringReader(read(file)));
+  }
+  
+  /** Returns the text of an animation file, from the cache. The file is
+   *  read from disk the first time it's asked for.
+   *  @param file   The path to the animation file.
+   *  @return The text of the file.
+   *  @throws IOException if the file can't be read. */
+  public static String read(String file) throws IOException
+  {
+    String script = scripts.get(file);
+    if (script == null) {
+      script = new String(Files.readAllBytes(Paths.get(file)),
+      Charset.defaultCharset());
+      String raced = scripts.putIfAbsent(file, script);
+      if (raced != null) script = raced;
+    }
+    return script;
+  }
+  
+  /** Forgets the cached text of one file, so that it's read from disk
+   *  again the next time it's opened, as when the file has changed.
+   *  @param file   The path to the animation file. */
+  public static void invalidate(String file)
+  {
+    scripts.remove(file);
+  }
+  
+  /** Forgets the cached text of every file, so that files are read from
+   *  disk again the next time they're opened. */
+  public static void clear()
+  {
+    scripts.clear();
+  }
+}
@@ -0,0 +1,138 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/** Watches the folder of animation files while the game runs, and reloads
+ *  each file that's changed, added or removed into a session, so that a
+ *  scene can be edited without starting the game again. Only the changed
+ *  files are read again; every other scene, and every image loaded so
+ *  far, is kept.
+ *
+ *  Editors often save a file in several steps, so once a change is seen,
+ *  the watcher waits a moment for the rest before reloading. How long each
+ *  reload took, and how long after the file was saved it was in place, is
+ *  logged. If the watcher is set to restart scenes, a change to the scene
+ *  being animated starts it again from the top; otherwise the new script
+ *  is used the next time the scene starts.
+ *
+ *  In the game, the watcher is turned on with the system property
+ *  "reload", and set to restart scenes with "reload.restart".
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class ScriptWatcher implements Runnable
+{
+  /** How long to wait for the rest of a save, in milliseconds. */
+  private static final long SETTLE = 50;
+  
+  /** The session the files are reloaded into. */
+  private final Session session;
+  
+  /** The folder being watched, as the session was loaded from it. */
+  private final String folderPath;
+  
+  /** Whether a changed scene is started again if it's being animated. */
+  private final boolean restart;
+  
+  /** Watches the folder for changes. */
+  private final WatchService watcher;
+  
+  /** Constructor for the ScriptWatcher class. The folder is watched from
+   *  now on, but nothing is reloaded until run() is called.
+   *  @param session      The session to reload the files into.
+   *  @param folderPath   The folder the session's animation files are
+   *                      kept in.
+   *  @param restart      Whether to restart the scene being animated when
+   *                      its file changes.
+   *  @throws IOException if the folder can't be watched. */
+  public ScriptWatcher(Session session, String folderPath, boolean restart)
+  throws IOException
+  {
+    this.session = session;
+    this.folderPath = folderPath;
+    this.restart = restart;
+    watcher = FileSystems.getDefault().newWatchService();
+    Paths.get(folderPath).register(watcher,
+    StandardWatchEventKinds.ENTRY_CREATE,
+    StandardWatchEventKinds.ENTRY_MODIFY,
+    StandardWatchEventKinds.ENTRY_DELETE);
+  }
+  
+  /** Starts watching on a thread of its own.
+   *  @return The watching thread. */
+  public Thread start()
+  {
+    Thread thread = new Thread(this, "Script watcher");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+  
+  /** Reloads files as they change, until interrupted. */
+  public void run()
+  {
+    Log.info("Watching {} for changes", folderPath);
+    try {
+      while (true)
+      {
+        /* Wait for a change, then for the rest of the save. */
+        LinkedHashSet<String> changed = new LinkedHashSet<String>();
+        WatchKey key = watcher.take();
+        while (key != null)
+        {
+          for (WatchEvent<?> event : key.pollEvents())
+          {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+            changed.add(event.context().toString());
+          }
+          key.reset();
+          key = watcher.poll(SETTLE, TimeUnit.MILLISECONDS);
+        }
+  
+        for (String name : changed) reload(name);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {}
+  }
+  
+  /** Stops watching the folder. */
+  public void close()
+  {
+    try {
+      watcher.close();
+    } catch (IOException e) {}
+  }
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Reloads one file into the session, and logs how long it took.
+   *  @param name   The name of the file in the folder. */
+  private void reload(String name)
+  {
+    String file = folderPath + File.separator + name;
+    long start = System.nanoTime();
+    Scene scene = session.reload(file, restart);
+    double took = (System.nanoTime() - start) / 1e6;
+  
+    /* How long after the file was saved the new scene was in place. */
+    long saved = new File(file).lastModified();
+    if (scene == null) {
+      /* Editors' temporary files come and go here too. */
+      Log.debug("Reloaded {} in {} ms; it isn't an animation file",
+      file, took);
+    } else if (saved > 0) {
+      Log.info("Reloaded scene {} from {} in {} ms ({} ms after saving)",
+      scene.getSceneID(), file, took, System.currentTimeMillis() - saved);
+    } else {
+      Log.info("Reloaded scene {} from {} in {} ms",
+      scene.getSceneID(), file, took);
+    }
+  }
+}
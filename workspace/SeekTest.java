@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** The SeekTest class checks that seeking in the middle of a wait is
+ *  measured from how far into the wait the reader is, rather than from
+ *  where the wait ends. A scene with one long wait is run on a virtual
+ *  clock, and the reader is asked for its script time and sought back
+ *  and forward partway through the wait, the same as the arrow keys in
+ *  the game.
+ *
+ *  Each check is printed to the console with the time expected and the
+ *  time found, and the program exits with a status of 1 if any of them
+ *  fail. The test is run from the workspace directory: "java SeekTest".
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class SeekTest
+{
+  /** The length of the scene's wait, in milliseconds. */
+  private static final long WAIT = 10000;
+  
+  /** The number of checks that failed. */
+  private static int failures = 0;
+  
+  public static void main(String[] args)
+  throws IOException, InterruptedException
+  {
+    Log.setLevel(Log.WARN);
+    Path file = Files.createTempFile("seek", ".txt");
+    Files.write(file, ("ANIMATION 0\nwait " + WAIT + "ms\nreturn 1\n")
+    .getBytes("UTF-8"));
+  
+    /* Run the scene on a clock of its own, one step at a time. */
+    final Clock clock = Clock.virtualTime();
+    final Scene scene = new Scene(file.toString(), 0);
+    scene.setClock(clock);
+    final AnimationReader reader = new AnimationReader();
+    reader.setClock(clock);
+    final int[] next = { -1 };
+    Thread player = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        try {
+          next[0] = reader.animate(scene);
+        } finally {
+          clock.exit();
+        }
+      }
+    }, "Seek test");
+    player.setDaemon(true);
+    clock.enter();
+    player.start();
+  
+    /* Let the reader start the wait, then go partway through it; the
+     * time is how far into the wait the reader is. */
+    clock.advanceTo(0);
+    clock.advanceTo(ms(4000));
+    check("4 s into the wait", 4000, reader.getScriptTime());
+  
+    /* Seeking back lands inside the wait, before where the reader was. */
+    reader.seek(reader.getScriptTime() - 2000);
+    clock.advanceTo(ms(4000));
+    check("2 s back", 2000, reader.getScriptTime());
+  
+    /* Seeking forward doesn't skip past the rest of the wait. */
+    reader.seek(reader.getScriptTime() + 5000);
+    clock.advanceTo(ms(4000));
+    check("5 s forward", 7000, reader.getScriptTime());
+  
+    /* The rest of the wait then plays out, and the scene ends. */
+    clock.advanceTo(ms(4000 + WAIT - 7000));
+    player.join(5000);
+    check("scene returned", 1, next[0]);
+  
+    Files.deleteIfExists(file);
+    Log.flush();
+    System.out.println(failures == 0 ? "All checks passed"
+    : failures + " checks failed");
+    System.exit(failures == 0 ? 0 : 1);
+  }
+  
+  
+  
+  /* PRIVATE FUNCTIONS */
+  
+  /** Prints a check, and counts it if it failed.
+   *  @param what       What's being checked.
+   *  @param expected   The value expected.
+   *  @param actual     The value found. */
+  private static void check(String what, long expected, long actual)
+  {
+    boolean passed = expected == actual;
+    if (!passed) failures++;
+    System.out.printf("%-4s %-20s expected %6d, got %6d\n",
+    passed ? "ok" : "FAIL", what, expected, actual);
+  }
+  
+  /** Converts milliseconds to nanoseconds.
+   *  @param millis   The time in milliseconds.
+   *  @return The time in nanoseconds. */
+  private static long ms(long millis)
+  {
+    return millis * 1000000L;
+  }
+}
@@ -0,0 +1,321 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** A single playthrough of the game. A session holds everything that
+ *  belongs to one game being played: its own scenes, its own reader and
+ *  counter, and the scene currently being animated. Nothing in a session
+ *  is shared with other sessions except what never changes, such as the
+ *  text of the animation files and the character and background images,
+ *  so many sessions can be run in the same program at once, each on its
+ *  own thread.
+ *
+ *  A session is run with run(), which animates scenes one after another,
+ *  starting with the scene marked with the scene-id 0, until a scene
+ *  returns a negative or non-existant scene-id. It can also carry on from
+ *  a saved game with resume(Path). Whenever a new scene starts, the
+ *  session calls sceneStarting(Scene), which a window can override to
+ *  show the scene; by default, a session has no window at all. A
+ *  session can also be given a Prefetcher, to get the scenes each scene
+ *  can return to ready while it plays. An animation file that changes
+ *  while the session runs can be read again with reload(String,
+ *  boolean), which swaps the new scene in for the old one.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class Session implements Runnable
+{
+  /** The folder the game's animation files are kept in. */
+  public static final String ANIMATION_FOLDER = "..\\animation_files";
+  
+  /** The collection of scenes present in the game. The table never
+   *  changes; a reload replaces it with a new one. */
+  private volatile SceneTable scenes;
+  
+  /** The utility used to read and process animation files. */
+  private final AnimationReader aReader = new AnimationReader();
+  
+  /** The current scene being processed. */
+  private volatile Scene currentScene = null;
+  
+  /** Gets the next scenes ready while each scene plays; null if none. */
+  private volatile Prefetcher prefetcher = null;
+  
+  /** A scene that was stopped to be started again, once reloaded. */
+  private volatile Scene restarting = null;
+  
+  /** The scene read from the stopped scene's file, to start instead of
+   *  it. Set before restarting. */
+  private volatile Scene restartWith = null;
+  
+  /** Constructor for the Session class. Searches the given folder for
+   *  animation files, and creates a scene for each one found.
+   *  @param folderPath   The folder the animation files are kept in. */
+  public Session(String folderPath)
+  {
+    ArrayList<Scene> loaded = new ArrayList<Scene>();
+    load_scenes(folderPath, loaded);
+    scenes = new SceneTable(loaded);
+  }
+  
+  /** Function to start processing the animation files and display
+   *  animations on the screen. The first animation run is the file
+   *  marked as the 0th animation. If this file is not found, then
+   *  no animations are displayed. */
+  public void run()
+  {
+    /* The first scene should be marked as 0. */
+    play(find_scene(0), null);
+  }
+  
+  /** Function to carry on a saved game. The saved scene is put back as it
+   *  was, and animated from the command that was being run when the game
+   *  was saved; the commands before it aren't run again. If the save
+   *  can't be read, the game starts from the beginning instead.
+   *  @param file   The saved game. */
+  public void resume(Path file)
+  {
+    try {
+      long start = System.nanoTime();
+      Snapshot snapshot = Snapshot.read(file);
+      Scene scene = find_scene(snapshot.getSceneID());
+      if (scene != null) {
+        scene.restore(snapshot);
+        Log.info("Restored scene {} at line {} in {} ms",
+        snapshot.getSceneID(), snapshot.getLine(),
+        (System.nanoTime() - start) / 1e6);
+        play(scene, snapshot);
+        return;
+      }
+      Log.warn("Saved scene {} not found.", snapshot.getSceneID());
+    } catch (IOException e) {
+      Log.warn("Could not resume {}: {}", file, e.getMessage());
+    }
+    run();
+  }
+  
+  /** Function to save the game. The scene is saved by its reader, at the
+   *  next command where nothing is moving, or as it was when the buttons
+   *  were shown if the player is choosing one. Does nothing if no scene
+   *  is being animated. Should be called from one thread only, such as
+   *  the event dispatch thread.
+   *  @param file   Where to save the game. */
+  public void save(final Path file)
+  {
+    aReader.requestSnapshot().thenAccept(new Consumer<Snapshot>()
+    {
+      public void accept(Snapshot snapshot)
+      {
+        if (snapshot == null) return;
+        try {
+          snapshot.write(file);
+          Log.info("Saved scene {} at line {} to {}",
+          snapshot.getSceneID(), snapshot.getLine(), file);
+        } catch (IOException e) {
+          Log.error("Could not save {}: {}", file, e.getMessage());
+        }
+      }
+    });
+  }
+  
+  /** Function to get the current scene being processed and animated.
+   *  @return The current scene being processed; null if none. */
+  public Scene getCurrentScene()
+  {
+    return currentScene;
+  }
+  
+  /** Function to get the reader that animates this session's scenes.
+   *  @return The session's reader. */
+  public AnimationReader getReader()
+  {
+    return aReader;
+  }
+  
+  /** Function to get the scene with the given scene-id.
+   *  @param id     The scene-id to find.
+   *  @return The scene with that ID; null if there isn't one. */
+  public Scene getScene(int id)
+  {
+    return find_scene(id);
+  }
+  
+  /** Function to read an animation file again after it has changed, been
+   *  added or been removed, and to put its scene in place of the old one.
+   *  Every other scene, and every cached image, is kept as it is. The
+   *  scene being animated carries on with the script it started with,
+   *  unless it's restarted, in which case the new scene is started in
+   *  its place, whatever its scene-id now is. A scene whose file is no
+   *  longer a scene is never restarted.
+   *  @param file     The path to the animation file, as found in the
+   *                  folder the session was loaded from.
+   *  @param restart  Whether to start the scene again at once, if it's
+   *                  the one being animated.
+   *  @return The new scene; null if the file is no longer a scene. */
+  public synchronized Scene reload(String file, boolean restart)
+  {
+    ScriptCache.invalidate(file);
+    SceneAssets.invalidate(file);
+    
+    /* Make the file's new scene, if it's still an animation file. */
+    Scene replacement = null;
+    if (new File(file).isFile() && aReader.isAnimationFile(file)) {
+      replacement = new Scene(file, aReader.extractSceneID(file));
+    }
+    
+    /* Copy every other scene into a new table, and put the new one in. */
+    List<Scene> current = scenes.getScenes();
+    ArrayList<Scene> updated = new ArrayList<Scene>(current.size() + 1);
+    Scene replaced = null;
+    for (int i = 0; i < current.size(); i++)
+    {
+      Scene scene = current.get(i);
+      if (scene.getAnimationFile().equals(file)) {
+        replaced = scene;
+      } else if (replacement != null
+      && scene.getSceneID() == replacement.getSceneID()) {
+        Log.warn("Scene {} in {} is replaced by {}", scene.getSceneID(),
+        scene.getAnimationFile(), file);
+      } else {
+        updated.add(scene);
+      }
+    }
+    if (replacement != null) updated.add(replacement);
+    scenes = new SceneTable(updated);
+    
+    /* Start the scene again if it's being animated. */
+    Scene playing = currentScene;
+    if (restart && replaced != null && replaced == playing) {
+      if (replacement == null) {
+        /* Stopping it now would end the game; let it carry on. */
+        Log.warn("{} is no longer a scene; scene {} carries on as it was",
+        file, playing.getSceneID());
+      } else {
+        restartWith = replacement;
+        restarting = playing;
+        aReader.stop(playing);
+      }
+    }
+    return replacement;
+  }
+  
+  /** Function to set what gets the next scenes ready while each scene
+   *  plays. By default, a session doesn't prefetch anything.
+   *  @param prefetcher   The prefetcher to use; null for none. */
+  public void setPrefetcher(Prefetcher prefetcher)
+  {
+    this.prefetcher = prefetcher;
+  }
+  
+  /** Function to get the number of scenes in this session.
+   *  @return The number of scenes loaded. */
+  public int getSceneCount()
+  {
+    return scenes.size();
+  }
+  
+  /** Called on the session's thread whenever a new scene is about to be
+   *  animated. Does nothing unless overridden.
+   *  @param scene    The scene about to be animated. */
+  protected void sceneStarting(Scene scene) {}
+  
+  
+  
+  /* PRIVATE MEMBER FUNCTIONS */
+  
+  /** Function to animate scenes one after another, starting with the
+   *  given scene, until a scene returns a scene-id that isn't found.
+   *  @param first      The first scene to animate.
+   *  @param snapshot   The saved game the first scene was restored from,
+   *                    or null to animate it from the start. */
+  private void play(Scene first, Snapshot snapshot)
+  {
+    currentScene = first;
+  
+    /* The scene that was animated before the current one. */
+    int previousID = -1;
+  
+    /* Keep animating until the next scene isn't found. */
+    while (currentScene != null)
+    {
+      /* Set up the new scene. */
+      SceneSwitchEvent event = new SceneSwitchEvent();
+      event.begin();
+      sceneStarting(currentScene);
+      Prefetcher ahead = prefetcher;
+      if (ahead != null) ahead.sceneStarting(this, currentScene);
+      if (event.shouldCommit()) {
+        event.previousSceneID = previousID;
+        event.sceneID = currentScene.getSceneID();
+        event.commit();
+      }
+      previousID = currentScene.getSceneID();
+      if (Log.isEnabled(Log.DEBUG))
+        Log.debug("Starting scene {}", currentScene.getSceneID());
+  
+      /* Animate the new scene, from where it was saved if resuming. */
+      int next;
+      if (snapshot != null) {
+        next = aReader.animate
+        (currentScene, snapshot.getLine(), snapshot.getCounter());
+        snapshot = null;
+      } else {
+        next = aReader.animate(currentScene);
+      }
+      
+      /* A scene stopped to be reloaded starts again, as it now reads,
+       * even if its scene-id has changed. */
+      if (restarting == currentScene) {
+        restarting = null;
+        currentScene = restartWith;
+        restartWith = null;
+        continue;
+      }
+      currentScene = find_scene(next);
+    }
+  }
+  
+  /** Function to find the scene with the given ID.
+   *  @param id     The scene ID to find.
+   *  @return The scene with the specified ID if it exists; null if not. */
+  private Scene find_scene(int id)
+  {
+    return scenes.get(id);
+  }
+  
+  /** Function which searches the given folder for animation files.
+   *  These animation files are tested for the proper heading format
+   *  which denotes it as an animation file, and then proceeds to store
+   *  it in the array.
+   *  @param folderPath   The folder the animation files are kept in.
+   *  @param scenes       The list to add the scenes to. */
+  private void load_scenes(String folderPath, ArrayList<Scene> scenes)
+  {
+    /* Retrieve the files in the animation folder. */
+    File folder = new File(folderPath);
+    File[] files = folder.listFiles();
+    if (files == null) {
+      Log.error("Could not list animation files in {}", folderPath);
+      return;
+    }
+  
+    /* Loop through each file. */
+    for (int i = 0; i < files.length; i++)
+    {
+      File f = files[i];
+      String fName = folderPath + File.separator + f.getName();
+  
+      /* Make sure it's an animation file. */
+      if (f.isFile() && aReader.isAnimationFile(fName)) {
+        Log.info("Loaded animation file: {}", fName);
+        Scene newScene = new Scene
+        (fName, aReader.extractSceneID(fName));
+        scenes.add(newScene);
+      }
+    }
+  }
+}
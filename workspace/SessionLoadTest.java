@@ -0,0 +1,117 @@
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** The SessionLoadTest class measures how many games the engine can play
+ *  at once in one program. A given number of sessions are created, each
+ *  with its own scenes and reader, and each is set to run unattended,
+ *  skipping every wait and picking its choices at random. Every session
+ *  is then played to the end on its own thread.
+ *
+ *  Three figures are printed to the console: the heap used per session
+ *  once every session has been created, the number of sessions finished
+ *  per second, and the number of commands run per second across all of
+ *  the sessions. On a JVM with virtual threads, each session is given a
+ *  virtual thread; otherwise the sessions share a pool of platform
+ *  threads, one per processor.
+ *
+ *  The test is run from the workspace directory, the same as the game:
+ *  "java SessionLoadTest [[sessions] [[folder]]]", where sessions is the
+ *  number of sessions to play (the default is 10,000), and folder is the
+ *  folder the animation files are kept in.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class SessionLoadTest
+{
+  /** The longest the sessions are given to finish, in seconds. */
+  private static final long TIMEOUT = 600;
+  
+  public static void main(String[] args) throws InterruptedException
+  {
+    /* The number of sessions, and where their scenes are kept. */
+    int count = 10000;
+    if (args.length > 0) count = Integer.parseInt(args[0]);
+    String folder = Session.ANIMATION_FOLDER;
+    if (args.length > 1) folder = args[1];
+  
+    /* Thousands of sessions would flood the console otherwise. */
+    Log.setLevel(Log.WARN);
+  
+    /* Create every session first, to see what each one costs. */
+    long baseline = usedHeap();
+    Session[] sessions = new Session[count];
+    for (int i = 0; i < count; i++)
+    {
+      sessions[i] = new Session(folder);
+      sessions[i].getReader().setUnattended(new Random(i));
+    }
+    long perSession = (usedHeap() - baseline) / Math.max(1, count);
+    System.out.printf("%,d sessions of %d scenes, %,d bytes each\n",
+    count, sessions[0].getSceneCount(), perSession);
+  
+    /* Play every session to the end. */
+    ExecutorService executor = newExecutor();
+    final AtomicInteger finished = new AtomicInteger();
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++)
+    {
+      final Session session = sessions[i];
+      executor.execute(new Runnable()
+      {
+        public void run()
+        {
+          session.run();
+          finished.incrementAndGet();
+        }
+      });
+    }
+    executor.shutdown();
+    if (!executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS))
+      System.out.println("Timed out; some sessions never finished.");
+    double seconds = (System.nanoTime() - start) / 1e9;
+  
+    /* Add up the commands run by every session. */
+    long commands = 0;
+    for (int i = 0; i < count; i++)
+    {
+      commands += sessions[i].getReader().getStats().getAll().getCount();
+    }
+  
+    System.out.printf("%,d sessions finished in %.2f s\n",
+    finished.get(), seconds);
+    System.out.printf("%,.0f sessions/s, %,.0f commands/s\n",
+    finished.get() / seconds, commands / seconds);
+    System.exit(0);
+  }
+  
+  /** Makes the executor the sessions are played on: one virtual thread
+   *  per session if the JVM has them, or else one platform thread per
+   *  processor.
+   *  @return The executor. */
+  private static ExecutorService newExecutor()
+  {
+    try {
+      Method factory
+      = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      System.out.println("Using virtual threads");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      System.out.println("Using " + threads + " platform threads");
+      return Executors.newFixedThreadPool(threads);
+    }
+  }
+  
+  /** Returns the heap in use after a garbage collection.
+   *  @return The used heap in bytes. */
+  private static long usedHeap()
+  {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A saved game: everything needed to pick up a game where it was left,
+ *  without running the commands that led there again. A snapshot holds
+ *  the current scene-id, the line of the animation file that was being
+ *  run, the reader's counter, the scene's background, opacity and text,
+ *  and each of its characters' type, ID, position, size, appearance and
+ *  opacity.
+ *
+ *  Snapshots are written to a small binary file, which starts with a
+ *  magic number and a format version. A file written in any other
+ *  version is refused rather than misread.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class Snapshot
+{
+  /** Marks a file as a snapshot: "RRSV" in ASCII. */
+  private static final int MAGIC = 0x52525356;
+  
+  /** The version of the file format. */
+  private static final short VERSION = 1;
+  
+  /* Where the game was. */
+  private final int sceneID;
+  private final int line;
+  private final int counter;
+  
+  /* The state of the scene. */
+  private final String background;
+  private final int opacity;
+  private final List<String> text;
+  private final List<FigureState> characters;
+  
+  /** Constructor for the Snapshot class.
+   *  @param sceneID      The scene-id of the current scene.
+   *  @param line         The line of the animation file being run.
+   *  @param counter      The reader's counter.
+   *  @param background   The name of the scene's background.
+   *  @param opacity      The opacity of the scene's cover, from 0 to 255.
+   *  @param text         The lines of text on the screen.
+   *  @param characters   The state of each character in the scene. */
+  public Snapshot(int sceneID, int line, int counter, String background,
+  int opacity, List<String> text, List<FigureState> characters)
+  {
+    this.sceneID = sceneID;
+    this.line = line;
+    this.counter = counter;
+    this.background = background;
+    this.opacity = opacity;
+    this.text = new ArrayList<String>(text);
+    this.characters = new ArrayList<FigureState>(characters);
+  }
+  
+  /** Returns the scene-id of the saved scene.
+   *  @return The scene-id. */
+  public int getSceneID()
+  {
+    return sceneID;
+  }
+  
+  /** Returns the line of the animation file that was being run. This is
+   *  the line to carry on from.
+   *  @return The line number, starting at 1; 0 if no line had been run. */
+  public int getLine()
+  {
+    return line;
+  }
+  
+  /** Returns the value of the reader's counter.
+   *  @return The counter. */
+  public int getCounter()
+  {
+    return counter;
+  }
+  
+  /** Returns the name of the scene's background.
+   *  @return The background's name. */
+  public String getBackground()
+  {
+    return background;
+  }
+  
+  /** Returns the opacity of the scene's cover.
+   *  @return The opacity, from 0 to 255. */
+  public int getOpacity()
+  {
+    return opacity;
+  }
+  
+  /** Returns the lines of text on the screen.
+   *  @return The lines of text, oldest first. */
+  public List<String> getText()
+  {
+    return text;
+  }
+  
+  /** Returns the state of each character in the scene.
+   *  @return The characters' states, in the order they were added. */
+  public List<FigureState> getCharacters()
+  {
+    return characters;
+  }
+  
+  /** Writes the snapshot to a file, replacing anything already there.
+   *  @param file   The file to write to.
+   *  @throws IOException if the file can't be written. */
+  public void write(Path file) throws IOException
+  {
+    /* Encode the strings first, to know how large the record is. */
+    byte[] bg = encode(background);
+    byte[][] lines = new byte[text.size()][];
+    int size = 4 + 2 + 4 * 4 + 2 + bg.length + 4;
+    for (int i = 0; i < lines.length; i++)
+    {
+      lines[i] = encode(text.get(i));
+      size += 2 + lines[i].length;
+    }
+    byte[][] types = new byte[characters.size()][];
+    byte[][] ids = new byte[characters.size()][];
+    size += 4;
+    for (int i = 0; i < types.length; i++)
+    {
+      FigureState c = characters.get(i);
+      types[i] = encode(c.getType());
+      ids[i] = encode(c.getID());
+      size += 2 + types[i].length + 2 + ids[i].length + 8 * 3 + 1 + 4;
+    }
+    
+    /* Fill in the record. */
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC).putShort(VERSION);
+    buffer.putInt(sceneID).putInt(line).putInt(counter).putInt(opacity);
+    put(buffer, bg);
+    buffer.putInt(lines.length);
+    for (byte[] l : lines) put(buffer, l);
+    buffer.putInt(types.length);
+    for (int i = 0; i < types.length; i++)
+    {
+      FigureState c = characters.get(i);
+      put(buffer, types[i]);
+      put(buffer, ids[i]);
+      buffer.putDouble(c.getX()).putDouble(c.getY()).putDouble(c.getSize());
+      buffer.put((byte) c.getState()).putFloat((float) c.getAlpha());
+    }
+    buffer.flip();
+    
+    /* Write it out in one go. */
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    try (FileChannel channel = FileChannel.open(file,
+    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+    StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) channel.write(buffer);
+    }
+  }
+  
+  /** Reads a snapshot from a file.
+   *  @param file   The file to read from.
+   *  @return The snapshot in the file.
+   *  @throws IOException if the file can't be read, or isn't a snapshot
+   *          of this version. */
+  public static Snapshot read(Path file) throws IOException
+  {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file,
+    StandardOpenOption.READ)) {
+      buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+    }
+    buffer.flip();
+    
+    try {
+      /* Make sure it's a snapshot we understand. */
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Not a snapshot: " + file);
+      short version = buffer.getShort();
+      if (version != VERSION)
+        throw new IOException("Unsupported snapshot version " + version);
+      
+      int sceneID = buffer.getInt();
+      int line = buffer.getInt();
+      int counter = buffer.getInt();
+      int opacity = buffer.getInt();
+      String background = get(buffer);
+      
+      int lines = buffer.getInt();
+      ArrayList<String> text = new ArrayList<String>(lines);
+      for (int i = 0; i < lines; i++) text.add(get(buffer));
+      
+      int count = buffer.getInt();
+      ArrayList<FigureState> characters = new ArrayList<FigureState>(count);
+      for (int i = 0; i < count; i++)
+      {
+        String type = get(buffer);
+        String id = get(buffer);
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double size = buffer.getDouble();
+        int state = buffer.get();
+        double alpha = buffer.getFloat();
+        characters.add(new FigureState(type, id, x, y, size, state, alpha));
+      }
+      
+      return new Snapshot(sceneID, line, counter, background, opacity,
+      text, characters);
+    }
+    
+    /* The file ended too soon. */
+    catch (RuntimeException e) {
+      throw new IOException("Corrupt snapshot: " + file, e);
+    }
+  }
+  
+  /** Encodes a string in UTF-8, cut down to what fits in the record.
+   *  @param s    The string to encode; null is taken as empty.
+   *  @return The encoded string. */
+  private static byte[] encode(String s)
+  {
+    byte[] bytes = (s == null) ? new byte[0]
+    : s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > Short.MAX_VALUE) {
+      byte[] cut = new byte[Short.MAX_VALUE];
+      System.arraycopy(bytes, 0, cut, 0, cut.length);
+      return cut;
+    }
+    return bytes;
+  }
+  
+  /** Puts an encoded string into the record, after its length.
+   *  @param buffer   The record.
+   *  @param bytes    The encoded string. */
+  private static void put(ByteBuffer buffer, byte[] bytes)
+  {
+    buffer.putShort((short) bytes.length).put(bytes);
+  }
+  
+  /** Gets a string from the record.
+   *  @param buffer   The record.
+   *  @return The string. */
+  private static String get(ByteBuffer buffer)
+  {
+    byte[] bytes = new byte[buffer.getShort()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  
+  
+  /** The saved state of one character. */
+  public static class FigureState
+  {
+    /* The character's type and unique ID. */
+    private final String type;
+    private final String id;
+    
+    /* The character's position, size, appearance and opacity. */
+    private final double x, y, size;
+    private final int state;
+    private final double alpha;
+    
+    /** Constructor for the FigureState class.
+     *  @param type   The name of the character's type, e.g. "rick".
+     *  @param id     The character's unique ID.
+     *  @param x      The x-coordinate of the character's center.
+     *  @param y      The y-coordinate of the character's base.
+     *  @param size   The character's size, with respect to the window.
+     *  @param state  The character's appearance, e.g. Figure.STILL.
+     *  @param alpha  The character's opacity, from 0 to 1. */
+    public FigureState(String type, String id, double x, double y,
+    double size, int state, double alpha)
+    {
+      this.type = type;
+      this.id = id;
+      this.x = x;
+      this.y = y;
+      this.size = size;
+      this.state = state;
+      this.alpha = alpha;
+    }
+    
+    /** Returns the name of the character's type.
+     *  @return The type's name, e.g. "rick". */
+    public String getType()
+    {
+      return type;
+    }
+    
+    /** Returns the character's unique ID.
+     *  @return The character's ID. */
+    public String getID()
+    {
+      return id;
+    }
+    
+    /** Returns the x-coordinate of the character's center.
+     *  @return The x-coordinate. */
+    public double getX()
+    {
+      return x;
+    }
+    
+    /** Returns the y-coordinate of the character's base.
+     *  @return The y-coordinate. */
+    public double getY()
+    {
+      return y;
+    }
+    
+    /** Returns the character's size.
+     *  @return The size with respect to the height of the window. */
+    public double getSize()
+    {
+      return size;
+    }
+    
+    /** Returns the character's appearance.
+     *  @return The appearance, e.g. Figure.STILL. */
+    public int getState()
+    {
+      return state;
+    }
+    
+    /** Returns the character's opacity.
+     *  @return The opacity, from 0 to 1. */
+    public double getAlpha()
+    {
+      return alpha;
+    }
+  }
+}
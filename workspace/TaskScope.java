@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A group of animation threads that belong to a single run of a scene.
+ *  Every move and transition started by a scene is forked in the scene's
+ *  current scope, and when the scene finishes, the scope is closed: any
+ *  animation still running is interrupted, which makes it jump to its
+ *  final state, and then joined. This keeps animations from one scene
+ *  from running on into the next, still moving characters and asking
+ *  for repaints.
+ *
+ *  Every forked task returns a handle that is completed when the task
+ *  finishes, however it finishes, so that the AnimationReader can wait
+ *  for animations to end rather than guessing how long they take.
+ *
+ *  Closing a scope waits a short time for its threads to finish. A thread
+ *  that is still running after that is counted as leaked. The number of
+ *  cancelled and leaked threads is kept over every scope, so that they
+ *  can be watched while the game runs.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public class TaskScope
+{
+  /** How long closing a scope waits for its threads, in nanoseconds. */
+  private static final long JOIN_TIMEOUT = 500000000L;
+  
+  /* The number of threads interrupted and leaked by every scope. */
+  private static final AtomicLong cancelled = new AtomicLong();
+  private static final AtomicLong leaked = new AtomicLong();
+  
+  /** The name given to the threads of this scope. */
+  private final String name;
+  
+  /** The clock the scope's threads are timed by. */
+  private final Clock clock;
+  
+  /** The threads of this scope that are still running, and the handles
+   *  that are completed when they finish. */
+  private final HashMap<Thread, CompletableFuture<Void>> running
+  = new HashMap<Thread, CompletableFuture<Void>>();
+  
+  /** Whether this scope has been closed. */
+  private boolean closed = false;
+  
+  /** Constructor for the TaskScope class, for threads timed in real
+   *  time.
+   *  @param name   The name given to the threads of this scope. */
+  public TaskScope(String name)
+  {
+    this(name, Clock.REAL_TIME);
+  }
+  
+  /** Constructor for the TaskScope class.
+   *  @param name   The name given to the threads of this scope.
+   *  @param clock  The clock the threads are timed by. */
+  public TaskScope(String name, Clock clock)
+  {
+    this.name = name;
+    this.clock = clock;
+  }
+  
+  /** Runs a task on a new thread that belongs to this scope. If the scope
+   *  has already been closed, the task is not run.
+   *  @param task   The task to run.
+   *  @return A handle that is completed when the task finishes; already
+   *          completed if the task was not run. */
+  public CompletableFuture<Void> fork(final Runnable task)
+  {
+    final CompletableFuture<Void> done = new CompletableFuture<Void>();
+    Thread thread = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        try {
+          task.run();
+        } finally {
+          finished(Thread.currentThread());
+          done.complete(null);
+          clock.exit();
+        }
+      }
+    }, name);
+    thread.setDaemon(true);
+    
+    synchronized (this) {
+      if (closed) {
+        done.complete(null);
+        return done;
+      }
+      running.put(thread, done);
+    }
+    clock.enter();
+    thread.start();
+    return done;
+  }
+  
+  /** Returns a handle that is completed once every task currently running
+   *  in this scope has finished. Tasks forked later are not included.
+   *  @return A handle on the running tasks. */
+  public synchronized CompletableFuture<Void> whenFinished()
+  {
+    return CompletableFuture.allOf
+    (running.values().toArray(new CompletableFuture<?>[0]));
+  }
+  
+  /** Interrupts every thread of this scope that is still running, then
+   *  waits for them to finish. No more tasks can be forked afterwards.
+   *  @return The number of threads that were interrupted. */
+  public int close()
+  {
+    ArrayList<Thread> threads;
+    synchronized (this) {
+      closed = true;
+      threads = new ArrayList<Thread>(running.keySet());
+    }
+    
+    for (Thread thread : threads) thread.interrupt();
+    
+    /* Give the threads a short time to finish. */
+    long deadline = clock.now() + JOIN_TIMEOUT;
+    for (Thread thread : threads)
+    {
+      try {
+        long remaining = deadline - clock.now();
+        if (remaining > 0) {
+          thread.join(remaining / 1000000L, (int) (remaining % 1000000L));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    
+    /* Anything still running is left behind. */
+    for (Thread thread : threads)
+    {
+      if (thread.isAlive()) {
+        leaked.incrementAndGet();
+        Log.warn("Animation thread did not stop: {}", thread.getName());
+      }
+    }
+    cancelled.addAndGet(threads.size());
+    return threads.size();
+  }
+  
+  /** Returns the number of threads in this scope that are still running.
+   *  @return The number of running threads. */
+  public synchronized int getRunning()
+  {
+    return running.size();
+  }
+  
+  /** Returns the number of threads that have been interrupted because
+   *  their scope was closed while they were running.
+   *  @return The number of cancelled threads over every scope. */
+  public static long getCancelled()
+  {
+    return cancelled.get();
+  }
+  
+  /** Returns the number of threads that were still running after their
+   *  scope was closed and waited for.
+   *  @return The number of leaked threads over every scope. */
+  public static long getLeaked()
+  {
+    return leaked.get();
+  }
+  
+  /** Removes a thread that has finished from the running threads.
+   *  @param thread   The thread that has finished. */
+  private synchronized void finished(Thread thread)
+  {
+    running.remove(thread);
+  }
+}
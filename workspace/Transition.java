@@ -8,7 +8,7 @@
  *  @since 0.1.0
  *  @version 0.1.0
  */
-public class Transition implements Runnable
+public class Transition implements Animation
 {
   /** The scene being acted on by the transition. */
   private Scene scene;
@@ -41,43 +41,56 @@ public class Transition implements Runnable
     }
   }
   
+  /** Applies the transition's final opacity to the scene at once. */
+  public void finish()
+  {
+    if (direction < 0) {
+      scene.setOpacity(0);
+    } else {
+      scene.setOpacity(255);
+    }
+  }
+  
   /** Performs the transition within its containing scene. The transition
    *  is carried out by repeatedly setting the opacity of the scene and
-   *  then repainting it. This method uses the transition time and direction
-   *  to find the appropriate change in opacity each time frame. */
+   *  then repainting it. Each frame, the opacity is set to where it should
+   *  be at that moment of the transition, so late frames don't stretch
+   *  the transition out. If the thread is interrupted, the transition
+   *  skips to its final opacity. */
   public void run()
   {
     /* Initial setup */
-    long start = System.currentTimeMillis();
-    long delta = 50;
-    long last = 0;
+    Clock clock = scene.getClock();
+    long start = clock.now();
+    long delta = 50000000L; // time between frames in ns
+    long duration = transitionTime * 1000000L;
+    long next = start;
     
-    /* Values to be modified in the loop */
-    double opacity = (direction < 0) ? 255 : 0;
-    double change = 255.0 / transitionTime * delta * direction;
-    
-    /* Continue while the opacity value is valid. */
-    while (0.0 <= opacity && opacity <= 255.0)
-    {
-      long current = System.currentTimeMillis();
-      long iteration = (current - start) / delta;
-      if (iteration != last) {
+    try {
+      /* Continue until the transition time has passed. */
+      long elapsed;
+      while ((elapsed = clock.now() - start) < duration)
+      {
+        double progress = (double) elapsed / duration;
+        double opacity = (direction < 0) ? 255 * (1 - progress)
+        : 255 * progress;
         scene.setOpacity(
         (int)Math.round(opacity) ); // apply opacity to scene
-        opacity += change; // change opacity
-        last = iteration;
+        
+        /* Wait for the next frame. */
+        next += delta;
+        clock.sleepUntil(next);
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
     
     /* Apply the final opacity. */
-    if (direction < 0) {
-      scene.setOpacity(0);
-    } else {
-      scene.setOpacity(255);
-    }
+    finish();
     
-    long end = System.currentTimeMillis();
-    double elapsed = (end - start) / 1000.0;
-    System.out.printf("Transition time elapsed: %.2fs\n", elapsed);
+    if (Log.isEnabled(Log.DEBUG)) {
+      long end = clock.now();
+      Log.debug("Transition time elapsed: {}s", (end - start) / 1e9);
+    }
   }
-}
\ No newline at end of file
+}
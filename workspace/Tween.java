@@ -0,0 +1,90 @@
+/** An animation that changes some value of a scene or character smoothly
+ *  over a set length of time, following an easing curve. A tween is run
+ *  on its own thread, like a move or a transition, so that it doesn't
+ *  delay the commands that follow it.
+ *
+ *  Each frame, the tween is given how far along its curve it should be
+ *  at that moment, so late frames don't stretch it out. Subclasses only
+ *  have to apply that progress to their own value. They may note where
+ *  the value starts once the tween begins, and do some more expensive
+ *  work once the tween has settled at its end. If the thread is
+ *  interrupted, the tween skips to its end.
+ *
+ *  @author Paul Shin
+ *  @since 0.1.0
+ *  @version 0.1.0
+ */
+public abstract class Tween implements Animation
+{
+  /** The time between frames in nanoseconds (60 frames per second). */
+  private static final long FRAME = 16666667L;
+  
+  /** How long the tween runs, in nanoseconds. */
+  private final long duration;
+  
+  /** The curve the tween follows. */
+  private final Easing easing;
+  
+  /** The clock the tween is timed by. */
+  private final Clock clock;
+  
+  /** Constructor for the Tween class.
+   *  @param millis   How long the tween runs, in milliseconds.
+   *  @param easing   The curve the tween follows.
+   *  @param clock    The clock the tween is timed by. */
+  protected Tween(int millis, Easing easing, Clock clock)
+  {
+    duration = Math.max(0, millis) * 1000000L;
+    this.easing = easing;
+    this.clock = clock;
+  }
+  
+  /** Runs the tween from start to end, then settles it. */
+  public void run()
+  {
+    begin();
+    long start = clock.now();
+    long next = start;
+    
+    try {
+      long elapsed;
+      while ((elapsed = clock.now() - start) < duration)
+      {
+        update(easing.apply((double) elapsed / duration));
+        
+        /* Wait for the next frame. */
+        next += FRAME;
+        clock.sleepUntil(next);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    
+    update(1.0);
+    settle();
+    
+    if (Log.isEnabled(Log.DEBUG))
+      Log.debug("Tween time elapsed: {}s", (clock.now() - start) / 1e9);
+  }
+  
+  /** Puts the tween straight at its end, then settles it. */
+  public void finish()
+  {
+    begin();
+    update(1.0);
+    settle();
+  }
+  
+  /** Called once when the tween starts running, before its first frame.
+   *  Does nothing unless overridden. */
+  protected void begin() {}
+  
+  /** Applies the tween's progress to its value.
+   *  @param progress   How far along the curve the tween is, from 0 at
+   *                    the start to 1 at the end. */
+  protected abstract void update(double progress);
+  
+  /** Called once the tween has reached its end. Does nothing unless
+   *  overridden. */
+  protected void settle() {}
+}